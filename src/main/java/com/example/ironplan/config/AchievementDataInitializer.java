@@ -1,31 +1,36 @@
 package com.example.ironplan.config;
 
 import com.example.ironplan.model.Achievement;
+import com.example.ironplan.model.AchievementComparator;
+import com.example.ironplan.model.AchievementMetric;
 import com.example.ironplan.repository.AchievementRepository;
+import com.example.ironplan.service.AchievementService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Inicializa las hazañas en la base de datos si no existen.
+ * Cada hazaña es una regla (métrica, comparador, umbral): añadir una es añadir una fila aquí.
  */
 @Component
 public class AchievementDataInitializer implements CommandLineRunner {
 
     private final AchievementRepository achievementRepo;
+    private final AchievementService achievementService;
 
-    public AchievementDataInitializer(AchievementRepository achievementRepo) {
+    public AchievementDataInitializer(AchievementRepository achievementRepo, AchievementService achievementService) {
         this.achievementRepo = achievementRepo;
+        this.achievementService = achievementService;
     }
 
     @Override
     public void run(String... args) {
-        // Solo inicializar si no hay hazañas
-        if (achievementRepo.count() > 0) {
-            return;
-        }
-
         List<Achievement> achievements = List.of(
                 // Hazañas de entrenamiento
                 new Achievement(
@@ -35,7 +40,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "trophy",
                         "workout",
                         50,
-                        1
+                        1,
+                        AchievementMetric.COMPLETED_WORKOUTS, AchievementComparator.GTE, 1
                 ),
                 new Achievement(
                         "TEN_WORKOUTS",
@@ -44,7 +50,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "medal",
                         "workout",
                         100,
-                        2
+                        2,
+                        AchievementMetric.COMPLETED_WORKOUTS, AchievementComparator.GTE, 10
                 ),
                 new Achievement(
                         "TWENTY_FIVE_WORKOUTS",
@@ -53,7 +60,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "medal",
                         "workout",
                         200,
-                        3
+                        3,
+                        AchievementMetric.COMPLETED_WORKOUTS, AchievementComparator.GTE, 25
                 ),
                 new Achievement(
                         "FIFTY_WORKOUTS",
@@ -62,7 +70,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "star",
                         "workout",
                         500,
-                        4
+                        4,
+                        AchievementMetric.COMPLETED_WORKOUTS, AchievementComparator.GTE, 50
                 ),
                 new Achievement(
                         "HUNDRED_WORKOUTS",
@@ -71,7 +80,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "crown",
                         "workout",
                         1000,
-                        5
+                        5,
+                        AchievementMetric.COMPLETED_WORKOUTS, AchievementComparator.GTE, 100
                 ),
 
                 // Hazañas de creación
@@ -82,7 +92,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "pencil",
                         "creator",
                         75,
-                        10
+                        10,
+                        AchievementMetric.ROUTINES_CREATED, AchievementComparator.GTE, 1
                 ),
 
                 // Hazañas de XP
@@ -93,7 +104,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "bolt",
                         "xp",
                         0, // No da XP extra para evitar loop
-                        20
+                        20,
+                        AchievementMetric.LIFETIME_XP, AchievementComparator.GTE, 1000
                 ),
                 new Achievement(
                         "XP_5000",
@@ -102,7 +114,8 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "bolt",
                         "xp",
                         0,
-                        21
+                        21,
+                        AchievementMetric.LIFETIME_XP, AchievementComparator.GTE, 5000
                 ),
                 new Achievement(
                         "XP_10000",
@@ -111,11 +124,58 @@ public class AchievementDataInitializer implements CommandLineRunner {
                         "fire",
                         "xp",
                         0,
-                        22
+                        22,
+                        AchievementMetric.LIFETIME_XP, AchievementComparator.GTE, 10000
+                ),
+
+                // Hazañas de constancia y volumen
+                new Achievement(
+                        "STREAK_7_DAYS",
+                        "Semana Perfecta",
+                        "Entrena 7 días seguidos",
+                        "fire",
+                        "workout",
+                        150,
+                        30,
+                        AchievementMetric.LONGEST_STREAK, AchievementComparator.GTE, 7
+                ),
+                new Achievement(
+                        "VOLUME_100000",
+                        "100 Toneladas",
+                        "Levanta 100,000 kg de volumen total",
+                        "star",
+                        "workout",
+                        300,
+                        40,
+                        AchievementMetric.TOTAL_VOLUME_KG, AchievementComparator.GTE, 100000
                 )
         );
 
-        achievementRepo.saveAll(achievements);
-        System.out.println("✅ Hazañas inicializadas: " + achievements.size());
+        // Las hazañas ya existentes conservan sus textos; solo se completa la regla si no la tenían
+        Map<String, Achievement> existing = achievementRepo.findAll().stream()
+                .collect(Collectors.toMap(Achievement::getCode, Function.identity()));
+
+        List<Achievement> toSave = new ArrayList<>();
+        int created = 0;
+        for (Achievement definition : achievements) {
+            Achievement current = existing.get(definition.getCode());
+            if (current == null) {
+                toSave.add(definition);
+                created++;
+            } else if (current.getMetric() == null) {
+                current.setMetric(definition.getMetric());
+                current.setComparator(definition.getComparator());
+                current.setThreshold(definition.getThreshold());
+                toSave.add(current);
+            }
+        }
+
+        if (!toSave.isEmpty()) {
+            achievementRepo.saveAll(toSave);
+            System.out.println("✅ Hazañas inicializadas: " + created + " nuevas, "
+                    + (toSave.size() - created) + " con regla completada");
+        }
+
+        achievementService.reloadCatalog();
     }
 }
@@ -0,0 +1,109 @@
+package com.example.ironplan.config;
+
+import com.example.ironplan.service.LastPerformanceService;
+import com.example.ironplan.service.MuscleVolumeService;
+import com.example.ironplan.service.PersonalRecordService;
+import com.example.ironplan.service.TrainingRollupService;
+import com.example.ironplan.service.TrainingStreakService;
+import com.example.ironplan.service.XpHistoryService;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reconstruye las tablas derivadas de progreso a partir del histórico.
+ *
+ * Se activa al arrancar con el argumento --rebuild, por ejemplo:
+ *   java -jar ironplan.jar --rebuild=rollups,records,streaks,muscles,last-performance,xp-monthly
+ *
+ * Sin el argumento no hace nada.
+ *
+ * workout-sets-dedupe repara workout_sets cuando le falta la clave única: UpsertKeyVerifier
+ * borra los duplicados al arrancar y aquí se reconstruye todo lo que sale de las series.
+ */
+@Component
+public class ProgressRebuildRunner implements ApplicationRunner {
+
+    private final TrainingRollupService rollupService;
+    private final PersonalRecordService recordService;
+    private final TrainingStreakService streakService;
+    private final MuscleVolumeService muscleVolumeService;
+    private final LastPerformanceService lastPerformanceService;
+    private final XpHistoryService xpHistoryService;
+
+    public ProgressRebuildRunner(
+            TrainingRollupService rollupService,
+            PersonalRecordService recordService,
+            TrainingStreakService streakService,
+            MuscleVolumeService muscleVolumeService,
+            LastPerformanceService lastPerformanceService,
+            XpHistoryService xpHistoryService
+    ) {
+        this.rollupService = rollupService;
+        this.recordService = recordService;
+        this.streakService = streakService;
+        this.muscleVolumeService = muscleVolumeService;
+        this.lastPerformanceService = lastPerformanceService;
+        this.xpHistoryService = xpHistoryService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String target : targets(args)) {
+            rebuild(target);
+        }
+    }
+
+    /** Objetivos de --rebuild (se admite repetir el argumento y separarlos por comas). */
+    static List<String> targets(ApplicationArguments args) {
+        List<String> values = args.getOptionValues("rebuild");
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .flatMap(raw -> Arrays.stream(raw.split(",")))
+                .map(String::trim)
+                .filter(target -> !target.isEmpty())
+                .toList();
+    }
+
+    private void rebuild(String target) {
+        switch (target) {
+            case "rollups" -> {
+                int days = rollupService.rebuildAll();
+                System.out.println("✅ Acumulado diario reconstruido: " + days + " días");
+            }
+            case "records" -> {
+                int records = recordService.rebuildAll();
+                System.out.println("✅ Récords personales reconstruidos: " + records + " ejercicios");
+            }
+            case "streaks" -> {
+                int users = streakService.rebuildAll();
+                System.out.println("✅ Rachas reconstruidas: " + users + " usuarios");
+            }
+            case "muscles" -> {
+                int rows = muscleVolumeService.rebuildAll();
+                System.out.println("✅ Volumen por músculo reconstruido: " + rows + " filas");
+            }
+            case "last-performance" -> {
+                int rows = lastPerformanceService.rebuildAll();
+                System.out.println("✅ Serie anterior reconstruida: " + rows + " ejercicios");
+            }
+            case "xp-monthly" -> {
+                int rows = xpHistoryService.rebuildAll();
+                System.out.println("✅ XP mensual reconstruido: " + rows + " filas");
+            }
+            case UpsertKeyVerifier.WORKOUT_SETS_DEDUPE -> {
+                // Las series borradas pudieron alimentar récords, acumulados y la serie anterior
+                rebuild("rollups");
+                rebuild("records");
+                rebuild("muscles");
+                rebuild("last-performance");
+            }
+            default -> System.out.println("⚠️ Objetivo de rebuild desconocido: " + target);
+        }
+    }
+}
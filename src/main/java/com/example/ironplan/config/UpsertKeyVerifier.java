@@ -0,0 +1,112 @@
+package com.example.ironplan.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Comprueba al arrancar las claves únicas de las que dependen los upsert
+ * (INSERT ... ON DUPLICATE KEY UPDATE). Sin ellas el upsert inserta filas duplicadas
+ * en silencio, y ddl-auto=update no las crea si la tabla ya tiene duplicados
+ * (registra el ALTER fallido y sigue).
+ *
+ * Si falta alguna clave se para el arranque; nunca se borran datos sin pedirlo.
+ *
+ * - workout_sets: se repara arrancando con --rebuild=workout-sets-dedupe. Borra los duplicados
+ *   (se queda la fila más reciente de cada serie), añade la clave, y ProgressRebuildRunner
+ *   reconstruye después lo que se calcula a partir de las series.
+ * - Acumulados (XP mensual, volumen por músculo): no se pueden deduplicar porque habría
+ *   que sumar filas; se vacía la tabla y se reconstruye con --rebuild.
+ *
+ * Corre tras el esquema de Hibernate y antes de aceptar peticiones, así que la reparación
+ * termina antes de que ningún upsert use la tabla.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class UpsertKeyVerifier {
+
+    /** Objetivo de --rebuild que depura workout_sets; ProgressRebuildRunner lo usa para los derivados. */
+    public static final String WORKOUT_SETS_DEDUPE = "workout-sets-dedupe";
+
+    private record UpsertKey(String table, String name, List<String> columns, String fix) {}
+
+    private static final List<UpsertKey> KEYS = List.of(
+            new UpsertKey("workout_sets", "ux_ws_exercise_set", List.of("workout_exercise_id", "set_number"),
+                    "arranca una vez con --rebuild=" + WORKOUT_SETS_DEDUPE),
+            new UpsertKey("user_xp_monthly", "ux_uxm_user_month_type", List.of("user_id", "month_start", "type"),
+                    "vacía la tabla y arranca con --rebuild=xp-monthly"),
+            new UpsertKey("user_muscle_weekly_volume", "ux_umwv_user_week_muscle", List.of("user_id", "week_start", "muscle"),
+                    "vacía la tabla y arranca con --rebuild=muscles")
+    );
+
+    // Índices únicos de la tabla cuyas columnas (en orden) coinciden exactamente
+    private static final String FIND_KEY_SQL = """
+        SELECT COUNT(*) FROM (
+            SELECT index_name
+            FROM information_schema.statistics
+            WHERE table_schema = DATABASE() AND table_name = ? AND non_unique = 0
+            GROUP BY index_name
+            HAVING GROUP_CONCAT(column_name ORDER BY seq_in_index) = ?
+        ) k
+    """;
+
+    private static final String DEDUPE_WORKOUT_SETS_SQL = """
+        DELETE ws FROM workout_sets ws
+        JOIN workout_sets newer
+          ON newer.workout_exercise_id = ws.workout_exercise_id
+         AND newer.set_number = ws.set_number
+         AND newer.id > ws.id
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+    private final boolean dedupeRequested;
+
+    public UpsertKeyVerifier(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager txManager,
+            ApplicationArguments args
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.txTemplate = new TransactionTemplate(txManager);
+        this.dedupeRequested = ProgressRebuildRunner.targets(args).contains(WORKOUT_SETS_DEDUPE);
+    }
+
+    @PostConstruct
+    public void verify() {
+        for (UpsertKey key : KEYS) {
+            if (hasKey(key)) continue;
+
+            if (dedupeRequested && key.table().equals("workout_sets")) {
+                dedupeWorkoutSets(key);
+                continue;
+            }
+            throw new IllegalStateException("Falta la clave única " + key.columns() + " en " + key.table()
+                    + ": el upsert duplicaría filas. Para arreglarlo " + key.fix() + ".");
+        }
+    }
+
+    private void dedupeWorkoutSets(UpsertKey key) {
+        // El ALTER hace commit implícito en MySQL: el borrado va en su propia transacción
+        Integer removed = txTemplate.execute(status -> jdbcTemplate.update(DEDUPE_WORKOUT_SETS_SQL));
+        jdbcTemplate.execute("ALTER TABLE " + key.table() + " ADD CONSTRAINT " + key.name()
+                + " UNIQUE (" + String.join(", ", key.columns()) + ")");
+
+        if (!hasKey(key)) {
+            throw new IllegalStateException("No se pudo crear la clave única " + key.name() + " en " + key.table());
+        }
+        System.out.println("✅ Clave única " + key.name() + " creada en " + key.table()
+                + " (" + removed + " filas duplicadas borradas)");
+    }
+
+    private boolean hasKey(UpsertKey key) {
+        Integer count = jdbcTemplate.queryForObject(FIND_KEY_SQL, Integer.class, key.table(), String.join(",", key.columns()));
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.ironplan.event;
+
+/**
+ * Se publica al crear, editar o borrar un ejercicio del catálogo.
+ */
+public record ExerciseCatalogChangedEvent(
+        Long exerciseId
+) {}
@@ -0,0 +1,11 @@
+package com.example.ironplan.event;
+
+/**
+ * Se publica cuando una sesión pasa a COMPLETED: completada, finalizada antes
+ * de tiempo, saltada o autocompletada al terminar todos los ejercicios.
+ * Lo publica PostWorkoutPipeline (paso de acumulados), fuera de la petición.
+ */
+public record WorkoutSessionCompletedEvent(
+        Long userId,
+        Long sessionId
+) {}
@@ -0,0 +1,14 @@
+package com.example.ironplan.event;
+
+import java.util.Set;
+
+/**
+ * Se publica al descartar una sesión activa (sus series se borran).
+ *
+ * @param exerciseIds ejercicios del catálogo que tenían series en la sesión
+ */
+public record WorkoutSessionDiscardedEvent(
+        Long userId,
+        Long sessionId,
+        Set<Long> exerciseIds
+) {}
@@ -0,0 +1,12 @@
+package com.example.ironplan.event;
+
+/**
+ * Se publica al guardar las series de un ejercicio dentro de una sesión.
+ *
+ * @param exerciseId ejercicio del catálogo (null si no se pudo resolver)
+ */
+public record WorkoutSetsSavedEvent(
+        Long userId,
+        Long sessionId,
+        Long exerciseId
+) {}
@@ -0,0 +1,9 @@
+package com.example.ironplan.event;
+
+/**
+ * Se publica al subir el XP de por vida de un usuario (lifetimeXp ya actualizado).
+ */
+public record XpChangedEvent(
+        Long userId,
+        int lifetimeXp
+) {}
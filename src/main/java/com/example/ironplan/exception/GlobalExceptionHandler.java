@@ -1,9 +1,12 @@
 package com.example.ironplan.exception;
 import com.example.ironplan.rest.dto.ErrorResponse;
+import com.example.ironplan.rest.error.NotFoundException;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -48,6 +51,46 @@ public class GlobalExceptionHandler {
                 .body(ErrorResponse.of(409, "DATA_CONFLICT", "El email o username ya están registrados."));
     }
 
+    /**
+     * Escritura concurrente que siguió chocando tras los reintentos
+     */
+    @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+    public ResponseEntity<ErrorResponse> handleOptimisticLock(RuntimeException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(ErrorResponse.of(409, "CONCURRENT_UPDATE", "Otra petición modificó este recurso. Vuelve a intentarlo."));
+    }
+
+    /**
+     * Idempotency-Key reutilizada con otro contenido
+     */
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        return ResponseEntity
+                .status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(ErrorResponse.of(422, "IDEMPOTENCY_KEY_REUSED", ex.getMessage()));
+    }
+
+    /**
+     * Operación no válida en el estado actual de la sesión (finalizar / descartar una sesión cerrada)
+     */
+    @ExceptionHandler(SessionStateConflictException.class)
+    public ResponseEntity<ErrorResponse> handleSessionStateConflict(SessionStateConflictException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(ErrorResponse.of(409, "SESSION_STATE_CONFLICT", ex.getMessage()));
+    }
+
+    /**
+     * Petición rechazada por los servicios (parámetros u operaciones inválidas)
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(ErrorResponse.of(400, "BAD_REQUEST", ex.getMessage()));
+    }
+
     /**
      * Credenciales incorrectas en login
      */
@@ -81,8 +124,8 @@ public class GlobalExceptionHandler {
     /**
      * Entidad no encontrada (por ejemplo, usuario no existe)
      */
-    @ExceptionHandler(EntityNotFoundException.class)
-    public ResponseEntity<ErrorResponse> handleEntityNotFound(EntityNotFoundException ex) {
+    @ExceptionHandler({EntityNotFoundException.class, NotFoundException.class})
+    public ResponseEntity<ErrorResponse> handleEntityNotFound(RuntimeException ex) {
         return ResponseEntity
                 .status(HttpStatus.NOT_FOUND)
                 .body(ErrorResponse.of(404, "NOT_FOUND", ex.getMessage()));
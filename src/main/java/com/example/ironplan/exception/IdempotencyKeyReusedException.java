@@ -0,0 +1,10 @@
+package com.example.ironplan.exception;
+
+/**
+ * Se reutilizó una Idempotency-Key con un contenido distinto al de la petición original.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String key) {
+        super("La Idempotency-Key '" + key + "' ya se usó con otra petición.");
+    }
+}
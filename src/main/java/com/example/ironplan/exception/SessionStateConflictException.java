@@ -0,0 +1,11 @@
+package com.example.ironplan.exception;
+
+/**
+ * La operación no es válida en el estado actual de la sesión
+ * (por ejemplo: descartar una sesión que ya se completó).
+ */
+public class SessionStateConflictException extends RuntimeException {
+    public SessionStateConflictException(String message) {
+        super(message);
+    }
+}
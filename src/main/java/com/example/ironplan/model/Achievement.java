@@ -44,6 +44,19 @@ public class Achievement {
     @Column(nullable = false)
     private Boolean isActive = true; // Si está activa o no
 
+    // ------ REGLA DE DESBLOQUEO ------
+    // Se desbloquea cuando (contador metric) comparator threshold; sin metric no se evalúa sola
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 30)
+    private AchievementMetric metric;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private AchievementComparator comparator = AchievementComparator.GTE;
+
+    private Long threshold;
+
     // Constructor para facilitar la creación
     public Achievement(String code, String name, String description, String icon, String category, Integer xpReward, Integer sortOrder) {
         this.code = code;
@@ -55,4 +68,12 @@ public class Achievement {
         this.sortOrder = sortOrder;
         this.isActive = true;
     }
+
+    public Achievement(String code, String name, String description, String icon, String category, Integer xpReward, Integer sortOrder,
+                       AchievementMetric metric, AchievementComparator comparator, long threshold) {
+        this(code, name, description, icon, category, xpReward, sortOrder);
+        this.metric = metric;
+        this.comparator = comparator;
+        this.threshold = threshold;
+    }
 }
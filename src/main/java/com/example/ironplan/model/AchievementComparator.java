@@ -0,0 +1,18 @@
+package com.example.ironplan.model;
+
+/**
+ * Cómo se compara el contador con el umbral de la hazaña.
+ */
+public enum AchievementComparator {
+    GTE,
+    GT,
+    EQ;
+
+    public boolean test(long value, long threshold) {
+        return switch (this) {
+            case GTE -> value >= threshold;
+            case GT -> value > threshold;
+            case EQ -> value == threshold;
+        };
+    }
+}
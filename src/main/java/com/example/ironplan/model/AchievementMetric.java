@@ -0,0 +1,15 @@
+package com.example.ironplan.model;
+
+/**
+ * Contador del usuario contra el que se evalúa una hazaña.
+ * Todos salen de tablas que ya se mantienen de forma incremental
+ * (users, user_daily_training, user_training_streaks, routine_templates).
+ */
+public enum AchievementMetric {
+    COMPLETED_WORKOUTS,
+    LIFETIME_XP,
+    ROUTINES_CREATED,
+    CURRENT_STREAK,
+    LONGEST_STREAK,
+    TOTAL_VOLUME_KG
+}
@@ -0,0 +1,5 @@
+package com.example.ironplan.model;
+
+public enum OutboxEventType {
+    WORKOUT_COMPLETED   // sesión completada / finalizada / saltada: logros, XP, notificación, acumulados
+}
@@ -0,0 +1,8 @@
+package com.example.ironplan.model;
+
+public enum OutboxStatus {
+    PENDING,    // esperando al despachador (o a su próximo reintento)
+    PROCESSING, // reclamado por un worker hasta locked_until
+    DONE,
+    FAILED      // agotó los reintentos
+}
@@ -0,0 +1,81 @@
+package com.example.ironplan.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Acumulado diario de entrenamiento por usuario.
+ * Se mantiene incrementalmente al completar sesiones o guardar series,
+ * para que las vistas semanales no tengan que recorrer todas las series.
+ */
+@Entity
+@Table(
+        name = "user_daily_training",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "training_date"}),
+        indexes = {
+                @Index(name = "ix_udt_user_date", columnList = "user_id, training_date")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserDailyTraining {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Día (según completedAt de las sesiones)
+    @Column(name = "training_date", nullable = false)
+    private LocalDate trainingDate;
+
+    // ------ TOTALES DEL DÍA ------
+    @Column(name = "sessions_count", nullable = false)
+    private Integer sessionsCount = 0;
+
+    @Column(name = "sets_count", nullable = false)
+    private Integer setsCount = 0;
+
+    @Column(name = "volume_kg", nullable = false)
+    private Double volumeKg = 0.0;
+
+    @Column(name = "minutes", nullable = false)
+    private Integer minutes = 0;
+
+    // Ids de sesión separados por coma, en orden de completado ("12,15")
+    @Column(name = "session_ids", length = 500)
+    private String sessionIds;
+
+    // Títulos de las sesiones, mismo orden que sessionIds
+    @Column(name = "session_titles", length = 1000)
+    private String sessionTitles;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // --------- HELPERS ---------
+
+    public static final String TITLE_SEPARATOR = " · ";
+
+    /** Última sesión registrada en el día (la más reciente). */
+    public Long getLastSessionId() {
+        if (sessionIds == null || sessionIds.isBlank()) return null;
+        String[] ids = sessionIds.split(",");
+        return Long.valueOf(ids[ids.length - 1].trim());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.ironplan.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Última vez que un usuario hizo un ejercicio del catálogo ("serie anterior").
+ * Se actualiza al guardar series (rutina y personalizadas), así la pantalla
+ * de ejercicio lo lee por clave en vez de recorrer el historial.
+ */
+@Entity
+@Table(
+        name = "user_exercise_last_performance",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "exercise_id"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserExerciseLastPerformance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "exercise_id", nullable = false)
+    private Exercise exercise;
+
+    // De qué WorkoutExercise sale (para saber si una edición la invalida)
+    @Column(name = "workout_exercise_id", nullable = false)
+    private Long workoutExerciseId;
+
+    // Inicio de esa sesión: una edición de una sesión más antigua no la pisa
+    @Column(name = "session_started_at", nullable = false)
+    private LocalDateTime sessionStartedAt;
+
+    // ------ ÚLTIMA SERIE COMPLETADA ------
+    @Column(name = "set_number", nullable = false)
+    private Integer setNumber;
+
+    @Column(name = "reps")
+    private Integer reps;
+
+    @Column(name = "weight_kg")
+    private Double weightKg;
+
+    // Series completadas en esa sesión
+    @Column(name = "completed_sets", nullable = false)
+    private Integer completedSets = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
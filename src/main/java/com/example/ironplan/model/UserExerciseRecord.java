@@ -0,0 +1,92 @@
+package com.example.ironplan.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Récords personales (PRs) de un usuario en un ejercicio del catálogo.
+ * Se actualiza al guardar series, así leer un PR es una búsqueda por clave.
+ */
+@Entity
+@Table(
+        name = "user_exercise_records",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "exercise_id"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserExerciseRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "exercise_id", nullable = false)
+    private Exercise exercise;
+
+    // ------ SERIE MÁS PESADA ------
+    @Column(name = "heaviest_weight_kg")
+    private Double heaviestWeightKg;
+
+    @Column(name = "heaviest_reps")
+    private Integer heaviestReps;
+
+    @Column(name = "heaviest_at")
+    private LocalDateTime heaviestAt;
+
+    // WorkoutExercise de donde sale (para corregirlo si se edita esa serie)
+    @Column(name = "heaviest_workout_exercise_id")
+    private Long heaviestWorkoutExerciseId;
+
+    // ------ MEJOR 1RM ESTIMADO (Epley) ------
+    @Column(name = "best_e1rm_kg")
+    private Double bestE1rmKg;
+
+    @Column(name = "best_e1rm_weight_kg")
+    private Double bestE1rmWeightKg;
+
+    @Column(name = "best_e1rm_reps")
+    private Integer bestE1rmReps;
+
+    @Column(name = "best_e1rm_at")
+    private LocalDateTime bestE1rmAt;
+
+    @Column(name = "best_e1rm_workout_exercise_id")
+    private Long bestE1rmWorkoutExerciseId;
+
+    // ------ MEJOR VOLUMEN EN UNA SESIÓN ------
+    @Column(name = "best_volume_kg")
+    private Double bestVolumeKg;
+
+    // WorkoutExercise (ejercicio dentro de la sesión) que tiene el récord
+    @Column(name = "best_volume_workout_exercise_id")
+    private Long bestVolumeWorkoutExerciseId;
+
+    @Column(name = "best_volume_at")
+    private LocalDateTime bestVolumeAt;
+
+    // ------ PRIMERA / ÚLTIMA VEZ ------
+    @Column(name = "first_performed_at")
+    private LocalDateTime firstPerformedAt;
+
+    @Column(name = "last_performed_at")
+    private LocalDateTime lastPerformedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
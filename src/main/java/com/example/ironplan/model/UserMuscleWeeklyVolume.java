@@ -0,0 +1,59 @@
+package com.example.ironplan.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Series efectivas y volumen por grupo muscular, por usuario y semana.
+ * Se mantiene con deltas al guardar series; el músculo secundario suma una fracción.
+ */
+@Entity
+@Table(
+        name = "user_muscle_weekly_volume",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "week_start", "muscle"}),
+        indexes = {
+                @Index(name = "ix_umwv_user_week", columnList = "user_id, week_start")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserMuscleWeeklyVolume {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Lunes de la semana (según startedAt de la sesión)
+    @Column(name = "week_start", nullable = false)
+    private LocalDate weekStart;
+
+    // Clave normalizada del músculo (ver MuscleMapService)
+    @Column(name = "muscle", nullable = false, length = 80)
+    private String muscle;
+
+    // Series completadas (con crédito fraccional para secundarios)
+    @Column(name = "hard_sets", nullable = false)
+    private Double hardSets = 0.0;
+
+    @Column(name = "volume_kg", nullable = false)
+    private Double volumeKg = 0.0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.ironplan.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Racha de entrenamiento persistida por usuario.
+ *
+ * Se avanza al completar sesiones, así el resumen no tiene que recorrer
+ * todas las fechas de entrenamiento. El bitmap guarda un bit por día
+ * desde bitmapStart (1 = entrenó) y sirve para backfill y recálculos.
+ */
+@Entity
+@Table(
+        name = "user_training_streaks",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserTrainingStreak {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Racha que termina en lastTrainingDate (si ya pasó más de un día, la racha actual es 0)
+    @Column(name = "current_streak", nullable = false)
+    private Integer currentStreak = 0;
+
+    @Column(name = "longest_streak", nullable = false)
+    private Integer longestStreak = 0;
+
+    @Column(name = "last_training_date")
+    private LocalDate lastTrainingDate;
+
+    // Día que corresponde al bit 0 (normalmente el registro del usuario)
+    @Column(name = "bitmap_start", nullable = false)
+    private LocalDate bitmapStart;
+
+    // Un bit por día (BitSet little-endian); 4096 bytes ≈ 89 años
+    @Column(name = "day_bitmap", columnDefinition = "VARBINARY(4096)")
+    private byte[] dayBitmap;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -9,7 +9,13 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_xp_events")
+@Table(
+        name = "user_xp_events",
+        indexes = {
+                // Historial paginado por clave (createdAt, id) de cada usuario
+                @Index(name = "ix_uxe_user_created", columnList = "user_id, created_at, id")
+        }
+)
 @Getter
 @Setter
 @NoArgsConstructor
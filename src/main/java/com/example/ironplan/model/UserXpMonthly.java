@@ -0,0 +1,63 @@
+package com.example.ironplan.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * XP ganado y gastado por usuario, mes y tipo de evento.
+ * Se suma al confirmar cada lote de user_xp_events, así las gráficas y el
+ * contador del perfil no tienen que recorrer el historial.
+ */
+@Entity
+@Table(
+        name = "user_xp_monthly",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "month_start", "type"}),
+        indexes = {
+                @Index(name = "ix_uxm_user_month", columnList = "user_id, month_start")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserXpMonthly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Día 1 del mes (según createdAt del evento)
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private XpEventType type;
+
+    // ------ TOTALES DEL MES ------
+    @Column(name = "gained", nullable = false)
+    private Integer gained = 0;
+
+    @Column(name = "spent", nullable = false)
+    private Integer spent = 0;
+
+    @Column(name = "events", nullable = false)
+    private Integer events = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -93,6 +93,11 @@ public class WorkoutExercise {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bloqueo optimista (ver OptimisticRetryService)
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
     @PrePersist
     public void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -116,4 +121,12 @@ public class WorkoutExercise {
         this.status = WorkoutExerciseStatus.COMPLETED;
         this.finishedAt = LocalDateTime.now();
     }
+
+    /** Ejercicio de catálogo: el de la rutina o, en sesiones personalizadas, el propio. */
+    public Exercise resolveCatalogExercise() {
+        if (routineExercise != null && routineExercise.getExercise() != null) {
+            return routineExercise.getExercise();
+        }
+        return exercise;
+    }
 }
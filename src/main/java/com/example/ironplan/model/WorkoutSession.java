@@ -58,6 +58,10 @@ public class WorkoutSession {
     @Column(name = "xp_earned", nullable = false)
     private Integer xpEarned = 0;
 
+    // Última operación del diario offline ya aplicada (ver WorkoutSyncService)
+    @Column(name = "last_sync_seq")
+    private Long lastSyncSeq;
+
     // ------ TIMESTAMPS ------
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -65,6 +69,11 @@ public class WorkoutSession {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bloqueo optimista: dos escrituras concurrentes no se pisan (ver OptimisticRetryService)
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
     @PrePersist
     public void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -78,4 +87,49 @@ public class WorkoutSession {
     @OneToMany(mappedBy = "workoutSession")
     private List<WorkoutExercise> WorkoutExercises;
 
+    // ------ PROGRESO DERIVADO ------
+    // Mientras la sesión está activa, progreso y XP salen de los contadores
+    // (no se reescriben en cada serie). Al cerrarla se guardan los valores finales.
+
+    public Double getProgressPercentage() {
+        if (status == WorkoutSessionStatus.ACTIVE) {
+            return derivedProgress();
+        }
+        return progressPercentage;
+    }
+
+    public Integer getXpEarned() {
+        if (status == WorkoutSessionStatus.ACTIVE) {
+            return derivedXp(derivedProgress());
+        }
+        return xpEarned;
+    }
+
+    /**
+     * XP de la rutina al completar todos los ejercicios
+     */
+    public int fullXp() {
+        return derivedXp(100.0);
+    }
+
+    /**
+     * Guarda en columnas el progreso y la XP actuales. Llamar antes de cerrar la sesión.
+     */
+    public void freezeProgress() {
+        this.progressPercentage = getProgressPercentage();
+        this.xpEarned = getXpEarned();
+    }
+
+    private double derivedProgress() {
+        int total = totalExercises != null ? totalExercises : 0;
+        int completed = completedExercises != null ? completedExercises : 0;
+        return total > 0 ? Math.min(100.0, (completed * 100.0) / total) : 0.0;
+    }
+
+    private int derivedXp(double progress) {
+        if (routineDetail == null || routineDetail.getEstimatedXp() == null) {
+            return xpEarned != null ? xpEarned : 0;
+        }
+        return (int) Math.round(routineDetail.getEstimatedXp() * (progress / 100.0));
+    }
 }
@@ -12,9 +12,11 @@ import java.time.LocalDateTime;
 @Entity
 @Table(
         name = "workout_sets",
-        indexes = {
-                @Index(name = "ix_ws_exercise", columnList = "workout_exercise_id, set_number")
-        }
+        // Una fila por número de serie: clave del upsert en bloque (WorkoutSetRepositoryCustom)
+        uniqueConstraints = @UniqueConstraint(
+                name = "ux_ws_exercise_set",
+                columnNames = {"workout_exercise_id", "set_number"}
+        )
 )
 @Getter
 @Setter
@@ -0,0 +1,78 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Candidatos a procesar: pendientes ya vencidos o reclamados por un worker que no terminó
+    @Query("""
+        SELECT o.id FROM OutboxEvent o
+        WHERE (o.status = 'PENDING' AND o.nextAttemptAt <= :now)
+           OR (o.status = 'PROCESSING' AND o.lockedUntil < :now)
+        ORDER BY o.id ASC
+    """)
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Reclama un evento para un worker. Solo una instancia / hilo obtiene 1.
+     */
+    @Modifying
+    @Query("""
+        UPDATE OutboxEvent o
+        SET o.status = 'PROCESSING',
+            o.lockedUntil = :lockedUntil
+        WHERE o.id = :id
+          AND ((o.status = 'PENDING' AND o.nextAttemptAt <= :now)
+            OR (o.status = 'PROCESSING' AND o.lockedUntil < :now))
+    """)
+    int claim(
+            @Param("id") Long id,
+            @Param("now") LocalDateTime now,
+            @Param("lockedUntil") LocalDateTime lockedUntil
+    );
+
+    // Marca un paso como hecho (en la misma transacción que el propio paso)
+    @Modifying
+    @Query("""
+        UPDATE OutboxEvent o
+        SET o.completedSteps = o.completedSteps + :step
+        WHERE o.id = :id
+    """)
+    int markStepDone(@Param("id") Long id, @Param("step") int step);
+
+    @Modifying
+    @Query("""
+        UPDATE OutboxEvent o
+        SET o.status = 'DONE',
+            o.processedAt = :now,
+            o.lockedUntil = NULL,
+            o.lastError = NULL
+        WHERE o.id = :id
+    """)
+    int markDone(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE OutboxEvent o
+        SET o.status = CASE WHEN o.attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END,
+            o.attempts = o.attempts + 1,
+            o.nextAttemptAt = :nextAttemptAt,
+            o.lockedUntil = NULL,
+            o.lastError = :error
+        WHERE o.id = :id
+    """)
+    int markFailed(
+            @Param("id") Long id,
+            @Param("maxAttempts") int maxAttempts,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("error") String error
+    );
+}
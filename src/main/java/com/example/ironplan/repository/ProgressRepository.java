@@ -1,12 +1,20 @@
 package com.example.ironplan.repository;
 
 import com.example.ironplan.model.WorkoutSet;
+import jakarta.persistence.QueryHint;
+import com.example.ironplan.rest.dto.progress.TrainingLogRow;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio especializado para queries de progreso y estadísticas.
@@ -17,143 +25,288 @@ public interface ProgressRepository extends JpaRepository<WorkoutSet, Long> {
     // ============ VOLUMEN POR EJERCICIO ============
     
     /**
-     * Obtiene todas las series completadas de un ejercicio específico para un usuario,
-     * ordenadas por fecha descendente. Incluye info del ejercicio y sesión.
-     * Usa JOIN FETCH para evitar N+1.
+     * Página del historial de un ejercicio: WorkoutExercises con al menos una serie
+     * completada, del más reciente al más antiguo. Paginación por clave
+     * (completedAt, workoutExerciseId): sin cursor devuelve la primera página.
+     * El límite va en el Pageable (pedir limit + 1 para saber si hay más).
      */
     @Query("""
-        SELECT ws FROM WorkoutSet ws
-        JOIN FETCH ws.workoutExercise we
+        SELECT we FROM WorkoutExercise we
         JOIN FETCH we.workoutSession s
-        JOIN FETCH we.routineExercise re
-        JOIN FETCH re.exercise ex
+        LEFT JOIN FETCH s.routineDetail rd
+        LEFT JOIN we.routineExercise re
+        LEFT JOIN re.exercise rex
+        LEFT JOIN we.exercise cex
         WHERE s.user.id = :userId
-          AND ex.id = :exerciseId
-          AND ws.completed = true
+          AND COALESCE(rex.id, cex.id) = :exerciseId
           AND s.status = 'COMPLETED'
-        ORDER BY s.completedAt DESC, ws.setNumber ASC
+          AND s.completedAt IS NOT NULL
+          AND EXISTS (
+              SELECT 1 FROM WorkoutSet ws
+              WHERE ws.workoutExercise = we AND ws.completed = true
+          )
+          AND (:cursorAt IS NULL
+               OR s.completedAt < :cursorAt
+               OR (s.completedAt = :cursorAt AND we.id < :cursorId))
+        ORDER BY s.completedAt DESC, we.id DESC
     """)
-    List<WorkoutSet> findAllCompletedSetsForExercise(
+    List<com.example.ironplan.model.WorkoutExercise> findExerciseHistoryPage(
             @Param("userId") Long userId,
-            @Param("exerciseId") Long exerciseId
+            @Param("exerciseId") Long exerciseId,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
     );
 
     /**
-     * Obtiene los últimos N workout exercises de un ejercicio específico (para recomendación)
+     * Series completadas de una página de historial (una sola consulta para toda la página)
      */
     @Query("""
-        SELECT DISTINCT we FROM WorkoutExercise we
-        JOIN FETCH we.workoutSession s
-        JOIN FETCH we.routineExercise re
-        JOIN FETCH re.exercise ex
+        SELECT ws FROM WorkoutSet ws
+        WHERE ws.workoutExercise.id IN :workoutExerciseIds
+          AND ws.completed = true
+        ORDER BY ws.workoutExercise.id, ws.setNumber ASC
+    """)
+    List<WorkoutSet> findCompletedSetsForWorkoutExercises(
+            @Param("workoutExerciseIds") Collection<Long> workoutExerciseIds
+    );
+
+    /**
+     * Totales de por vida de un ejercicio (sesiones y volumen) agregados en MySQL
+     */
+    @Query("""
+        SELECT COUNT(DISTINCT we.id) AS sessions,
+               COALESCE(SUM(ws.weightKg * ws.reps), 0) AS volumeKg
+        FROM WorkoutSet ws
+        JOIN ws.workoutExercise we
+        JOIN we.workoutSession s
+        LEFT JOIN we.routineExercise re
+        LEFT JOIN re.exercise rex
+        LEFT JOIN we.exercise cex
         WHERE s.user.id = :userId
-          AND ex.id = :exerciseId
+          AND COALESCE(rex.id, cex.id) = :exerciseId
+          AND ws.completed = true
           AND s.status = 'COMPLETED'
-        ORDER BY s.completedAt DESC
     """)
-    List<com.example.ironplan.model.WorkoutExercise> findRecentWorkoutExercises(
+    ExerciseLifetimeTotalsView findExerciseLifetimeTotals(
             @Param("userId") Long userId,
             @Param("exerciseId") Long exerciseId
     );
 
-    // ============ VOLUMEN POR SEMANA ============
-    
+    interface ExerciseLifetimeTotalsView {
+        Long getSessions();
+        Double getVolumeKg();
+    }
+
+    /**
+     * Últimas N ejecuciones (con al menos una serie completada) de cada ejercicio
+     * pedido, en una sola consulta con ROW_NUMBER() por ejercicio. Resuelve el
+     * ejercicio de catálogo tanto en rutinas como en sesiones personalizadas.
+     */
+    @Query(value = """
+        SELECT t.exercise_id AS exerciseId,
+               t.workout_exercise_id AS workoutExerciseId,
+               t.performed_at AS performedAt
+        FROM (
+            SELECT COALESCE(re.exercise_id, we.exercise_id) AS exercise_id,
+                   we.id AS workout_exercise_id,
+                   COALESCE(s.completed_at, s.started_at) AS performed_at,
+                   ROW_NUMBER() OVER (
+                       PARTITION BY COALESCE(re.exercise_id, we.exercise_id)
+                       ORDER BY s.completed_at DESC, we.id DESC
+                   ) AS rn
+            FROM workout_exercises we
+            JOIN workout_sessions s ON s.id = we.workout_session_id
+            LEFT JOIN routine_exercises re ON re.id = we.routine_exercise_id
+            WHERE s.user_id = :userId
+              AND s.status = 'COMPLETED'
+              AND COALESCE(re.exercise_id, we.exercise_id) IN (:exerciseIds)
+              AND EXISTS (
+                  SELECT 1 FROM workout_sets ws
+                  WHERE ws.workout_exercise_id = we.id AND ws.completed = true
+              )
+        ) t
+        WHERE t.rn <= :perExercise
+        ORDER BY t.exercise_id, t.rn
+    """, nativeQuery = true)
+    List<RecentPerformanceRowView> findRecentPerformances(
+            @Param("userId") Long userId,
+            @Param("exerciseIds") Collection<Long> exerciseIds,
+            @Param("perExercise") int perExercise
+    );
+
+    interface RecentPerformanceRowView {
+        Long getExerciseId();
+        Long getWorkoutExerciseId();
+        LocalDateTime getPerformedAt();
+    }
+
+    // ============ AGREGADOS (PROYECCIONES) ============
+
     /**
-     * Obtiene todas las series completadas en un rango de fechas.
-     * Para calcular volumen semanal.
+     * Totales por sesión completada dentro de un rango (series y volumen),
+     * agrupados en MySQL. Una sola consulta cubre todo el rango pedido.
      */
     @Query("""
-        SELECT ws FROM WorkoutSet ws
-        JOIN FETCH ws.workoutExercise we
-        JOIN FETCH we.workoutSession s
+        SELECT s.id AS sessionId,
+               rd.title AS title,
+               s.startedAt AS startedAt,
+               s.completedAt AS completedAt,
+               COUNT(ws) AS sets,
+               COALESCE(SUM(ws.weightKg * ws.reps), 0) AS volumeKg
+        FROM WorkoutSet ws
+        JOIN ws.workoutExercise we
+        JOIN we.workoutSession s
+        LEFT JOIN s.routineDetail rd
         WHERE s.user.id = :userId
           AND ws.completed = true
           AND s.status = 'COMPLETED'
           AND s.completedAt >= :startDate
           AND s.completedAt < :endDate
+        GROUP BY s.id, rd.title, s.startedAt, s.completedAt
         ORDER BY s.completedAt ASC
     """)
-    List<WorkoutSet> findCompletedSetsInDateRange(
+    List<SessionTotalsView> findSessionTotalsInRange(
             @Param("userId") Long userId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate
     );
 
-    // ============ TOP SET GLOBAL ============
-    
+    interface SessionTotalsView {
+        Long getSessionId();
+        String getTitle();
+        LocalDateTime getStartedAt();
+        LocalDateTime getCompletedAt();
+        Long getSets();
+        Double getVolumeKg();
+    }
+
+    interface WorkoutTotalsView {
+        Long getWorkouts();
+        Long getMinutes();
+    }
+
+    interface ExerciseVolumeView {
+        Long getExerciseId();
+        String getExerciseName();
+        String getPrimaryMuscle();
+        Double getTopWeight();
+        Double getVolumeKg();
+    }
+
+    // ============ RÉCORDS PERSONALES ============
+
     /**
-     * Obtiene el top set (mayor peso) de un ejercicio para un usuario
+     * Series completadas de un usuario en formato plano (sin hidratar entidades),
+     * con el ejercicio de catálogo resuelto tanto para rutinas como para sesiones
+     * personalizadas. Se usa para reconstruir user_exercise_records, así que solo
+     * cuentan sesiones COMPLETED (ni activas ni descartadas).
      */
     @Query("""
-        SELECT ws FROM WorkoutSet ws
+        SELECT COALESCE(rex.id, cex.id) AS exerciseId,
+               we.id AS workoutExerciseId,
+               ws.createdAt AS performedAt,
+               ws.weightKg AS weightKg,
+               ws.reps AS reps
+        FROM WorkoutSet ws
         JOIN ws.workoutExercise we
         JOIN we.workoutSession s
-        JOIN we.routineExercise re
-        JOIN re.exercise ex
+        LEFT JOIN we.routineExercise re
+        LEFT JOIN re.exercise rex
+        LEFT JOIN we.exercise cex
         WHERE s.user.id = :userId
-          AND ex.id = :exerciseId
           AND ws.completed = true
-          AND ws.weightKg IS NOT NULL
           AND s.status = 'COMPLETED'
-        ORDER BY ws.weightKg DESC, ws.reps DESC
+          AND (:exerciseId IS NULL OR COALESCE(rex.id, cex.id) = :exerciseId)
+        ORDER BY ws.createdAt ASC
     """)
-    List<WorkoutSet> findTopSetForExercise(
+    List<SetRecordRowView> findCompletedSetRows(
             @Param("userId") Long userId,
             @Param("exerciseId") Long exerciseId
     );
 
-    // ============ CONTEO Y TOTALES ============
-    
-    /**
-     * Cuenta entrenamientos completados por usuario
-     */
-    @Query("""
-        SELECT COUNT(DISTINCT s) FROM WorkoutSession s
-        WHERE s.user.id = :userId
-          AND s.status = 'COMPLETED'
-    """)
-    long countCompletedWorkouts(@Param("userId") Long userId);
-
     /**
-     * Cuenta series completadas por usuario
+     * Las mismas filas, solo de una sesión completada (para incorporarla a los récords).
      */
     @Query("""
-        SELECT COUNT(ws) FROM WorkoutSet ws
+        SELECT COALESCE(rex.id, cex.id) AS exerciseId,
+               we.id AS workoutExerciseId,
+               ws.createdAt AS performedAt,
+               ws.weightKg AS weightKg,
+               ws.reps AS reps
+        FROM WorkoutSet ws
         JOIN ws.workoutExercise we
         JOIN we.workoutSession s
-        WHERE s.user.id = :userId
+        LEFT JOIN we.routineExercise re
+        LEFT JOIN re.exercise rex
+        LEFT JOIN we.exercise cex
+        WHERE s.id = :sessionId
           AND ws.completed = true
           AND s.status = 'COMPLETED'
+        ORDER BY ws.createdAt ASC
     """)
-    long countCompletedSets(@Param("userId") Long userId);
+    List<SetRecordRowView> findCompletedSetRowsForSession(@Param("sessionId") Long sessionId);
+
+    interface SetRecordRowView {
+        Long getExerciseId();
+        Long getWorkoutExerciseId();
+        LocalDateTime getPerformedAt();
+        Double getWeightKg();
+        Integer getReps();
+    }
+
+    // ============ ÚLTIMA SERIE ============
 
     /**
-     * Suma volumen total (peso * reps) por usuario
+     * Series completadas en orden cronológico (sesión, ejercicio, número de serie).
+     * La última fila de cada ejercicio es su "serie anterior". exerciseId null = todos.
      */
     @Query("""
-        SELECT COALESCE(SUM(ws.weightKg * ws.reps), 0) FROM WorkoutSet ws
+        SELECT COALESCE(rex.id, cex.id) AS exerciseId,
+               we.id AS workoutExerciseId,
+               s.startedAt AS sessionStartedAt,
+               ws.setNumber AS setNumber,
+               ws.reps AS reps,
+               ws.weightKg AS weightKg
+        FROM WorkoutSet ws
         JOIN ws.workoutExercise we
         JOIN we.workoutSession s
+        LEFT JOIN we.routineExercise re
+        LEFT JOIN re.exercise rex
+        LEFT JOIN we.exercise cex
         WHERE s.user.id = :userId
           AND ws.completed = true
-          AND ws.weightKg IS NOT NULL
-          AND ws.reps IS NOT NULL
-          AND s.status = 'COMPLETED'
+          AND s.status <> 'CANCELLED'
+          AND (:exerciseId IS NULL OR COALESCE(rex.id, cex.id) = :exerciseId)
+        ORDER BY s.startedAt ASC, we.id ASC, ws.setNumber ASC
     """)
-    Double sumTotalVolume(@Param("userId") Long userId);
+    List<LastSetRowView> findCompletedSetsInOrder(
+            @Param("userId") Long userId,
+            @Param("exerciseId") Long exerciseId
+    );
+
+    interface LastSetRowView {
+        Long getExerciseId();
+        Long getWorkoutExerciseId();
+        LocalDateTime getSessionStartedAt();
+        Integer getSetNumber();
+        Integer getReps();
+        Double getWeightKg();
+    }
+
+    // ============ CONTEO Y TOTALES ============
 
     /**
-     * Suma tiempo total de entrenamiento (minutos)
+     * Entrenamientos completados y minutos totales en una sola consulta
      */
     @Query("""
-        SELECT COALESCE(SUM(TIMESTAMPDIFF(MINUTE, s.startedAt, s.completedAt)), 0)
+        SELECT COUNT(s) AS workouts,
+               COALESCE(SUM(TIMESTAMPDIFF(MINUTE, s.startedAt, s.completedAt)), 0) AS minutes
         FROM WorkoutSession s
         WHERE s.user.id = :userId
           AND s.status = 'COMPLETED'
-          AND s.startedAt IS NOT NULL
-          AND s.completedAt IS NOT NULL
     """)
-    Long sumTotalMinutes(@Param("userId") Long userId);
+    WorkoutTotalsView findWorkoutTotals(@Param("userId") Long userId);
 
     // ============ FRECUENCIA Y STREAK ============
     
@@ -168,7 +321,7 @@ public interface ProgressRepository extends JpaRepository<WorkoutSet, Long> {
           AND s.completedAt IS NOT NULL
         ORDER BY CAST(s.completedAt AS LocalDate) DESC
     """)
-    List<java.time.LocalDate> findWorkoutDates(@Param("userId") Long userId);
+    List<LocalDate> findWorkoutDates(@Param("userId") Long userId);
 
     /**
      * Cuenta entrenamientos por semana en las últimas N semanas
@@ -193,9 +346,11 @@ public interface ProgressRepository extends JpaRepository<WorkoutSet, Long> {
      * Obtiene los ejercicios con más volumen total
      */
     @Query("""
-        SELECT ex.id, ex.name, ex.primaryMuscle,
-               MAX(ws.weightKg), 
-               SUM(ws.weightKg * ws.reps)
+        SELECT ex.id AS exerciseId,
+               ex.name AS exerciseName,
+               ex.primaryMuscle AS primaryMuscle,
+               MAX(ws.weightKg) AS topWeight,
+               SUM(ws.weightKg * ws.reps) AS volumeKg
         FROM WorkoutSet ws
         JOIN ws.workoutExercise we
         JOIN we.workoutSession s
@@ -209,5 +364,123 @@ public interface ProgressRepository extends JpaRepository<WorkoutSet, Long> {
         GROUP BY ex.id, ex.name, ex.primaryMuscle
         ORDER BY SUM(ws.weightKg * ws.reps) DESC
     """)
-    List<Object[]> findTopExercisesByVolume(@Param("userId") Long userId);
+    List<ExerciseVolumeView> findTopExercisesByVolume(@Param("userId") Long userId, Pageable pageable);
+
+    // ============ SERIES TEMPORALES ============
+
+    /**
+     * Series completadas de un ejercicio agrupadas por (día, peso, reps).
+     * Así el 1RM por día se calcula en Java con pocas filas y el volumen sale exacto.
+     */
+    @Query("""
+        SELECT CAST(s.completedAt AS LocalDate) AS day,
+               ws.weightKg AS weightKg,
+               ws.reps AS reps,
+               COUNT(ws) AS sets
+        FROM WorkoutSet ws
+        JOIN ws.workoutExercise we
+        JOIN we.workoutSession s
+        LEFT JOIN we.routineExercise re
+        LEFT JOIN re.exercise rex
+        LEFT JOIN we.exercise cex
+        WHERE s.user.id = :userId
+          AND COALESCE(rex.id, cex.id) = :exerciseId
+          AND ws.completed = true
+          AND s.status = 'COMPLETED'
+          AND s.completedAt >= :from
+        GROUP BY CAST(s.completedAt AS LocalDate), ws.weightKg, ws.reps
+        ORDER BY CAST(s.completedAt AS LocalDate) ASC
+    """)
+    List<DailySetGroupView> findDailySetGroups(
+            @Param("userId") Long userId,
+            @Param("exerciseId") Long exerciseId,
+            @Param("from") LocalDateTime from
+    );
+
+    interface DailySetGroupView {
+        LocalDate getDay();
+        Double getWeightKg();
+        Integer getReps();
+        Long getSets();
+    }
+
+    // ============ VOLUMEN POR MÚSCULO ============
+
+    /**
+     * Series completadas y volumen por ejercicio de catálogo y día de inicio de sesión.
+     * Se usa para reconstruir user_muscle_weekly_volume.
+     */
+    @Query("""
+        SELECT COALESCE(rex.id, cex.id) AS exerciseId,
+               CAST(s.startedAt AS LocalDate) AS day,
+               COUNT(ws) AS sets,
+               COALESCE(SUM(ws.weightKg * ws.reps), 0) AS volumeKg
+        FROM WorkoutSet ws
+        JOIN ws.workoutExercise we
+        JOIN we.workoutSession s
+        LEFT JOIN we.routineExercise re
+        LEFT JOIN re.exercise rex
+        LEFT JOIN we.exercise cex
+        WHERE s.user.id = :userId
+          AND ws.completed = true
+          AND s.status <> 'CANCELLED'
+        GROUP BY COALESCE(rex.id, cex.id), CAST(s.startedAt AS LocalDate)
+    """)
+    List<ExerciseDayTotalsView> findExerciseDayTotals(@Param("userId") Long userId);
+
+    interface ExerciseDayTotalsView {
+        Long getExerciseId();
+        LocalDate getDay();
+        Long getSets();
+        Double getVolumeKg();
+    }
+
+    /**
+     * Series completadas y volumen de cada ejercicio de una sesión
+     */
+    @Query("""
+        SELECT we.id AS workoutExerciseId,
+               COUNT(ws) AS sets,
+               COALESCE(SUM(ws.weightKg * ws.reps), 0) AS volumeKg
+        FROM WorkoutSet ws
+        JOIN ws.workoutExercise we
+        WHERE we.workoutSession.id = :sessionId
+          AND ws.completed = true
+        GROUP BY we.id
+    """)
+    List<WorkoutExerciseTotalsView> findCompletedTotalsBySession(@Param("sessionId") Long sessionId);
+
+    interface WorkoutExerciseTotalsView {
+        Long getWorkoutExerciseId();
+        Long getSets();
+        Double getVolumeKg();
+    }
+
+    // ============ EXPORTACIÓN ============
+
+    /**
+     * Registro completo de entrenamiento (sesión → ejercicio → serie) como stream.
+     * Fetch size Integer.MIN_VALUE: el driver de MySQL entrega fila a fila en vez
+     * de cargar todo el resultado en memoria. Requiere transacción abierta mientras se lee.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+        SELECT new com.example.ironplan.rest.dto.progress.TrainingLogRow(
+            s.id, rd.title, s.status, s.startedAt, s.completedAt,
+            we.id, we.exerciseOrder, we.exerciseName,
+            ws.setNumber, ws.reps, ws.weightKg, ws.completed
+        )
+        FROM WorkoutSet ws
+        JOIN ws.workoutExercise we
+        JOIN we.workoutSession s
+        LEFT JOIN s.routineDetail rd
+        WHERE s.user.id = :userId
+          AND s.status <> 'CANCELLED'
+        ORDER BY s.startedAt ASC, s.id ASC, we.exerciseOrder ASC, we.id ASC, ws.setNumber ASC
+    """)
+    Stream<TrainingLogRow> streamTrainingLog(@Param("userId") Long userId);
 }
@@ -3,6 +3,8 @@ package com.example.ironplan.repository;
 
 import com.example.ironplan.model.RoutineDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,4 +19,13 @@ public interface RoutineDetailRepository extends JpaRepository<RoutineDetail, Lo
 
     // Listar todas las sesiones de una rutina (a través del bloque)
     List<RoutineDetail> findByBlock_Routine_IdOrderByBlock_OrderIndexAscSessionOrderAsc(Long routineId);
+
+    // Sesión de rutina con sus ejercicios y el catálogo ya cargados
+    @Query("""
+        SELECT DISTINCT d FROM RoutineDetail d
+        LEFT JOIN FETCH d.exercises re
+        LEFT JOIN FETCH re.exercise
+        WHERE d.id = :id
+    """)
+    Optional<RoutineDetail> findWithExercisesById(@Param("id") Long id);
 }
@@ -0,0 +1,7 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.RoutineExercise;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RoutineExerciseRepository extends JpaRepository<RoutineExercise, Long> {
+}
@@ -0,0 +1,17 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.RoutineDetail;
+import com.example.ironplan.model.WorkoutExercise;
+import com.example.ironplan.model.WorkoutSession;
+import com.example.ironplan.model.WorkoutSet;
+
+/**
+ * Fila del detalle de sesión: una por serie (o por ejercicio sin series).
+ * routineDetail, exercise y set pueden venir a null por los LEFT JOIN.
+ */
+public record SessionDetailRow(
+        WorkoutSession session,
+        RoutineDetail routineDetail,
+        WorkoutExercise exercise,
+        WorkoutSet set
+) {}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -29,4 +30,17 @@ public interface UserAchievementRepository extends JpaRepository<UserAchievement
     // Obtener los códigos de hazañas desbloqueadas por un usuario
     @Query("SELECT ua.achievement.code FROM UserAchievement ua WHERE ua.user.id = :userId")
     Set<String> findUnlockedAchievementCodesByUserId(@Param("userId") Long userId);
+
+    // Ids y fechas de desbloqueo, sin cargar Achievement (el catálogo está en memoria)
+    @Query("""
+        SELECT ua.achievement.id AS achievementId, ua.unlockedAt AS unlockedAt
+        FROM UserAchievement ua
+        WHERE ua.user.id = :userId
+    """)
+    List<UnlockRowView> findUnlockRows(@Param("userId") Long userId);
+
+    interface UnlockRowView {
+        Long getAchievementId();
+        LocalDateTime getUnlockedAt();
+    }
 }
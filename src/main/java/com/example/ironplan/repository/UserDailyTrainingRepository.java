@@ -0,0 +1,43 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserDailyTraining;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserDailyTrainingRepository extends JpaRepository<UserDailyTraining, Long> {
+
+    Optional<UserDailyTraining> findByUser_IdAndTrainingDate(Long userId, LocalDate trainingDate);
+
+    // Un solo range scan sobre (user_id, training_date) para semanas / días
+    List<UserDailyTraining> findByUser_IdAndTrainingDateBetweenOrderByTrainingDateAsc(
+            Long userId,
+            LocalDate from,
+            LocalDate to
+    );
+
+    /**
+     * Totales acumulados del usuario (series y volumen)
+     */
+    @Query("""
+        SELECT COALESCE(SUM(d.setsCount), 0) AS sets,
+               COALESCE(SUM(d.volumeKg), 0) AS volumeKg
+        FROM UserDailyTraining d
+        WHERE d.user.id = :userId
+    """)
+    RollupTotalsView sumTotals(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM UserDailyTraining d WHERE d.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    interface RollupTotalsView {
+        Long getSets();
+        Double getVolumeKg();
+    }
+}
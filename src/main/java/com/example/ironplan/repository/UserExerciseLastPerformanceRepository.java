@@ -0,0 +1,18 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserExerciseLastPerformance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface UserExerciseLastPerformanceRepository extends JpaRepository<UserExerciseLastPerformance, Long> {
+
+    Optional<UserExerciseLastPerformance> findByUser_IdAndExercise_Id(Long userId, Long exerciseId);
+
+    @Modifying
+    @Query("DELETE FROM UserExerciseLastPerformance p WHERE p.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,23 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserExerciseRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserExerciseRecordRepository extends JpaRepository<UserExerciseRecord, Long> {
+
+    Optional<UserExerciseRecord> findByUser_IdAndExercise_Id(Long userId, Long exerciseId);
+
+    // Varios ejercicios de golpe (ej: top ejercicios del resumen)
+    List<UserExerciseRecord> findByUser_IdAndExercise_IdIn(Long userId, Collection<Long> exerciseIds);
+
+    @Modifying
+    @Query("DELETE FROM UserExerciseRecord r WHERE r.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,23 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserMuscleWeeklyVolume;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface UserMuscleWeeklyVolumeRepository extends JpaRepository<UserMuscleWeeklyVolume, Long>, UserMuscleWeeklyVolumeRepositoryCustom {
+
+    // Últimas N semanas (lectura del endpoint)
+    List<UserMuscleWeeklyVolume> findByUser_IdAndWeekStartGreaterThanEqualOrderByWeekStartAscHardSetsDesc(
+            Long userId,
+            LocalDate fromWeek
+    );
+
+    @Modifying
+    @Query("DELETE FROM UserMuscleWeeklyVolume v WHERE v.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+}
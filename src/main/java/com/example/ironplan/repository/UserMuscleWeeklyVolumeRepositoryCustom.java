@@ -0,0 +1,25 @@
+package com.example.ironplan.repository;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Suma atómica de deltas al volumen semanal por músculo.
+ */
+public interface UserMuscleWeeklyVolumeRepositoryCustom {
+
+    /**
+     * Suma deltaSets * factor y deltaVolumeKg * factor a la fila de cada músculo de la semana,
+     * creándola si no existe, con un upsert en batch.
+     *
+     * @param factors músculo -> crédito (1 primario, fracción secundario)
+     */
+    void addDelta(Long userId, LocalDate weekStart, Map<String, Double> factors, double deltaSets, double deltaVolumeKg);
+
+    /**
+     * Borra las filas de esos músculos que se quedaron a cero (por debajo de epsilon).
+     *
+     * @return filas borradas
+     */
+    int deleteEmpty(Long userId, LocalDate weekStart, Iterable<String> muscles, double epsilon);
+}
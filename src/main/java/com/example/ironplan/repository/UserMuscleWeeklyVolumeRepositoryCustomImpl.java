@@ -0,0 +1,83 @@
+package com.example.ironplan.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upsert del volumen semanal por músculo con JdbcTemplate.
+ *
+ * La suma va en la propia sentencia (INSERT ... ON DUPLICATE KEY UPDATE): dos guardados
+ * concurrentes de ejercicios que comparten músculo no se pisan, y el primero de la semana
+ * no choca con la clave única (user_id, week_start, muscle).
+ */
+class UserMuscleWeeklyVolumeRepositoryCustomImpl implements UserMuscleWeeklyVolumeRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO user_muscle_weekly_volume
+            (user_id, week_start, muscle, hard_sets, volume_kg, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?) AS new
+        ON DUPLICATE KEY UPDATE
+            hard_sets = user_muscle_weekly_volume.hard_sets + new.hard_sets,
+            volume_kg = user_muscle_weekly_volume.volume_kg + new.volume_kg,
+            updated_at = new.updated_at
+    """;
+
+    private static final String DELETE_EMPTY_SQL = """
+        DELETE FROM user_muscle_weekly_volume
+        WHERE user_id = ? AND week_start = ? AND muscle = ?
+          AND hard_sets < ? AND volume_kg < ?
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    UserMuscleWeeklyVolumeRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addDelta(Long userId, LocalDate weekStart, Map<String, Double> factors, double deltaSets, double deltaVolumeKg) {
+        if (factors.isEmpty()) return;
+
+        List<Map.Entry<String, Double>> rows = new ArrayList<>(factors.entrySet());
+        Date week = Date.valueOf(weekStart);
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, userId);
+            ps.setDate(2, week);
+            ps.setString(3, row.getKey());
+            ps.setDouble(4, deltaSets * row.getValue());
+            ps.setDouble(5, deltaVolumeKg * row.getValue());
+            ps.setTimestamp(6, updatedAt);
+        });
+    }
+
+    @Override
+    public int deleteEmpty(Long userId, LocalDate weekStart, Iterable<String> muscles, double epsilon) {
+        List<String> rows = new ArrayList<>();
+        muscles.forEach(rows::add);
+        if (rows.isEmpty()) return 0;
+
+        Date week = Date.valueOf(weekStart);
+        int[][] counts = jdbcTemplate.batchUpdate(DELETE_EMPTY_SQL, rows, rows.size(), (ps, muscle) -> {
+            ps.setLong(1, userId);
+            ps.setDate(2, week);
+            ps.setString(3, muscle);
+            ps.setDouble(4, epsilon);
+            ps.setDouble(5, epsilon);
+        });
+
+        int deleted = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) deleted += Math.max(c, 0);
+        }
+        return deleted;
+    }
+}
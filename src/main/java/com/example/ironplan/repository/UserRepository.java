@@ -1,7 +1,17 @@
 package com.example.ironplan.repository;
 import com.example.ironplan.model.User;
+import com.example.ironplan.model.XpRank;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
@@ -11,4 +21,119 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
 
     boolean existsByUsernameAndIdNot(String username, Long id);
+
+    // Solo ids, para procesos por lotes (rebuilds)
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIds();
+
+    // ============ XP ATÓMICO ============
+    // Sumas y restas en la propia sentencia: sin leer-modificar-escribir sobre la entidad
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE User u
+        SET u.xpPoints = u.xpPoints + :amount,
+            u.lifetimeXp = u.lifetimeXp + :amount
+        WHERE u.id = :userId
+    """)
+    int addXp(@Param("userId") Long userId, @Param("amount") int amount);
+
+    // 0 filas = saldo insuficiente (lifetimeXp no baja, así el rango tampoco)
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE User u
+        SET u.xpPoints = u.xpPoints - :amount
+        WHERE u.id = :userId
+          AND u.xpPoints >= :amount
+    """)
+    int spendXp(@Param("userId") Long userId, @Param("amount") int amount);
+
+    @Modifying
+    @Query("UPDATE User u SET u.xpRank = :rank WHERE u.id = :userId")
+    int updateXpRank(@Param("userId") Long userId, @Param("rank") XpRank rank);
+
+    // Saldo tras la actualización (la fila sigue bloqueada por nuestra transacción)
+    @Query("""
+        SELECT u.xpPoints AS xpPoints, u.lifetimeXp AS lifetimeXp, u.xpRank AS xpRank
+        FROM User u
+        WHERE u.id = :userId
+    """)
+    XpBalanceView findXpBalance(@Param("userId") Long userId);
+
+    interface XpBalanceView {
+        Integer getXpPoints();
+        Integer getLifetimeXp();
+        XpRank getXpRank();
+    }
+
+    // ============ CLASIFICACIÓN ============
+
+    /**
+     * Recorrido completo para construir la clasificación en memoria, fila a fila
+     * (fetch size Integer.MIN_VALUE en MySQL). Requiere transacción abierta mientras se lee.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT u.id AS id, u.username AS username, u.lifetimeXp AS lifetimeXp,
+               u.organizationCode AS organizationCode, u.organizationGroup AS organizationGroup
+        FROM User u
+    """)
+    Stream<LeaderboardRowView> streamLeaderboardRows();
+
+    @Query("""
+        SELECT u.id AS id, u.username AS username, u.lifetimeXp AS lifetimeXp,
+               u.organizationCode AS organizationCode, u.organizationGroup AS organizationGroup
+        FROM User u
+        WHERE u.id = :userId
+    """)
+    Optional<LeaderboardRowView> findLeaderboardRow(@Param("userId") Long userId);
+
+    // Usuarios y XP por organización/grupo: con esto se comprueba la copia en memoria
+    @Query("""
+        SELECT u.organizationCode AS organizationCode, u.organizationGroup AS organizationGroup,
+               COUNT(u) AS users, COALESCE(SUM(u.lifetimeXp), 0) AS xpSum
+        FROM User u
+        GROUP BY u.organizationCode, u.organizationGroup
+    """)
+    List<LeaderboardChecksumView> findLeaderboardChecksums();
+
+    interface LeaderboardRowView {
+        Long getId();
+        String getUsername();
+        Integer getLifetimeXp();
+        String getOrganizationCode();
+        String getOrganizationGroup();
+    }
+
+    interface LeaderboardChecksumView {
+        String getOrganizationCode();
+        String getOrganizationGroup();
+        Long getUsers();
+        Long getXpSum();
+    }
+
+    // Contadores para las hazañas en una sola consulta (todos mantenidos de forma incremental)
+    @Query("""
+        SELECT u.lifetimeXp AS lifetimeXp,
+               (SELECT COALESCE(SUM(d.sessionsCount), 0) FROM UserDailyTraining d WHERE d.user = u) AS completedWorkouts,
+               (SELECT COALESCE(SUM(d.volumeKg), 0) FROM UserDailyTraining d WHERE d.user = u) AS totalVolumeKg,
+               (SELECT COUNT(rt) FROM RoutineTemplate rt WHERE rt.user = u) AS routinesCreated,
+               (SELECT st.currentStreak FROM UserTrainingStreak st WHERE st.user = u) AS currentStreak,
+               (SELECT st.longestStreak FROM UserTrainingStreak st WHERE st.user = u) AS longestStreak
+        FROM User u
+        WHERE u.id = :userId
+    """)
+    Optional<AchievementCountersView> findAchievementCounters(@Param("userId") Long userId);
+
+    interface AchievementCountersView {
+        Integer getLifetimeXp();
+        Long getCompletedWorkouts();
+        Double getTotalVolumeKg();
+        Long getRoutinesCreated();
+        Integer getCurrentStreak();
+        Integer getLongestStreak();
+    }
 }
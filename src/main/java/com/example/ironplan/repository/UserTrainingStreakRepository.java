@@ -0,0 +1,18 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserTrainingStreak;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface UserTrainingStreakRepository extends JpaRepository<UserTrainingStreak, Long> {
+
+    Optional<UserTrainingStreak> findByUser_Id(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM UserTrainingStreak s WHERE s.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+}
@@ -2,8 +2,70 @@
 package com.example.ironplan.repository;
 
 import com.example.ironplan.model.UserXpEvent;
+import com.example.ironplan.model.XpEventType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface UserXpEventRepository extends JpaRepository<UserXpEvent, Long> {
-    long countByUser_Id(Long userId);
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserXpEventRepository extends JpaRepository<UserXpEvent, Long>, UserXpEventRepositoryCustom {
+
+    /**
+     * Página del historial de XP, del más reciente al más antiguo. Paginación por clave
+     * (createdAt, id) sobre ix_uxe_user_created: sin cursor devuelve la primera página.
+     * El límite va en el Pageable (pedir limit + 1 para saber si hay más).
+     */
+    @Query("""
+        SELECT e.id AS id, e.xpDelta AS xpDelta, e.type AS type, e.description AS description,
+               e.createdAt AS createdAt, rt.id AS routineTemplateId, rt.name AS routineName
+        FROM UserXpEvent e
+        LEFT JOIN e.routineTemplate rt
+        WHERE e.user.id = :userId
+          AND (:cursorAt IS NULL
+               OR e.createdAt < :cursorAt
+               OR (e.createdAt = :cursorAt AND e.id < :cursorId))
+        ORDER BY e.createdAt DESC, e.id DESC
+    """)
+    List<XpHistoryRowView> findHistoryPage(
+            @Param("userId") Long userId,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    /**
+     * Acumulado mensual de un usuario calculado desde el historial (solo para reconstruir user_xp_monthly)
+     */
+    @Query("""
+        SELECT YEAR(e.createdAt) AS year, MONTH(e.createdAt) AS month, e.type AS type,
+               SUM(CASE WHEN e.xpDelta > 0 THEN e.xpDelta ELSE 0 END) AS gained,
+               SUM(CASE WHEN e.xpDelta < 0 THEN -e.xpDelta ELSE 0 END) AS spent,
+               COUNT(e) AS events
+        FROM UserXpEvent e
+        WHERE e.user.id = :userId
+        GROUP BY YEAR(e.createdAt), MONTH(e.createdAt), e.type
+    """)
+    List<MonthlyTotalsView> findMonthlyTotals(@Param("userId") Long userId);
+
+    interface XpHistoryRowView {
+        Long getId();
+        Integer getXpDelta();
+        XpEventType getType();
+        String getDescription();
+        LocalDateTime getCreatedAt();
+        Long getRoutineTemplateId();
+        String getRoutineName();
+    }
+
+    interface MonthlyTotalsView {
+        Integer getYear();
+        Integer getMonth();
+        XpEventType getType();
+        Long getGained();
+        Long getSpent();
+        Long getEvents();
+    }
 }
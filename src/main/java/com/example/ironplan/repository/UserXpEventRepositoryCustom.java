@@ -0,0 +1,19 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserXpEvent;
+
+import java.util.List;
+
+/**
+ * Escrituras en bloque del historial de XP que no pasan por el ciclo de vida de JPA.
+ */
+public interface UserXpEventRepositoryCustom {
+
+    /**
+     * Añade los eventos al historial en un solo batch.
+     * Las entidades solo se usan como datos de entrada: no quedan gestionadas ni reciben id.
+     *
+     * @return número de eventos enviados
+     */
+    int appendAll(List<UserXpEvent> events);
+}
@@ -0,0 +1,52 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserXpEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserción del historial de XP con JdbcTemplate.
+ *
+ * UserXpEvent usa IDENTITY, así que save hace un INSERT por evento.
+ * Aquí va un único batch; con rewriteBatchedStatements=true el driver lo convierte en un INSERT multi-fila.
+ */
+class UserXpEventRepositoryCustomImpl implements UserXpEventRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO user_xp_events
+            (user_id, xp_delta, type, description, routine_template_id, created_at)
+        VALUES (?, ?, ?, ?, ?, ?)
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    UserXpEventRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int appendAll(List<UserXpEvent> events) {
+        if (events.isEmpty()) return 0;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, e) -> {
+            ps.setLong(1, e.getUser().getId());
+            ps.setInt(2, e.getXpDelta());
+            ps.setString(3, e.getType().name());
+            ps.setString(4, e.getDescription());
+            if (e.getRoutineTemplate() != null) {
+                ps.setLong(5, e.getRoutineTemplate().getId());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+            ps.setTimestamp(6, e.getCreatedAt() != null ? Timestamp.valueOf(e.getCreatedAt()) : now);
+        });
+
+        return events.size();
+    }
+}
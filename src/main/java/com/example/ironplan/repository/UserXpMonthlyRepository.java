@@ -0,0 +1,27 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserXpMonthly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface UserXpMonthlyRepository extends JpaRepository<UserXpMonthly, Long>, UserXpMonthlyRepositoryCustom {
+
+    // Un solo range scan sobre (user_id, month_start) para las gráficas
+    List<UserXpMonthly> findByUser_IdAndMonthStartGreaterThanEqualOrderByMonthStartAsc(
+            Long userId,
+            LocalDate from
+    );
+
+    // Total de acciones de XP del usuario (contador del perfil) sin contar user_xp_events
+    @Query("SELECT COALESCE(SUM(m.events), 0) FROM UserXpMonthly m WHERE m.user.id = :userId")
+    long sumEvents(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM UserXpMonthly m WHERE m.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+}
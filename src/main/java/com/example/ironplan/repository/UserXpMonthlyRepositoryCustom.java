@@ -0,0 +1,18 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserXpEvent;
+
+import java.util.List;
+
+/**
+ * Suma atómica de eventos de XP al acumulado mensual.
+ */
+public interface UserXpMonthlyRepositoryCustom {
+
+    /**
+     * Agrupa los eventos por (usuario, mes, tipo) y los suma a su fila con un upsert en batch.
+     *
+     * @return filas (usuario, mes, tipo) enviadas
+     */
+    int addEvents(List<UserXpEvent> events);
+}
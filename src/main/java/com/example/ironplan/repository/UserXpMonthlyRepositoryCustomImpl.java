@@ -0,0 +1,74 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.UserXpEvent;
+import com.example.ironplan.model.XpEventType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upsert del acumulado mensual con JdbcTemplate.
+ *
+ * INSERT ... ON DUPLICATE KEY UPDATE suma en la propia sentencia: dos transacciones que
+ * otorgan XP al mismo usuario a la vez no se pisan (y no hace falta leer la fila antes).
+ */
+class UserXpMonthlyRepositoryCustomImpl implements UserXpMonthlyRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO user_xp_monthly
+            (user_id, month_start, type, gained, spent, events, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?) AS new
+        ON DUPLICATE KEY UPDATE
+            gained = user_xp_monthly.gained + new.gained,
+            spent = user_xp_monthly.spent + new.spent,
+            events = user_xp_monthly.events + new.events,
+            updated_at = new.updated_at
+    """;
+
+    private record Key(Long userId, LocalDate monthStart, XpEventType type) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    UserXpMonthlyRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int addEvents(List<UserXpEvent> events) {
+        if (events.isEmpty()) return 0;
+
+        LocalDateTime now = LocalDateTime.now();
+
+        // gained, spent, events por fila
+        Map<Key, int[]> totals = new LinkedHashMap<>();
+        for (UserXpEvent e : events) {
+            LocalDateTime at = e.getCreatedAt() != null ? e.getCreatedAt() : now;
+            Key key = new Key(e.getUser().getId(), at.toLocalDate().withDayOfMonth(1), e.getType());
+            int[] t = totals.computeIfAbsent(key, k -> new int[3]);
+            if (e.getXpDelta() >= 0) t[0] += e.getXpDelta(); else t[1] -= e.getXpDelta();
+            t[2]++;
+        }
+
+        List<Map.Entry<Key, int[]>> rows = new ArrayList<>(totals.entrySet());
+        Timestamp updatedAt = Timestamp.valueOf(now);
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getKey().userId());
+            ps.setDate(2, Date.valueOf(row.getKey().monthStart()));
+            ps.setString(3, row.getKey().type().name());
+            ps.setInt(4, row.getValue()[0]);
+            ps.setInt(5, row.getValue()[1]);
+            ps.setInt(6, row.getValue()[2]);
+            ps.setTimestamp(7, updatedAt);
+        });
+
+        return rows.size();
+    }
+}
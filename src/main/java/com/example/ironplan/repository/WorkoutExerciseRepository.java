@@ -4,11 +4,15 @@ package com.example.ironplan.repository;
 import com.example.ironplan.model.WorkoutExercise;
 import com.example.ironplan.model.WorkoutExerciseStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
-public interface WorkoutExerciseRepository extends JpaRepository<WorkoutExercise, Long> {
+public interface WorkoutExerciseRepository extends JpaRepository<WorkoutExercise, Long>, WorkoutExerciseRepositoryCustom {
 
     // Todos los ejercicios de una sesión, en orden
     List<WorkoutExercise> findByWorkoutSession_IdOrderByExerciseOrderAsc(Long workoutSessionId);
@@ -24,4 +28,62 @@ public interface WorkoutExerciseRepository extends JpaRepository<WorkoutExercise
             Long workoutSessionId,
             WorkoutExerciseStatus status
     );
+
+    /**
+     * Pantalla de ejercicio: todos los ejercicios de la sesión con la sesión, su rutina
+     * y el ejercicio de catálogo ya cargados (una sola consulta, sin lazy loads en el mapper).
+     * Vacío si la sesión no existe o no es del usuario.
+     */
+    @Query("""
+        SELECT we
+        FROM WorkoutExercise we
+        JOIN FETCH we.workoutSession s
+        LEFT JOIN FETCH s.routineDetail
+        LEFT JOIN FETCH we.routineExercise re
+        LEFT JOIN FETCH re.exercise
+        LEFT JOIN FETCH we.exercise
+        WHERE s.id = :sessionId
+          AND s.user.id = :userId
+        ORDER BY we.exerciseOrder ASC
+    """)
+    List<WorkoutExercise> findScreenExercises(
+            @Param("sessionId") Long sessionId,
+            @Param("userId") Long userId
+    );
+
+    /**
+     * Pasa el ejercicio a COMPLETED solo si aún no lo estaba.
+     * Devuelve 1 a quien hizo la transición y 0 al resto (peticiones concurrentes).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE WorkoutExercise we
+        SET we.status = 'COMPLETED',
+            we.completedSets = :completedSets,
+            we.finishedAt = :now,
+            we.version = we.version + 1
+        WHERE we.id = :id
+          AND we.status <> 'COMPLETED'
+    """)
+    int markCompletedIfNot(
+            @Param("id") Long id,
+            @Param("completedSets") Integer completedSets,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Series completadas de un ejercicio que ya estaba COMPLETED (añade o marca más series
+     * después de la transición).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE WorkoutExercise we
+        SET we.completedSets = :completedSets,
+            we.version = we.version + 1
+        WHERE we.id = :id
+    """)
+    int updateCompletedSets(
+            @Param("id") Long id,
+            @Param("completedSets") Integer completedSets
+    );
 }
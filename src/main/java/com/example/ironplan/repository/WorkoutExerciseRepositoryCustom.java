@@ -0,0 +1,19 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.WorkoutExercise;
+
+import java.util.List;
+
+/**
+ * Escrituras en bloque de ejercicios de sesión que no pasan por el ciclo de vida de JPA.
+ */
+public interface WorkoutExerciseRepositoryCustom {
+
+    /**
+     * Inserta los ejercicios planificados de una sesión recién creada en un solo batch.
+     * Las entidades solo se usan como datos de entrada: no quedan gestionadas ni reciben id.
+     *
+     * @return número de ejercicios enviados
+     */
+    int insertPlanned(Long workoutSessionId, List<WorkoutExercise> exercises);
+}
@@ -0,0 +1,67 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.WorkoutExercise;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserción de los ejercicios de una sesión con JdbcTemplate.
+ *
+ * WorkoutExercise usa IDENTITY, así que saveAll hace un INSERT por fila.
+ * Aquí va un único batch; con rewriteBatchedStatements=true el driver lo convierte en un INSERT multi-fila.
+ */
+class WorkoutExerciseRepositoryCustomImpl implements WorkoutExerciseRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO workout_exercises
+            (workout_session_id, routine_exercise_id, exercise_id, exercise_name, exercise_order,
+             planned_sets, planned_reps_min, planned_reps_max, planned_rir, planned_rest_seconds,
+             status, completed_sets, created_at, version)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    WorkoutExerciseRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int insertPlanned(Long workoutSessionId, List<WorkoutExercise> exercises) {
+        if (exercises.isEmpty()) return 0;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, exercises, exercises.size(), (ps, we) -> {
+            ps.setLong(1, workoutSessionId);
+            setId(ps, 2, we.getRoutineExercise() != null ? we.getRoutineExercise().getId() : null);
+            setId(ps, 3, we.getExercise() != null ? we.getExercise().getId() : null);
+            ps.setString(4, we.getExerciseName());
+            ps.setInt(5, we.getExerciseOrder());
+            ps.setInt(6, we.getPlannedSets());
+            ps.setInt(7, we.getPlannedRepsMin());
+            ps.setInt(8, we.getPlannedRepsMax());
+            setInt(ps, 9, we.getPlannedRir());
+            setInt(ps, 10, we.getPlannedRestSeconds());
+            ps.setString(11, we.getStatus().name());
+            ps.setInt(12, we.getCompletedSets());
+            ps.setTimestamp(13, now);
+        });
+
+        return exercises.size();
+    }
+
+    private static void setId(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) ps.setLong(index, value); else ps.setNull(index, Types.BIGINT);
+    }
+
+    private static void setInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) ps.setInt(index, value); else ps.setNull(index, Types.INTEGER);
+    }
+}
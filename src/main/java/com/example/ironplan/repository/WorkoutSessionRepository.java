@@ -5,6 +5,11 @@ import com.example.ironplan.model.WorkoutSession;
 import com.example.ironplan.model.WorkoutSessionStatus;
 import com.example.ironplan.rest.dto.RecentWorkoutDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 
 import java.util.List;
 import java.util.Optional;
@@ -42,4 +47,109 @@ public interface WorkoutSessionRepository extends JpaRepository<WorkoutSession,
     );
 
     List<WorkoutSession> findByUser_IdAndStatusOrderByCompletedAtDesc(Long userId, WorkoutSessionStatus status);
+
+    // Usuarios con al menos una sesión completada (para backfills)
+    @Query("SELECT DISTINCT s.user.id FROM WorkoutSession s WHERE s.status = 'COMPLETED'")
+    List<Long> findUserIdsWithCompletedSessions();
+
+    // ============ DETALLE ============
+
+    // Sesión, rutina, ejercicios y series en una sola consulta (ordenadas para agrupar en memoria)
+    @Query("""
+        SELECT new com.example.ironplan.repository.SessionDetailRow(s, rd, we, ws)
+        FROM WorkoutSession s
+        LEFT JOIN s.routineDetail rd
+        LEFT JOIN WorkoutExercise we ON we.workoutSession = s
+        LEFT JOIN WorkoutSet ws ON ws.workoutExercise = we
+        WHERE s.id = :sessionId
+          AND s.user.id = :userId
+        ORDER BY we.exerciseOrder ASC, we.id ASC, ws.setNumber ASC
+    """)
+    List<SessionDetailRow> findDetailRows(
+            @Param("sessionId") Long sessionId,
+            @Param("userId") Long userId
+    );
+
+    // Lo justo para calcular el ETag del detalle sin cargar nada más
+    @Query("""
+        SELECT s.status AS status, s.version AS version, s.updatedAt AS updatedAt
+        FROM WorkoutSession s
+        WHERE s.id = :sessionId
+          AND s.user.id = :userId
+    """)
+    Optional<DetailVersionView> findDetailVersion(
+            @Param("sessionId") Long sessionId,
+            @Param("userId") Long userId
+    );
+
+    interface DetailVersionView {
+        WorkoutSessionStatus getStatus();
+        Long getVersion();
+        LocalDateTime getUpdatedAt();
+    }
+
+    // Marca la sesión como modificada (edición tardía de series) para invalidar su ETag
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE WorkoutSession s
+        SET s.updatedAt = :now,
+            s.version = s.version + 1
+        WHERE s.id = :sessionId
+    """)
+    int touch(@Param("sessionId") Long sessionId, @Param("now") LocalDateTime now);
+
+    // ============ PROGRESO ATÓMICO ============
+    // Suben la versión para que una escritura optimista concurrente detecte el cambio.
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE WorkoutSession s
+        SET s.completedExercises = s.completedExercises + 1,
+            s.updatedAt = :now,
+            s.version = s.version + 1
+        WHERE s.id = :id
+    """)
+    int incrementCompletedExercises(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * ACTIVE -> COMPLETED cuando ya están todos los ejercicios.
+     * Solo una transacción obtiene 1: es la que debe dar la XP.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE WorkoutSession s
+        SET s.status = 'COMPLETED',
+            s.completedAt = :now,
+            s.updatedAt = :now,
+            s.progressPercentage = 100.0,
+            s.xpEarned = :xpEarned,
+            s.version = s.version + 1
+        WHERE s.id = :id
+          AND s.status = 'ACTIVE'
+          AND s.totalExercises > 0
+          AND s.completedExercises >= s.totalExercises
+    """)
+    int completeIfAllExercisesDone(
+            @Param("id") Long id,
+            @Param("xpEarned") Integer xpEarned,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Avanza el cursor del diario offline si nadie lo movió desde que se leyó.
+     * 0 filas = otra sincronización de la misma sesión se adelantó.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE WorkoutSession s
+        SET s.lastSyncSeq = :seq,
+            s.version = s.version + 1
+        WHERE s.id = :id
+          AND COALESCE(s.lastSyncSeq, 0) = :expected
+    """)
+    int advanceSyncSeq(
+            @Param("id") Long id,
+            @Param("expected") Long expected,
+            @Param("seq") Long seq
+    );
 }
@@ -6,11 +6,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import org.springframework.data.domain.Pageable;
 import java.util.List;
 import java.util.Optional;
 
-public interface WorkoutSetRepository extends JpaRepository<WorkoutSet, Long> {
+public interface WorkoutSetRepository extends JpaRepository<WorkoutSet, Long>, WorkoutSetRepositoryCustom {
 
 
 
@@ -23,6 +22,14 @@ public interface WorkoutSetRepository extends JpaRepository<WorkoutSet, Long> {
     );
 
 
+    // Todas las series de una sesión (estado reconciliado tras sincronizar)
+    @Query("""
+        SELECT ws FROM WorkoutSet ws
+        WHERE ws.workoutExercise.workoutSession.id = :sessionId
+        ORDER BY ws.setNumber ASC
+    """)
+    List<WorkoutSet> findBySessionId(@Param("sessionId") Long sessionId);
+
     // Si algún día quieres resetear un ejercicio
     void deleteByWorkoutExercise_Id(Long workoutExerciseId);
     
@@ -33,24 +40,6 @@ public interface WorkoutSetRepository extends JpaRepository<WorkoutSet, Long> {
     long countByWorkoutExercise_IdAndCompletedTrue(Long workoutExerciseId);
 
 
-    @Query("""
-    SELECT ws
-    FROM WorkoutSet ws
-    JOIN ws.workoutExercise we
-    JOIN we.workoutSession s
-    JOIN we.routineExercise re
-    JOIN re.exercise ex
-    WHERE s.user.id = :userId
-      AND ex.id = :exerciseId
-      AND ws.completed = true
-    ORDER BY ws.createdAt DESC
-""")
-    List<WorkoutSet> findLastCompletedSetForUserAndExercise(
-            @Param("userId") Long userId,
-            @Param("exerciseId") Long exerciseId,
-            Pageable pageable
-    );
-
 
 
 }
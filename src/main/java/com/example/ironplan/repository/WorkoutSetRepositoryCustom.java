@@ -0,0 +1,19 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.WorkoutSet;
+
+import java.util.Collection;
+
+/**
+ * Escrituras en bloque de series que no pasan por el ciclo de vida de JPA.
+ */
+public interface WorkoutSetRepositoryCustom {
+
+    /**
+     * Inserta o actualiza las series de un ejercicio en un solo batch,
+     * usando la clave única (workout_exercise_id, set_number).
+     *
+     * @return número de series enviadas
+     */
+    int upsertSets(Long workoutExerciseId, Collection<WorkoutSet> sets);
+}
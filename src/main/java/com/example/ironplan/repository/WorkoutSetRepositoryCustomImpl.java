@@ -0,0 +1,57 @@
+package com.example.ironplan.repository;
+
+import com.example.ironplan.model.WorkoutSet;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Upsert de series con JdbcTemplate.
+ *
+ * WorkoutSet usa IDENTITY, así que Hibernate no puede agrupar los INSERT.
+ * Aquí se manda un único batch de INSERT ... ON DUPLICATE KEY UPDATE;
+ * con rewriteBatchedStatements=true el driver lo convierte en un INSERT multi-fila.
+ * Depende de la clave única ux_ws_exercise_set (la comprueba UpsertKeyVerifier al arrancar).
+ */
+class WorkoutSetRepositoryCustomImpl implements WorkoutSetRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO workout_sets
+            (workout_exercise_id, set_number, reps, weight_kg, completed, created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, NULL) AS new
+        ON DUPLICATE KEY UPDATE
+            reps = new.reps,
+            weight_kg = new.weight_kg,
+            completed = new.completed,
+            updated_at = new.created_at
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    WorkoutSetRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int upsertSets(Long workoutExerciseId, Collection<WorkoutSet> sets) {
+        if (sets.isEmpty()) return 0;
+
+        List<WorkoutSet> rows = List.copyOf(sets);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, set) -> {
+            ps.setLong(1, workoutExerciseId);
+            ps.setInt(2, set.getSetNumber());
+            if (set.getReps() != null) ps.setInt(3, set.getReps()); else ps.setNull(3, Types.INTEGER);
+            if (set.getWeightKg() != null) ps.setDouble(4, set.getWeightKg()); else ps.setNull(4, Types.DOUBLE);
+            ps.setBoolean(5, set.isCompleted());
+            ps.setTimestamp(6, now);
+        });
+
+        return rows.size();
+    }
+}
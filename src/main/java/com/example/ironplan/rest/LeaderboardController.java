@@ -0,0 +1,44 @@
+package com.example.ironplan.rest;
+
+import com.example.ironplan.model.User;
+import com.example.ironplan.rest.dto.LeaderboardResponse;
+import com.example.ironplan.service.LeaderboardService;
+import com.example.ironplan.service.LeaderboardService.Scope;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    public LeaderboardController(LeaderboardService leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    /**
+     * Los primeros de la clasificación (global, de mi organización o de mi grupo)
+     */
+    @GetMapping
+    public ResponseEntity<LeaderboardResponse> getTop(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "GLOBAL") Scope scope,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(leaderboardService.top(user.getId(), scope, limit));
+    }
+
+    /**
+     * Mi puesto y los usuarios justo por encima y por debajo
+     */
+    @GetMapping("/me")
+    public ResponseEntity<LeaderboardResponse> getMyPosition(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "GLOBAL") Scope scope,
+            @RequestParam(defaultValue = "5") int radius
+    ) {
+        return ResponseEntity.ok(leaderboardService.around(user.getId(), scope, radius));
+    }
+}
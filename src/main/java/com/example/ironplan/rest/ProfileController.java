@@ -3,6 +3,7 @@ package com.example.ironplan.rest;
 import com.example.ironplan.model.User;
 import com.example.ironplan.rest.dto.*;
 import com.example.ironplan.service.ProfileService;
+import com.example.ironplan.service.XpHistoryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -14,9 +15,11 @@ import java.util.List;
 public class ProfileController {
 
     private final ProfileService profileService;
+    private final XpHistoryService xpHistoryService;
 
-    public ProfileController(ProfileService profileService) {
+    public ProfileController(ProfileService profileService, XpHistoryService xpHistoryService) {
         this.profileService = profileService;
+        this.xpHistoryService = xpHistoryService;
     }
 
     @GetMapping("/me")
@@ -104,4 +107,29 @@ public class ProfileController {
         return ResponseEntity.ok(profileService.getWorkoutHistory(currentUser));
     }
 
+    // -------- HISTORIAL DE XP --------
+
+    /**
+     * Historial de XP paginado por cursor (del más reciente al más antiguo)
+     */
+    @GetMapping("/xp/history")
+    public ResponseEntity<XpHistoryPageResponse> getXpHistory(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(xpHistoryService.getHistory(user.getId(), cursor, limit));
+    }
+
+    /**
+     * XP ganado y gastado por mes (últimos N meses), para las gráficas del perfil
+     */
+    @GetMapping("/xp/monthly")
+    public ResponseEntity<List<XpMonthDto>> getXpMonthly(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "12") int months
+    ) {
+        return ResponseEntity.ok(xpHistoryService.getMonthly(user.getId(), months));
+    }
+
 }
@@ -2,11 +2,22 @@ package com.example.ironplan.rest;
 
 import com.example.ironplan.model.User;
 import com.example.ironplan.rest.dto.progress.*;
+import com.example.ironplan.service.MuscleVolumeService;
+import com.example.ironplan.service.ProgressCacheService;
+import com.example.ironplan.service.ProgressSeriesService;
 import com.example.ironplan.service.ProgressService;
+import com.example.ironplan.service.TrainingLogExportService;
+import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -14,9 +25,23 @@ import java.util.List;
 public class ProgressController {
 
     private final ProgressService progressService;
+    private final ProgressCacheService progressCache;
+    private final TrainingLogExportService exportService;
+    private final ProgressSeriesService seriesService;
+    private final MuscleVolumeService muscleVolumeService;
 
-    public ProgressController(ProgressService progressService) {
+    public ProgressController(
+            ProgressService progressService,
+            ProgressCacheService progressCache,
+            TrainingLogExportService exportService,
+            ProgressSeriesService seriesService,
+            MuscleVolumeService muscleVolumeService
+    ) {
         this.progressService = progressService;
+        this.progressCache = progressCache;
+        this.exportService = exportService;
+        this.seriesService = seriesService;
+        this.muscleVolumeService = muscleVolumeService;
     }
 
     /**
@@ -28,7 +53,8 @@ public class ProgressController {
             @AuthenticationPrincipal User user,
             @RequestParam(defaultValue = "8") int weeks
     ) {
-        ProgressSummaryDto summary = progressService.getProgressSummary(user, weeks);
+        ProgressSummaryDto summary = progressCache.getSummary(user.getId(), weeks,
+                () -> progressService.getProgressSummary(user, weeks));
         return ResponseEntity.ok(summary);
     }
 
@@ -46,19 +72,57 @@ public class ProgressController {
     }
 
     /**
-     * GET /api/progress/exercises/{exerciseId}
-     * Obtiene historial de progreso de un ejercicio específico
+     * GET /api/progress/muscles?weeks=4
+     * Series efectivas y volumen por grupo muscular en las últimas N semanas
+     */
+    @GetMapping("/muscles")
+    public ResponseEntity<List<MuscleWeekDto>> getMuscleVolume(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "4") int weeks
+    ) {
+        List<MuscleWeekDto> muscles = muscleVolumeService.getWeeks(user.getId(), Math.min(weeks, 52));
+        return ResponseEntity.ok(muscles);
+    }
+
+    /**
+     * GET /api/progress/exercises/{exerciseId}?sessions=10&cursor=...
+     * Obtiene historial de progreso de un ejercicio específico.
+     * Para paginar hacia atrás se envía el nextCursor de la respuesta anterior.
      */
     @GetMapping("/exercises/{exerciseId}")
     public ResponseEntity<ExerciseProgressDto> getExerciseProgress(
             @AuthenticationPrincipal User user,
             @PathVariable Long exerciseId,
-            @RequestParam(defaultValue = "10") int sessions
+            @RequestParam(defaultValue = "10") int sessions,
+            @RequestParam(required = false) String cursor
     ) {
-        ExerciseProgressDto progress = progressService.getExerciseProgress(user, exerciseId, sessions);
+        // Solo se cachea la primera página (la que se pide al abrir la pantalla)
+        if (cursor != null && !cursor.isBlank()) {
+            return ResponseEntity.ok(progressService.getExerciseProgress(user, exerciseId, sessions, cursor));
+        }
+        ExerciseProgressDto progress = progressCache.getExerciseProgress(user.getId(), exerciseId, sessions,
+                () -> progressService.getExerciseProgress(user, exerciseId, sessions, null));
         return ResponseEntity.ok(progress);
     }
 
+    /**
+     * GET /api/progress/exercises/{exerciseId}/series?bucket=week&points=100&from=2025-01-01
+     * Series de 1RM estimado y volumen para gráficas, con tamaño acotado
+     */
+    @GetMapping("/exercises/{exerciseId}/series")
+    public ResponseEntity<ExerciseSeriesDto> getExerciseSeries(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long exerciseId,
+            @RequestParam(defaultValue = "week") String bucket,
+            @RequestParam(defaultValue = "100") int points,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from
+    ) {
+        ExerciseSeriesDto series = seriesService.getExerciseSeries(
+                user.getId(), exerciseId, ProgressSeriesService.Bucket.from(bucket), points, from
+        );
+        return ResponseEntity.ok(series);
+    }
+
     /**
      * GET /api/progress/exercises/{exerciseId}/recommendation
      * Obtiene recomendación de progresión para un ejercicio
@@ -77,6 +141,19 @@ public class ProgressController {
         return ResponseEntity.ok(recommendation);
     }
 
+    /**
+     * POST /api/progress/recommendations
+     * Recomendaciones de progresión para todos los ejercicios de una sesión de rutina
+     * (routineDetailId) o para una lista de ejercicios, en una sola llamada.
+     */
+    @PostMapping("/recommendations")
+    public ResponseEntity<List<ProgressionRecommendationDto>> getProgressionRecommendations(
+            @AuthenticationPrincipal User user,
+            @RequestBody @Valid RecommendationBatchRequest request
+    ) {
+        return ResponseEntity.ok(progressService.getProgressionRecommendations(user, request));
+    }
+
     /**
      * POST /api/progress/calculate-1rm
      * Calcula 1RM estimado (útil para el frontend)
@@ -91,6 +168,38 @@ public class ProgressController {
         ));
     }
 
+    /**
+     * GET /api/progress/export?format=csv|ndjson
+     * Descarga el registro completo de entrenamiento. Se escribe en streaming
+     * mientras se lee de la BD (memoria constante).
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTrainingLog(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "csv") String format
+    ) {
+        TrainingLogExportService.Format exportFormat = TrainingLogExportService.Format.from(format);
+        Long userId = user.getId();
+
+        StreamingResponseBody body = out -> exportService.export(userId, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"ironplan-historial." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
+    /**
+     * GET /api/progress/cache/stats
+     * Métricas de la caché de progreso (aciertos, fallos, desalojos)
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<ProgressCacheStatsDto>> getCacheStats() {
+        return ResponseEntity.ok(progressCache.stats());
+    }
+
     // DTOs internos para 1RM
     public record Calculate1RMRequest(double weightKg, int reps) {}
     public record Calculate1RMResponse(double weightKg, int reps, Double estimated1RM) {}
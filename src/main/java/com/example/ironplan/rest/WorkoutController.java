@@ -3,16 +3,21 @@ package com.example.ironplan.rest;
 import com.example.ironplan.model.User;
 import com.example.ironplan.model.WorkoutExercise;
 import com.example.ironplan.model.WorkoutSession;
-import com.example.ironplan.model.WorkoutSet;
-import com.example.ironplan.repository.WorkoutExerciseRepository;
-import com.example.ironplan.repository.WorkoutSetRepository;
 import com.example.ironplan.rest.dto.*;
 import com.example.ironplan.rest.mapper.WorkoutExerciseViewMapper;
 import com.example.ironplan.rest.error.NotFoundException;
+import com.example.ironplan.service.ActiveSessionStore;
+import com.example.ironplan.service.LastPerformanceService;
+import com.example.ironplan.service.OptimisticRetryService;
+import com.example.ironplan.service.SessionDetailCache;
 import com.example.ironplan.service.WorkoutExerciseService;
 import com.example.ironplan.service.WorkoutSessionService;
+import com.example.ironplan.service.WorkoutSyncService;
 import jakarta.validation.Valid;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -23,19 +28,28 @@ public class WorkoutController {
 
     private final WorkoutSessionService workoutSessionService;
     private final WorkoutExerciseService workoutExerciseService;
-    private final WorkoutExerciseRepository workoutExerciseRepo;
-    private final WorkoutSetRepository workoutSetRepo;
+    private final LastPerformanceService lastPerformanceService;
+    private final WorkoutSyncService syncService;
+    private final OptimisticRetryService retry;
+    private final ActiveSessionStore activeSessions;
+    private final SessionDetailCache detailCache;
 
     public WorkoutController(
             WorkoutSessionService workoutSessionService,
             WorkoutExerciseService workoutExerciseService,
-            WorkoutExerciseRepository workoutExerciseRepo,
-            WorkoutSetRepository workoutSetRepo
+            LastPerformanceService lastPerformanceService,
+            WorkoutSyncService syncService,
+            OptimisticRetryService retry,
+            ActiveSessionStore activeSessions,
+            SessionDetailCache detailCache
     ) {
         this.workoutSessionService = workoutSessionService;
         this.workoutExerciseService = workoutExerciseService;
-        this.workoutExerciseRepo = workoutExerciseRepo;
-        this.workoutSetRepo = workoutSetRepo;
+        this.lastPerformanceService = lastPerformanceService;
+        this.syncService = syncService;
+        this.retry = retry;
+        this.activeSessions = activeSessions;
+        this.detailCache = detailCache;
     }
 
     // 1) INICIAR SESIÓN DE ENTRENAMIENTO (desde rutina)
@@ -50,9 +64,8 @@ public class WorkoutController {
                 request.routineDetailId()
         );
 
-        // obtener el primer ejercicio de la sesión
-        WorkoutExercise firstExercise = workoutExerciseRepo
-                .findByWorkoutSession_IdOrderByExerciseOrderAsc(session.getId())
+        // obtener el primer ejercicio de la sesión (ya vienen ordenados)
+        WorkoutExercise firstExercise = session.getWorkoutExercises()
                 .stream()
                 .findFirst()
                 .orElseThrow(() -> new NotFoundException(
@@ -62,17 +75,8 @@ public class WorkoutController {
         // última serie completada
         Long catalogExerciseId = resolveCatalogExerciseId(firstExercise);
 
-        WorkoutSet previousSet = workoutSetRepo
-                .findLastCompletedSetForUserAndExercise(
-                        user.getId(),
-                        catalogExerciseId,
-                        PageRequest.of(0, 1)
-                )
-                .stream()
-                .findFirst()
-                .orElse(null);
-
-
+        WorkoutPreviousSetDto previousSet = lastPerformanceService
+                .findPreviousSet(user.getId(), catalogExerciseId);
 
         WorkoutExerciseDetailResponse response =
                 WorkoutExerciseViewMapper.toDetailResponse(session, firstExercise, previousSet);
@@ -105,30 +109,11 @@ public class WorkoutController {
             @PathVariable Integer order,
             @AuthenticationPrincipal User user
     ) {
-        // obtiene la sesión y valida que pertenece al usuario
-        WorkoutSession session = workoutSessionService.getSessionForUser(sessionId, user.getId());
-
-        // obtiene el ejercicio por orden
-        WorkoutExercise exercise = workoutExerciseService
-                .getExerciseForUserByOrder(sessionId, user.getId(), order);
-
-        // última serie completada de ese ejercicio (para "serie anterior")
-        Long catalogExerciseId = resolveCatalogExerciseId(exercise);
-
-        WorkoutSet previousSet = workoutSetRepo
-                .findLastCompletedSetForUserAndExercise(
-                        user.getId(),
-                        catalogExerciseId,
-                        PageRequest.of(0, 1)
-                )
-                .stream()
-                .findFirst()
-                .orElse(null);
+        activeSessions.flush(sessionId);
 
-
-
-        WorkoutExerciseDetailResponse response =
-                WorkoutExerciseViewMapper.toDetailResponse(session, exercise, previousSet);
+        // sesión, ejercicios, catálogo y serie anterior en dos consultas
+        WorkoutExerciseDetailResponse response = workoutExerciseService
+                .getExerciseScreen(sessionId, user.getId(), order);
 
         return ResponseEntity.ok(response);
     }
@@ -155,6 +140,7 @@ public class WorkoutController {
             @RequestBody ReorderNextExercisesRequest request,
             @AuthenticationPrincipal User user   // ⬅️ aquí va TU entidad User, no CustomUserDetails
     ) {
+        activeSessions.flush(sessionId);
         workoutSessionService.reorderNextExercises(
                 sessionId,
                 user.getId(),                     // ⬅️ esto ahora compila, User sí tiene getId()
@@ -169,6 +155,7 @@ public class WorkoutController {
             @PathVariable Long sessionId,
             @AuthenticationPrincipal User user
     ) {
+        activeSessions.flush(sessionId);
         WorkoutSessionSummaryResponse summary = workoutSessionService.getSessionSummary(
                 sessionId,
                 user.getId()
@@ -176,13 +163,25 @@ public class WorkoutController {
         return ResponseEntity.ok(summary);
     }
 
+    // Detalle ya serializado; para sesiones completadas responde 304 si el ETag coincide
     @GetMapping("/{sessionId}/detail")
-    public ResponseEntity<WorkoutSessionDetailResponse> getSessionDetail(
+    public ResponseEntity<byte[]> getSessionDetail(
             @PathVariable Long sessionId,
-            @AuthenticationPrincipal User user
+            @AuthenticationPrincipal User user,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        var detail = workoutSessionService.getSessionDetail(sessionId, user.getId());
-        return ResponseEntity.ok(detail);
+        activeSessions.flush(sessionId);
+        SessionDetailCache.Snapshot detail = detailCache.get(sessionId, user.getId(), ifNoneMatch);
+
+        if (detail.notModified()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(detail.eTag()).build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (detail.eTag() != null) {
+            response.eTag(detail.eTag()).cacheControl(CacheControl.noCache().cachePrivate());
+        }
+        return response.body(detail.body());
     }
 
     // DESCARTAR SESIÓN (elimina todo el progreso y marca como CANCELLED)
@@ -191,7 +190,9 @@ public class WorkoutController {
             @PathVariable Long sessionId,
             @AuthenticationPrincipal User user
     ) {
-        workoutSessionService.discardSession(sessionId, user.getId());
+        // Lo que está en memoria se olvida solo después de confirmar el descarte
+        activeSessions.discard(sessionId, user.getId(),
+                () -> retry.run(() -> workoutSessionService.discardSession(sessionId, user.getId())));
         return ResponseEntity.noContent().build();
     }
 
@@ -201,9 +202,23 @@ public class WorkoutController {
             @PathVariable Long sessionId,
             @AuthenticationPrincipal User user
     ) {
-        workoutSessionService.finishSession(sessionId, user.getId());
+        activeSessions.flush(sessionId);
+        retry.run(() -> workoutSessionService.finishSession(sessionId, user.getId()));
         return ResponseEntity.noContent().build();
     }
+
+    // SINCRONIZAR DIARIO OFFLINE (varias operaciones en una sola transacción)
+    @PostMapping("/{sessionId}/sync")
+    public ResponseEntity<WorkoutSyncResponse> syncSession(
+            @PathVariable Long sessionId,
+            @AuthenticationPrincipal User user,
+            @RequestBody @Valid WorkoutSyncRequest request
+    ) {
+        activeSessions.flush(sessionId);
+        WorkoutSyncResponse response = retry.run(() -> syncService.sync(sessionId, user.getId(), request));
+        return ResponseEntity.ok(response);
+    }
+
     private Long resolveCatalogExerciseId(WorkoutExercise we) {
 
         if (we.getRoutineExercise() != null && we.getRoutineExercise().getExercise() != null) {
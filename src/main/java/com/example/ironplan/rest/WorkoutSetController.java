@@ -1,9 +1,13 @@
 package com.example.ironplan.rest;
 
 import com.example.ironplan.model.User;
+import com.example.ironplan.rest.dto.SaveSetsResponse;
 import com.example.ironplan.rest.dto.WorkoutPreviousSetDto;
 import com.example.ironplan.rest.dto.WorkoutSetItemRequest;
 import com.example.ironplan.rest.dto.WorkoutSetRequest;
+import com.example.ironplan.service.ActiveSessionStore;
+import com.example.ironplan.service.IdempotencyService;
+import com.example.ironplan.service.OptimisticRetryService;
 import com.example.ironplan.service.WorkoutSetService;
 import com.example.ironplan.rest.dto.WorkoutSetInput;
 import jakarta.validation.Valid;
@@ -18,16 +22,31 @@ import java.util.List;
 public class WorkoutSetController {
 
     private final WorkoutSetService workoutSetService;
+    private final IdempotencyService idempotency;
+    private final OptimisticRetryService retry;
+    private final ActiveSessionStore activeSessions;
 
-    public WorkoutSetController(WorkoutSetService workoutSetService) {
+    public WorkoutSetController(
+            WorkoutSetService workoutSetService,
+            IdempotencyService idempotency,
+            OptimisticRetryService retry,
+            ActiveSessionStore activeSessions
+    ) {
         this.workoutSetService = workoutSetService;
+        this.idempotency = idempotency;
+        this.retry = retry;
+        this.activeSessions = activeSessions;
     }
 
+    // Contenido que identifica la petición para la Idempotency-Key
+    private record SaveSetsFingerprint(Long sessionId, Long exerciseId, List<WorkoutSetInput> sets, String notes) {}
+
     @PostMapping("/{sessionId}/exercises/{exerciseId}/sets")
-    public ResponseEntity<Void> saveSetsForExercise(
+    public ResponseEntity<SaveSetsResponse> saveSetsForExercise(
             @PathVariable Long sessionId,
             @PathVariable Long exerciseId,
             @AuthenticationPrincipal User user,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody @Valid WorkoutSetRequest request
     ) {
         // Mapear los DTOs del REST a los DTOs internos del servicio
@@ -35,16 +54,27 @@ public class WorkoutSetController {
                 .map(WorkoutSetController::toInput)
                 .toList();
 
-        workoutSetService.saveSetsForExercise(
-                sessionId,
-                exerciseId,
+        // Un reintento del cliente con la misma clave devuelve la respuesta guardada;
+        // un choque de versión con otra escritura se reintenta en una transacción nueva.
+        // Con escritura diferida activa, la serie va a memoria + diario local.
+        SaveSetsResponse response = idempotency.execute(
+                "sets",
                 user.getId(),
-                inputs,
-                request.notes()
+                idempotencyKey,
+                new SaveSetsFingerprint(sessionId, exerciseId, inputs, request.notes()),
+                () -> activeSessions.isEnabled()
+                        ? activeSessions.recordSets(sessionId, exerciseId, user.getId(), inputs)
+                        : retry.run(() -> workoutSetService.saveSetsForExercise(
+                                sessionId,
+                                exerciseId,
+                                user.getId(),
+                                inputs,
+                                request.notes()
+                        ))
         );
 
-        // 204 No Content: operación OK sin body
-        return ResponseEntity.noContent().build();
+        // 200 con los récords personales superados (si los hay)
+        return ResponseEntity.ok(response);
     }
 
 
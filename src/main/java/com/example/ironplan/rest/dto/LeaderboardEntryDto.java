@@ -0,0 +1,12 @@
+package com.example.ironplan.rest.dto;
+
+import com.example.ironplan.model.XpRank;
+
+public record LeaderboardEntryDto(
+        int rank,
+        Long userId,
+        String username,
+        int lifetimeXp,
+        XpRank xpRank,
+        boolean me
+) {}
@@ -0,0 +1,10 @@
+package com.example.ironplan.rest.dto;
+
+import java.util.List;
+
+public record LeaderboardResponse(
+        String scope,
+        int totalUsers,
+        Integer myRank,
+        List<LeaderboardEntryDto> entries
+) {}
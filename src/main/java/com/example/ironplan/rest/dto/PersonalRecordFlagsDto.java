@@ -0,0 +1,19 @@
+package com.example.ironplan.rest.dto;
+
+/**
+ * Indica qué récords personales se superaron al guardar las series.
+ * Solo se marca cuando ya existía un récord previo que batir.
+ */
+public record PersonalRecordFlagsDto(
+        boolean heaviestSet,
+        boolean bestEstimated1RM,
+        boolean bestSessionVolume
+) {
+    public static PersonalRecordFlagsDto none() {
+        return new PersonalRecordFlagsDto(false, false, false);
+    }
+
+    public boolean any() {
+        return heaviestSet || bestEstimated1RM || bestSessionVolume;
+    }
+}
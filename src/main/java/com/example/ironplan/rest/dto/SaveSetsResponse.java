@@ -0,0 +1,20 @@
+package com.example.ironplan.rest.dto;
+
+import com.example.ironplan.model.WorkoutExerciseStatus;
+import com.example.ironplan.model.WorkoutSessionStatus;
+
+public record SaveSetsResponse(
+        Long workoutExerciseId,
+        PersonalRecordFlagsDto personalRecords,
+
+        // Estado del ejercicio tras guardar
+        Integer completedSets,
+        Integer plannedSets,
+        WorkoutExerciseStatus exerciseStatus,
+
+        // Progreso de la sesión tras guardar
+        Integer sessionCompletedExercises,
+        Integer sessionTotalExercises,
+        Double sessionProgressPercentage,
+        WorkoutSessionStatus sessionStatus
+) {}
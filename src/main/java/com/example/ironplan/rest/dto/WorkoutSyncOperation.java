@@ -0,0 +1,38 @@
+package com.example.ironplan.rest.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * Una entrada del diario offline de una sesión.
+ * Cada tipo usa solo sus campos; el resto viene null.
+ */
+public record WorkoutSyncOperation(
+        // Número de secuencia del cliente, creciente dentro de la sesión
+        @NotNull @Min(1)
+        Long seq,
+
+        @NotNull
+        Type type,
+
+        // SAVE_SETS, COMPLETE_EXERCISE
+        Long workoutExerciseId,
+
+        // SAVE_SETS
+        @Valid
+        List<WorkoutSetItemRequest> sets,
+
+        // REORDER (igual que reorder-next)
+        List<Long> workoutExerciseIds
+) {
+    public enum Type {
+        SAVE_SETS,
+        REORDER,
+        COMPLETE_EXERCISE,
+        FINISH,
+        DISCARD
+    }
+}
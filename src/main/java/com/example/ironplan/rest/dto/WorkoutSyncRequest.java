@@ -0,0 +1,13 @@
+package com.example.ironplan.rest.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record WorkoutSyncRequest(
+        // En el orden en que se hicieron en el cliente
+        @NotNull
+        @Valid
+        List<WorkoutSyncOperation> operations
+) {}
@@ -0,0 +1,22 @@
+package com.example.ironplan.rest.dto;
+
+import com.example.ironplan.model.WorkoutSessionStatus;
+
+import java.util.List;
+
+public record WorkoutSyncResponse(
+        Long sessionId,
+
+        // Cursor del diario: el cliente puede olvidar todo lo que sea <= lastAppliedSeq
+        Long lastAppliedSeq,
+        int appliedOperations,
+        int skippedOperations,
+
+        // Estado reconciliado de la sesión
+        WorkoutSessionStatus sessionStatus,
+        Integer completedExercises,
+        Integer totalExercises,
+        Double progressPercentage,
+        Integer xpEarned,
+        List<WorkoutExerciseDetailDto> exercises
+) {}
@@ -0,0 +1,15 @@
+package com.example.ironplan.rest.dto;
+
+import com.example.ironplan.model.XpEventType;
+
+import java.time.LocalDateTime;
+
+public record XpHistoryItemDto(
+        Long id,
+        int xpDelta,
+        XpEventType type,
+        String description,
+        Long routineTemplateId,
+        String routineName,
+        LocalDateTime createdAt
+) {}
@@ -0,0 +1,8 @@
+package com.example.ironplan.rest.dto;
+
+import java.util.List;
+
+public record XpHistoryPageResponse(
+        List<XpHistoryItemDto> items,
+        String nextCursor // null si no hay más
+) {}
@@ -0,0 +1,21 @@
+package com.example.ironplan.rest.dto;
+
+import com.example.ironplan.model.XpEventType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record XpMonthDto(
+        LocalDate month, // día 1 del mes
+        int gained,
+        int spent,
+        int events,
+        List<TypeTotal> byType
+) {
+    public record TypeTotal(
+            XpEventType type,
+            int gained,
+            int spent,
+            int events
+    ) {}
+}
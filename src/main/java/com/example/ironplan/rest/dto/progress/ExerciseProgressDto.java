@@ -19,6 +19,9 @@ public record ExerciseProgressDto(
         TopSetDto topSet,            // Mejor set por peso
         Double estimated1RM,         // 1RM estimado (Epley)
         
-        // Historial por sesión (últimas N)
-        List<ExerciseSessionHistoryDto> history
+        // Historial por sesión (una página, de la más reciente a la más antigua)
+        List<ExerciseSessionHistoryDto> history,
+
+        // Cursor para pedir la página siguiente (null si no hay más)
+        String nextCursor
 ) {}
@@ -0,0 +1,17 @@
+package com.example.ironplan.rest.dto.progress;
+
+import java.util.List;
+
+/**
+ * Series para las gráficas de un ejercicio (1RM estimado y volumen),
+ * agrupadas por día/semana/mes y reducidas a un máximo de puntos.
+ */
+public record ExerciseSeriesDto(
+        Long exerciseId,
+        String exerciseName,
+        String bucket,              // DAY, WEEK, MONTH
+        int totalBuckets,           // Buckets con datos antes de reducir
+
+        List<SeriesPointDto> estimated1RM,  // Mejor 1RM estimado (Epley) de cada bucket
+        List<SeriesPointDto> volumeKg       // Volumen total (peso * reps) de cada bucket
+) {}
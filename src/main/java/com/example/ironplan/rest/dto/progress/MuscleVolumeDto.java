@@ -0,0 +1,11 @@
+package com.example.ironplan.rest.dto.progress;
+
+/**
+ * Series y volumen de un grupo muscular en una semana
+ */
+public record MuscleVolumeDto(
+        String muscle,          // Clave normalizada ("pecho", "triceps")
+        String displayName,     // Como aparece en el catálogo ("Pecho", "Tríceps")
+        double hardSets,        // Series completadas (secundarios cuentan fracción)
+        double volumeKg
+) {}
@@ -0,0 +1,12 @@
+package com.example.ironplan.rest.dto.progress;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Volumen por grupo muscular de una semana (de más a menos series)
+ */
+public record MuscleWeekDto(
+        LocalDate weekStart,
+        List<MuscleVolumeDto> muscles
+) {}
@@ -0,0 +1,14 @@
+package com.example.ironplan.rest.dto.progress;
+
+/**
+ * Métricas de una de las cachés de progreso (solo admin)
+ */
+public record ProgressCacheStatsDto(
+        String cache,
+        long size,
+        long hits,
+        long misses,
+        double hitRate,
+        long evictions,
+        long invalidations
+) {}
@@ -0,0 +1,24 @@
+package com.example.ironplan.rest.dto.progress;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * Petición de recomendaciones para varios ejercicios a la vez.
+ * Se envía routineDetailId (usa los ejercicios de la sesión de rutina)
+ * o una lista de ejercicios con su configuración.
+ */
+public record RecommendationBatchRequest(
+        Long routineDetailId,
+        List<@Valid Item> exercises
+) {
+    public record Item(
+            @NotNull Long exerciseId,
+            @Min(1) int plannedSets,
+            @Min(1) int repsMin,
+            @Min(1) int repsMax
+    ) {}
+}
@@ -0,0 +1,11 @@
+package com.example.ironplan.rest.dto.progress;
+
+import java.time.LocalDate;
+
+/**
+ * Punto de una serie temporal (inicio del bucket y valor)
+ */
+public record SeriesPointDto(
+        LocalDate date,
+        double value
+) {}
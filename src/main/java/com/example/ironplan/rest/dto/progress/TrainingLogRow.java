@@ -0,0 +1,24 @@
+package com.example.ironplan.rest.dto.progress;
+
+import com.example.ironplan.model.WorkoutSessionStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila plana del registro de entrenamiento (una serie) para exportar.
+ * Se construye directamente en la consulta (sin entidades gestionadas).
+ */
+public record TrainingLogRow(
+        Long sessionId,
+        String sessionTitle,
+        WorkoutSessionStatus status,
+        LocalDateTime startedAt,
+        LocalDateTime completedAt,
+        Long workoutExerciseId,
+        Integer exerciseOrder,
+        String exerciseName,
+        Integer setNumber,
+        Integer reps,
+        Double weightKg,
+        boolean completed
+) {}
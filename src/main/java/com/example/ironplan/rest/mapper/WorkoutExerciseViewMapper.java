@@ -4,7 +4,6 @@ import com.example.ironplan.model.Exercise;
 import com.example.ironplan.model.RoutineExercise;
 import com.example.ironplan.model.WorkoutExercise;
 import com.example.ironplan.model.WorkoutSession;
-import com.example.ironplan.model.WorkoutSet;
 import com.example.ironplan.rest.dto.NextExerciseSummaryDto;
 import com.example.ironplan.rest.dto.WorkoutExerciseDetailResponse;
 import com.example.ironplan.rest.dto.WorkoutPreviousSetDto;
@@ -21,31 +20,33 @@ public final class WorkoutExerciseViewMapper {
     public static WorkoutExerciseDetailResponse toDetailResponse(
             WorkoutSession session,
             WorkoutExercise exercise,
-            WorkoutSet previousSet
+            WorkoutPreviousSetDto previousSet
     ) {
-        // 1) Serie anterior
-        WorkoutPreviousSetDto previousDto = null;
-        if (previousSet != null) {
-            previousDto = new WorkoutPreviousSetDto(
-                    previousSet.getSetNumber(),
-                    previousSet.getReps(),
-                    previousSet.getWeightKg()
-            );
-        }
+        return toDetailResponse(session, exercise, previousSet, session.getWorkoutExercises());
+    }
 
-        // 2) Lista de ejercicios de la sesión (puede venir null)
-        List<WorkoutExercise> allExercises = session.getWorkoutExercises();
+    /**
+     * Variante con la lista de ejercicios ya cargada (no toca session.getWorkoutExercises()).
+     */
+    public static WorkoutExerciseDetailResponse toDetailResponse(
+            WorkoutSession session,
+            WorkoutExercise exercise,
+            WorkoutPreviousSetDto previousDto,
+            List<WorkoutExercise> sessionExercises
+    ) {
+        // 1) Lista de ejercicios de la sesión (puede venir null)
+        List<WorkoutExercise> allExercises = sessionExercises;
         if (allExercises == null) {
             allExercises = Collections.emptyList();
         }
 
-        // 3) Total de ejercicios: primero usamos el campo de la sesión,
+        // 2) Total de ejercicios: primero usamos el campo de la sesión,
         //    si viene null, caemos al tamaño de la lista (o 0 si también está vacía)
         int totalExercises = session.getTotalExercises() != null
                 ? session.getTotalExercises()
                 : allExercises.size();
 
-        // 4) Progreso de la sesión
+        // 3) Progreso de la sesión
         WorkoutSessionProgressDto progressDto = new WorkoutSessionProgressDto(
                 session.getId(),
                 exercise.getExerciseOrder(),
@@ -55,7 +56,7 @@ public final class WorkoutExerciseViewMapper {
                 session.getStartedAt() != null ? session.getStartedAt() : session.getCreatedAt()
         );
 
-        // 5) Lista de siguientes ejercicios (si no hay lista, queda vacío)
+        // 4) Lista de siguientes ejercicios (si no hay lista, queda vacío)
         List<NextExerciseSummaryDto> nextDtos = allExercises.stream()
                 .filter(we -> we.getExerciseOrder() > exercise.getExerciseOrder())
                 .sorted(Comparator.comparingInt(WorkoutExercise::getExerciseOrder))
@@ -77,7 +78,7 @@ public final class WorkoutExerciseViewMapper {
                 })
                 .toList();
 
-        // 6) Datos del ejercicio actual (soporte para rutina Y personalizadas)
+        // 5) Datos del ejercicio actual (soporte para rutina Y personalizadas)
         Exercise currentBase = resolveCatalogExerciseSafe(exercise);
 
         return new WorkoutExerciseDetailResponse(
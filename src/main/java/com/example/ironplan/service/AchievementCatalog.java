@@ -0,0 +1,145 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.Achievement;
+import com.example.ironplan.model.AchievementComparator;
+import com.example.ironplan.model.AchievementMetric;
+import com.example.ironplan.repository.AchievementRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogo de hazañas en memoria: una foto inmutable de la tabla achievements.
+ *
+ * - Cada hazaña tiene un ordinal estable dentro de la foto (orden de visualización),
+ *   que es el índice de bit en los desbloqueos por usuario.
+ * - Las reglas activas quedan indexadas por métrica.
+ * - reload() cambia la foto entera; quien guarde ordinales debe invalidarlos (AchievementService).
+ */
+@Component
+public class AchievementCatalog {
+
+    /**
+     * Hazaña tal como la necesitan la pantalla y el motor de reglas.
+     */
+    public record Entry(
+            int ordinal,
+            Long id,
+            String code,
+            String name,
+            String description,
+            String icon,
+            String category,
+            int xpReward,
+            boolean active,
+            AchievementMetric metric,
+            AchievementComparator comparator,
+            Long threshold
+    ) {
+        static Entry of(int ordinal, Achievement a) {
+            return new Entry(
+                    ordinal,
+                    a.getId(),
+                    a.getCode(),
+                    a.getName(),
+                    a.getDescription(),
+                    a.getIcon(),
+                    a.getCategory(),
+                    a.getXpReward() != null ? a.getXpReward() : 0,
+                    Boolean.TRUE.equals(a.getIsActive()),
+                    a.getMetric(),
+                    a.getComparator() != null ? a.getComparator() : AchievementComparator.GTE,
+                    a.getThreshold()
+            );
+        }
+
+        boolean isRule() {
+            return active && metric != null && threshold != null;
+        }
+    }
+
+    public static final class Snapshot {
+
+        private final List<Entry> entries;
+        private final List<Entry> active;
+        private final Map<String, Entry> byCode;
+        private final Map<Long, Entry> byId;
+        private final Map<AchievementMetric, List<Entry>> rulesByMetric;
+
+        private Snapshot(List<Achievement> achievements) {
+            List<Entry> all = new ArrayList<>(achievements.size());
+            Map<String, Entry> codes = new HashMap<>();
+            Map<Long, Entry> ids = new HashMap<>();
+            Map<AchievementMetric, List<Entry>> rules = new EnumMap<>(AchievementMetric.class);
+
+            for (Achievement a : achievements) {
+                Entry e = Entry.of(all.size(), a);
+                all.add(e);
+                codes.put(e.code(), e);
+                ids.put(e.id(), e);
+                if (e.isRule()) {
+                    rules.computeIfAbsent(e.metric(), m -> new ArrayList<>()).add(e);
+                }
+            }
+            rules.replaceAll((m, list) -> List.copyOf(list));
+
+            this.entries = List.copyOf(all);
+            this.active = all.stream().filter(Entry::active).toList();
+            this.byCode = Map.copyOf(codes);
+            this.byId = Map.copyOf(ids);
+            this.rulesByMetric = rules;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        public List<Entry> active() {
+            return active;
+        }
+
+        public Entry byOrdinal(int ordinal) {
+            return entries.get(ordinal);
+        }
+
+        public Entry byCode(String code) {
+            return byCode.get(code);
+        }
+
+        public Entry byId(Long id) {
+            return byId.get(id);
+        }
+
+        public List<Entry> rulesFor(AchievementMetric metric) {
+            return rulesByMetric.getOrDefault(metric, List.of());
+        }
+    }
+
+    private final AchievementRepository achievementRepo;
+    private volatile Snapshot snapshot;
+
+    public AchievementCatalog(AchievementRepository achievementRepo) {
+        this.achievementRepo = achievementRepo;
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = reload();
+        }
+        return current;
+    }
+
+    public synchronized Snapshot reload() {
+        List<Achievement> achievements = new ArrayList<>(achievementRepo.findAll());
+        achievements.sort(Comparator.comparing(Achievement::getSortOrder).thenComparing(Achievement::getId));
+        Snapshot fresh = new Snapshot(achievements);
+        this.snapshot = fresh;
+        return fresh;
+    }
+}
@@ -2,47 +2,104 @@ package com.example.ironplan.service;
 
 import com.example.ironplan.model.*;
 import com.example.ironplan.repository.*;
+import com.example.ironplan.repository.UserAchievementRepository.UnlockRowView;
 import com.example.ironplan.rest.dto.AchievementDto;
 import com.example.ironplan.rest.dto.UserAchievementDto;
+import com.example.ironplan.service.AchievementCatalog.Entry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Hazañas: pantalla, estadísticas y motor de reglas.
+ *
+ * - El catálogo vive en memoria (AchievementCatalog): sin consultas de catálogo.
+ * - Los desbloqueos de cada usuario se cachean como bitset (índice = ordinal del catálogo)
+ *   más un array de fechas; cargarlos es una sola consulta sobre user_achievements.
+ */
 @Service
 public class AchievementService {
 
-    private final AchievementRepository achievementRepo;
+    private final AchievementCatalog catalog;
     private final UserAchievementRepository userAchievementRepo;
-    private final WorkoutSessionRepository workoutSessionRepo;
-    private final RoutineTemplateRepository routineTemplateRepo;
+    private final AchievementRepository achievementRepo;
+    private final UserRepository userRepo;
     private final XpService xpService;
+    private final Cache<Long, UserUnlocks> unlocksByUser;
+
+    // Contadores que cambian al completar un entrenamiento (el XP ya se otorgó en el paso anterior)
+    public static final Set<AchievementMetric> WORKOUT_METRICS = Collections.unmodifiableSet(EnumSet.of(
+            AchievementMetric.COMPLETED_WORKOUTS,
+            AchievementMetric.TOTAL_VOLUME_KG,
+            AchievementMetric.CURRENT_STREAK,
+            AchievementMetric.LONGEST_STREAK,
+            AchievementMetric.LIFETIME_XP
+    ));
+
+    /**
+     * Contadores del usuario indexados por métrica, leídos en una sola consulta.
+     */
+    public record CounterSnapshot(Map<AchievementMetric, Long> values) {
+
+        public long get(AchievementMetric metric) {
+            return values.getOrDefault(metric, 0L);
+        }
+    }
+
+    /**
+     * Desbloqueos de un usuario contra una foto concreta del catálogo.
+     * Inmutable: un desbloqueo nuevo crea una copia.
+     */
+    private record UserUnlocks(AchievementCatalog.Snapshot catalog, BitSet bits, LocalDateTime[] unlockedAt) {
+
+        boolean has(Entry e) {
+            return bits.get(e.ordinal());
+        }
+
+        LocalDateTime unlockedAt(Entry e) {
+            return unlockedAt[e.ordinal()];
+        }
+
+        int count() {
+            return bits.cardinality();
+        }
 
-    // Códigos de hazañas
-    public static final String FIRST_WORKOUT = "FIRST_WORKOUT";
-    public static final String TEN_WORKOUTS = "TEN_WORKOUTS";
-    public static final String TWENTY_FIVE_WORKOUTS = "TWENTY_FIVE_WORKOUTS";
-    public static final String FIFTY_WORKOUTS = "FIFTY_WORKOUTS";
-    public static final String HUNDRED_WORKOUTS = "HUNDRED_WORKOUTS";
-    public static final String FIRST_ROUTINE_CREATED = "FIRST_ROUTINE_CREATED";
-    public static final String XP_1000 = "XP_1000";
-    public static final String XP_5000 = "XP_5000";
-    public static final String XP_10000 = "XP_10000";
+        UserUnlocks with(Entry e, LocalDateTime at) {
+            BitSet copy = (BitSet) bits.clone();
+            copy.set(e.ordinal());
+            LocalDateTime[] dates = unlockedAt.clone();
+            dates[e.ordinal()] = at;
+            return new UserUnlocks(catalog, copy, dates);
+        }
+    }
 
     public AchievementService(
-            AchievementRepository achievementRepo,
+            AchievementCatalog catalog,
             UserAchievementRepository userAchievementRepo,
-            WorkoutSessionRepository workoutSessionRepo,
-            RoutineTemplateRepository routineTemplateRepo,
-            XpService xpService
+            AchievementRepository achievementRepo,
+            UserRepository userRepo,
+            XpService xpService,
+            @Value("${ironplan.achievement-unlocks.max-size:10000}") long maxSize,
+            @Value("${ironplan.achievement-unlocks.ttl:30m}") Duration ttl
     ) {
-        this.achievementRepo = achievementRepo;
+        this.catalog = catalog;
         this.userAchievementRepo = userAchievementRepo;
-        this.workoutSessionRepo = workoutSessionRepo;
-        this.routineTemplateRepo = routineTemplateRepo;
+        this.achievementRepo = achievementRepo;
+        this.userRepo = userRepo;
         this.xpService = xpService;
+        this.unlocksByUser = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttl)
+                .build();
     }
 
     /**
@@ -50,25 +107,19 @@ public class AchievementService {
      */
     @Transactional(readOnly = true)
     public List<AchievementDto> getAllAchievementsForUser(User user) {
-        List<Achievement> allAchievements = achievementRepo.findByIsActiveTrueOrderBySortOrderAsc();
-        Set<String> unlockedCodes = userAchievementRepo.findUnlockedAchievementCodesByUserId(user.getId());
-        
-        // Obtener fechas de desbloqueo
-        Map<String, LocalDateTime> unlockDates = new HashMap<>();
-        userAchievementRepo.findByUser_IdOrderByUnlockedAtDesc(user.getId())
-                .forEach(ua -> unlockDates.put(ua.getAchievement().getCode(), ua.getUnlockedAt()));
+        UserUnlocks unlocks = unlocks(user.getId());
 
-        return allAchievements.stream()
+        return unlocks.catalog().active().stream()
                 .map(a -> new AchievementDto(
-                        a.getId(),
-                        a.getCode(),
-                        a.getName(),
-                        a.getDescription(),
-                        a.getIcon(),
-                        a.getCategory(),
-                        a.getXpReward(),
-                        unlockedCodes.contains(a.getCode()),
-                        unlockDates.get(a.getCode())
+                        a.id(),
+                        a.code(),
+                        a.name(),
+                        a.description(),
+                        a.icon(),
+                        a.category(),
+                        a.xpReward(),
+                        unlocks.has(a),
+                        unlocks.unlockedAt(a)
                 ))
                 .collect(Collectors.toList());
     }
@@ -107,43 +158,11 @@ public class AchievementService {
 
     /**
      * Verifica y otorga hazañas basadas en entrenamientos completados.
-     * Llamar después de completar un workout.
+     * Llamar después de completar un workout (y de otorgar su XP).
      */
     @Transactional
     public List<UserAchievementDto> checkWorkoutAchievements(User user) {
-        List<UserAchievementDto> newAchievements = new ArrayList<>();
-        
-        long completedWorkouts = workoutSessionRepo.countByUser_IdAndStatus(
-                user.getId(), 
-                WorkoutSessionStatus.COMPLETED
-        );
-
-        // Primera rutina
-        if (completedWorkouts >= 1) {
-            tryUnlockAchievement(user, FIRST_WORKOUT).ifPresent(newAchievements::add);
-        }
-
-        // 10 entrenamientos
-        if (completedWorkouts >= 10) {
-            tryUnlockAchievement(user, TEN_WORKOUTS).ifPresent(newAchievements::add);
-        }
-
-        // 25 entrenamientos
-        if (completedWorkouts >= 25) {
-            tryUnlockAchievement(user, TWENTY_FIVE_WORKOUTS).ifPresent(newAchievements::add);
-        }
-
-        // 50 entrenamientos
-        if (completedWorkouts >= 50) {
-            tryUnlockAchievement(user, FIFTY_WORKOUTS).ifPresent(newAchievements::add);
-        }
-
-        // 100 entrenamientos
-        if (completedWorkouts >= 100) {
-            tryUnlockAchievement(user, HUNDRED_WORKOUTS).ifPresent(newAchievements::add);
-        }
-
-        return newAchievements;
+        return evaluate(user, WORKOUT_METRICS);
     }
 
     /**
@@ -152,83 +171,170 @@ public class AchievementService {
      */
     @Transactional
     public List<UserAchievementDto> checkRoutineCreationAchievements(User user) {
-        List<UserAchievementDto> newAchievements = new ArrayList<>();
-        
-        long routinesCreated = routineTemplateRepo.countByUser_Id(user.getId());
-
-        if (routinesCreated >= 1) {
-            tryUnlockAchievement(user, FIRST_ROUTINE_CREATED).ifPresent(newAchievements::add);
-        }
-
-        return newAchievements;
+        return evaluate(user, EnumSet.of(AchievementMetric.ROUTINES_CREATED));
     }
 
+    // ============ MOTOR DE REGLAS ============
+
     /**
-     * Verifica y otorga hazañas basadas en XP acumulado.
-     * Llamar después de ganar XP.
+     * Evalúa solo las reglas de las métricas que cambiaron.
+     *
+     * Sin reglas alcanzadas no hay más consultas que la de contadores; los desbloqueos
+     * previos salen de la caché y solo se inserta una fila por hazaña nueva.
      */
     @Transactional
-    public List<UserAchievementDto> checkXpAchievements(User user) {
-        List<UserAchievementDto> newAchievements = new ArrayList<>();
-        
-        int lifetimeXp = user.getLifetimeXp() != null ? user.getLifetimeXp() : 0;
+    public List<UserAchievementDto> evaluate(User user, Set<AchievementMetric> changed) {
+        AchievementCatalog.Snapshot snapshot = catalog.snapshot();
+        List<Entry> candidates = new ArrayList<>();
+        for (AchievementMetric metric : changed) {
+            candidates.addAll(snapshot.rulesFor(metric));
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
 
-        if (lifetimeXp >= 1000) {
-            tryUnlockAchievement(user, XP_1000).ifPresent(newAchievements::add);
+        CounterSnapshot counters = loadCounters(user.getId());
+        List<Entry> reached = candidates.stream().filter(r -> matches(r, counters)).toList();
+        if (reached.isEmpty()) {
+            return List.of();
         }
 
-        if (lifetimeXp >= 5000) {
-            tryUnlockAchievement(user, XP_5000).ifPresent(newAchievements::add);
+        UserUnlocks unlocks = unlocks(user.getId());
+        List<UserAchievementDto> newAchievements = new ArrayList<>();
+        List<UserAchievement> created = new ArrayList<>();
+        Set<Long> unlockedNow = new HashSet<>();
+        int xpGranted = 0;
+
+        for (Entry rule : reached) {
+            if (!unlocks.has(rule) && unlockedNow.add(rule.id())) {
+                newAchievements.add(unlock(user, rule, created));
+                xpGranted += rule.xpReward();
+            }
         }
 
-        if (lifetimeXp >= 10000) {
-            tryUnlockAchievement(user, XP_10000).ifPresent(newAchievements::add);
+        // Las recompensas suben el XP de por vida: una pasada más solo para esas reglas
+        if (xpGranted > 0) {
+            Map<AchievementMetric, Long> values = new EnumMap<>(counters.values());
+            values.put(AchievementMetric.LIFETIME_XP, (long) (user.getLifetimeXp() != null ? user.getLifetimeXp() : 0));
+            CounterSnapshot afterRewards = new CounterSnapshot(values);
+
+            for (Entry rule : snapshot.rulesFor(AchievementMetric.LIFETIME_XP)) {
+                if (matches(rule, afterRewards) && !unlocks.has(rule) && unlockedNow.add(rule.id())) {
+                    newAchievements.add(unlock(user, rule, created));
+                }
+            }
         }
 
+        if (!created.isEmpty()) {
+            publishUnlocks(user.getId(), snapshot, created);
+        }
         return newAchievements;
     }
 
+    @Transactional(readOnly = true)
+    public CounterSnapshot loadCounters(Long userId) {
+        Map<AchievementMetric, Long> values = new EnumMap<>(AchievementMetric.class);
+        userRepo.findAchievementCounters(userId).ifPresent(c -> {
+            values.put(AchievementMetric.COMPLETED_WORKOUTS, orZero(c.getCompletedWorkouts()));
+            values.put(AchievementMetric.LIFETIME_XP, orZero(c.getLifetimeXp()));
+            values.put(AchievementMetric.ROUTINES_CREATED, orZero(c.getRoutinesCreated()));
+            values.put(AchievementMetric.CURRENT_STREAK, orZero(c.getCurrentStreak()));
+            values.put(AchievementMetric.LONGEST_STREAK, orZero(c.getLongestStreak()));
+            values.put(AchievementMetric.TOTAL_VOLUME_KG,
+                    c.getTotalVolumeKg() != null ? (long) Math.floor(c.getTotalVolumeKg()) : 0L);
+        });
+        return new CounterSnapshot(values);
+    }
+
     /**
-     * Intenta desbloquear una hazaña para el usuario.
-     * Retorna el DTO si se desbloqueó, vacío si ya la tenía.
+     * Vuelve a leer el catálogo (tras sembrar o editar la tabla achievements).
+     * Los bitsets cacheados usan los ordinales de la foto anterior: se descartan.
      */
-    @Transactional
-    public Optional<UserAchievementDto> tryUnlockAchievement(User user, String achievementCode) {
-        // Verificar si ya la tiene
-        if (userAchievementRepo.existsByUser_IdAndAchievement_Code(user.getId(), achievementCode)) {
-            return Optional.empty();
+    public void reloadCatalog() {
+        catalog.reload();
+        unlocksByUser.invalidateAll();
+    }
+
+    // ============ DESBLOQUEOS POR USUARIO ============
+
+    private UserUnlocks unlocks(Long userId) {
+        AchievementCatalog.Snapshot snapshot = catalog.snapshot();
+        UserUnlocks cached = unlocksByUser.getIfPresent(userId);
+        if (cached != null && cached.catalog() == snapshot) {
+            return cached;
         }
 
-        // Buscar la hazaña
-        Optional<Achievement> achievementOpt = achievementRepo.findByCode(achievementCode);
-        if (achievementOpt.isEmpty()) {
-            return Optional.empty();
+        BitSet bits = new BitSet(snapshot.size());
+        LocalDateTime[] dates = new LocalDateTime[snapshot.size()];
+        for (UnlockRowView row : userAchievementRepo.findUnlockRows(userId)) {
+            Entry e = snapshot.byId(row.getAchievementId());
+            if (e == null) continue;
+            bits.set(e.ordinal());
+            dates[e.ordinal()] = row.getUnlockedAt();
         }
 
-        Achievement achievement = achievementOpt.get();
+        UserUnlocks loaded = new UserUnlocks(snapshot, bits, dates);
+        unlocksByUser.put(userId, loaded);
+        return loaded;
+    }
 
-        // Crear el registro de desbloqueo
-        UserAchievement userAchievement = new UserAchievement(user, achievement);
+    // La caché solo se toca si el insert se confirma; si no, queda como estaba
+    private void publishUnlocks(Long userId, AchievementCatalog.Snapshot snapshot, List<UserAchievement> created) {
+        Runnable apply = () -> unlocksByUser.asMap().computeIfPresent(userId, (id, current) -> {
+            if (current.catalog() != snapshot) return null;
+            UserUnlocks next = current;
+            for (UserAchievement ua : created) {
+                next = next.with(snapshot.byId(ua.getAchievement().getId()), ua.getUnlockedAt());
+            }
+            return next;
+        });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * Registra el desbloqueo y otorga la recompensa. El llamador ya comprobó que no la tenía.
+     */
+    private UserAchievementDto unlock(User user, Entry rule, List<UserAchievement> created) {
+        UserAchievement userAchievement = new UserAchievement(user, achievementRepo.getReferenceById(rule.id()));
         userAchievementRepo.save(userAchievement);
+        created.add(userAchievement);
 
         // Otorgar XP si tiene recompensa
-        if (achievement.getXpReward() > 0) {
+        if (rule.xpReward() > 0) {
             xpService.grantXp(
                     user,
-                    achievement.getXpReward(),
+                    rule.xpReward(),
                     XpEventType.ACHIEVEMENT_UNLOCKED,
-                    "Hazaña desbloqueada: " + achievement.getName()
+                    "Hazaña desbloqueada: " + rule.name()
             );
         }
 
-        return Optional.of(new UserAchievementDto(
-                achievement.getCode(),
-                achievement.getName(),
-                achievement.getDescription(),
-                achievement.getIcon(),
-                achievement.getXpReward(),
+        return new UserAchievementDto(
+                rule.code(),
+                rule.name(),
+                rule.description(),
+                rule.icon(),
+                rule.xpReward(),
                 userAchievement.getUnlockedAt()
-        ));
+        );
+    }
+
+    private static boolean matches(Entry rule, CounterSnapshot counters) {
+        return rule.comparator().test(counters.get(rule.metric()), rule.threshold());
+    }
+
+    private static long orZero(Number value) {
+        return value != null ? value.longValue() : 0L;
     }
 
     /**
@@ -236,8 +342,9 @@ public class AchievementService {
      */
     @Transactional(readOnly = true)
     public Map<String, Object> getAchievementStats(User user) {
-        long totalAchievements = achievementRepo.count();
-        long unlockedAchievements = userAchievementRepo.countByUser_Id(user.getId());
+        UserUnlocks unlocks = unlocks(user.getId());
+        long totalAchievements = unlocks.catalog().size();
+        long unlockedAchievements = unlocks.count();
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("total", totalAchievements);
@@ -1,6 +1,7 @@
 package com.example.ironplan.service;
 
 import org.springframework.stereotype.Service;
+import com.example.ironplan.event.ExerciseCatalogChangedEvent;
 import com.example.ironplan.model.Exercise;
 import com.example.ironplan.repository.ExerciseRepository;
 import com.example.ironplan.rest.dto.ExerciseCreateReq;
@@ -8,6 +9,7 @@ import com.example.ironplan.rest.dto.ExerciseUpdateReq;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -18,9 +20,11 @@ import java.util.List;
 @Service
 public class ExerciseService {
     private final ExerciseRepository repo;
+    private final ApplicationEventPublisher events;
 
-    public ExerciseService(ExerciseRepository repo) {
+    public ExerciseService(ExerciseRepository repo, ApplicationEventPublisher events) {
         this.repo = repo;
+        this.events = events;
     }
 
     // LISTAR (paginado)
@@ -64,7 +68,9 @@ public class ExerciseService {
         e.setSecondaryMuscle(req.secondaryMuscle().trim());
         e.setVideoUrl(req.videoUrl().trim());
 
-        return repo.save(e);
+        Exercise saved = repo.save(e);
+        events.publishEvent(new ExerciseCatalogChangedEvent(saved.getId()));
+        return saved;
     }
 
     // ACTUALIZAR (PUT)
@@ -83,7 +89,10 @@ public class ExerciseService {
         e.setPrimaryMuscle(req.primaryMuscle().trim());
         e.setSecondaryMuscle(req.secondaryMuscle().trim());
         e.setVideoUrl(req.videoUrl().trim());
-        return repo.save(e);
+
+        Exercise saved = repo.save(e);
+        events.publishEvent(new ExerciseCatalogChangedEvent(saved.getId()));
+        return saved;
     }
 
     // ELIMINAR
@@ -91,5 +100,6 @@ public class ExerciseService {
     public void delete(Long id) {
         Exercise e = getById(id); // lanza 404 si no existe
         repo.delete(e);
+        events.publishEvent(new ExerciseCatalogChangedEvent(id));
     }
 }
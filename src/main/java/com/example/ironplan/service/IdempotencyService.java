@@ -0,0 +1,83 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.exception.IdempotencyKeyReusedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Respuestas recientes por Idempotency-Key, para los reintentos de clientes móviles
+ * con mala conexión.
+ *
+ * - Un duplicado devuelve la respuesta guardada sin tocar la BD.
+ * - Si el original aún está en curso, el duplicado espera su resultado en vez de repetirlo.
+ * - Si el original falla, la clave se libera para que el cliente pueda reintentar.
+ *
+ * En memoria y por instancia: suficiente para reintentos de segundos/minutos.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private record Entry(Object fingerprint, CompletableFuture<Object> result) {}
+
+    private final Cache<String, Entry> responses;
+
+    public IdempotencyService(
+            @Value("${ironplan.idempotency.max-size:10000}") long maxSize,
+            @Value("${ironplan.idempotency.ttl:10m}") Duration ttl
+    ) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Ejecuta la acción una sola vez por (scope, usuario, clave).
+     *
+     * @param fingerprint contenido de la petición; si la clave llega con otro contenido se rechaza
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, Long userId, String key, Object fingerprint, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key demasiado larga (máx " + MAX_KEY_LENGTH + ").");
+        }
+
+        String cacheKey = scope + ":" + userId + ":" + key;
+        Entry mine = new Entry(fingerprint, new CompletableFuture<>());
+        Entry existing = responses.asMap().putIfAbsent(cacheKey, mine);
+
+        if (existing != null) {
+            if (!existing.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException(key);
+            }
+            try {
+                return (T) existing.result().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+
+        try {
+            T result = action.get();
+            mine.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            responses.asMap().remove(cacheKey, mine);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.Exercise;
+import com.example.ironplan.model.UserExerciseLastPerformance;
+import com.example.ironplan.model.WorkoutExercise;
+import com.example.ironplan.model.WorkoutSession;
+import com.example.ironplan.model.WorkoutSet;
+import com.example.ironplan.repository.ExerciseRepository;
+import com.example.ironplan.repository.ProgressRepository;
+import com.example.ironplan.repository.ProgressRepository.LastSetRowView;
+import com.example.ironplan.repository.UserExerciseLastPerformanceRepository;
+import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.rest.dto.WorkoutPreviousSetDto;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Mantiene la "serie anterior" por usuario y ejercicio (user_exercise_last_performance).
+ *
+ * - applyExerciseSets: al guardar series, en la misma transacción.
+ * - refresh: vuelve al histórico cuando la fila deja de valer (series desmarcadas, descarte).
+ * - rebuildUser / rebuildAll: backfill a partir del histórico.
+ */
+@Service
+public class LastPerformanceService {
+
+    private final UserExerciseLastPerformanceRepository lastRepo;
+    private final ProgressRepository progressRepo;
+    private final ExerciseRepository exerciseRepo;
+    private final UserRepository userRepo;
+    private final TransactionTemplate txTemplate;
+
+    public LastPerformanceService(
+            UserExerciseLastPerformanceRepository lastRepo,
+            ProgressRepository progressRepo,
+            ExerciseRepository exerciseRepo,
+            UserRepository userRepo,
+            PlatformTransactionManager txManager
+    ) {
+        this.lastRepo = lastRepo;
+        this.progressRepo = progressRepo;
+        this.exerciseRepo = exerciseRepo;
+        this.userRepo = userRepo;
+        this.txTemplate = new TransactionTemplate(txManager);
+    }
+
+    // ============ LECTURA ============
+
+    /**
+     * Última serie completada del usuario en el ejercicio, o null si nunca lo hizo.
+     */
+    @Transactional(readOnly = true)
+    public WorkoutPreviousSetDto findPreviousSet(Long userId, Long exerciseId) {
+        if (exerciseId == null) return null;
+        return lastRepo.findByUser_IdAndExercise_Id(userId, exerciseId)
+                .map(p -> new WorkoutPreviousSetDto(p.getSetNumber(), p.getReps(), p.getWeightKg()))
+                .orElse(null);
+    }
+
+    // ============ ACTUALIZACIÓN INCREMENTAL ============
+
+    /**
+     * Actualiza la fila con el estado ya combinado de las series del ejercicio.
+     */
+    @Transactional
+    public void applyExerciseSets(Long userId, WorkoutSession session, WorkoutExercise we, List<WorkoutSet> sets) {
+        Exercise catalogExercise = we.resolveCatalogExercise();
+        if (catalogExercise == null) return;
+
+        List<WorkoutSet> completed = sets.stream().filter(WorkoutSet::isCompleted).toList();
+        WorkoutSet last = completed.stream()
+                .max(Comparator.comparing(WorkoutSet::getSetNumber))
+                .orElse(null);
+
+        Optional<UserExerciseLastPerformance> existing =
+                lastRepo.findByUser_IdAndExercise_Id(userId, catalogExercise.getId());
+        boolean pointsHere = existing.isPresent() && we.getId().equals(existing.get().getWorkoutExerciseId());
+
+        if (last == null) {
+            // Se desmarcaron todas: si la fila venía de aquí, toca buscar la anterior
+            if (pointsHere) refresh(userId, catalogExercise.getId());
+            return;
+        }
+
+        // Editar una sesión más antigua no cambia la "serie anterior"
+        if (existing.isPresent() && !pointsHere
+                && session.getStartedAt().isBefore(existing.get().getSessionStartedAt())) {
+            return;
+        }
+
+        UserExerciseLastPerformance row = existing.orElseGet(() -> newRow(userId, catalogExercise.getId()));
+        row.setWorkoutExerciseId(we.getId());
+        row.setSessionStartedAt(session.getStartedAt());
+        row.setSetNumber(last.getSetNumber());
+        row.setReps(last.getReps());
+        row.setWeightKg(last.getWeightKg());
+        row.setCompletedSets(completed.size());
+        lastRepo.save(row);
+    }
+
+    /**
+     * Recalcula la fila de un ejercicio desde el histórico (o la borra si ya no hay series).
+     */
+    @Transactional
+    public void refresh(Long userId, Long exerciseId) {
+        List<LastSetRowView> rows = progressRepo.findCompletedSetsInOrder(userId, exerciseId);
+        Optional<UserExerciseLastPerformance> existing = lastRepo.findByUser_IdAndExercise_Id(userId, exerciseId);
+
+        if (rows.isEmpty()) {
+            existing.ifPresent(lastRepo::delete);
+            return;
+        }
+
+        UserExerciseLastPerformance row = existing.orElseGet(() -> newRow(userId, exerciseId));
+        fill(row, rows);
+        lastRepo.save(row);
+    }
+
+    // ============ RECONSTRUCCIÓN ============
+
+    @Transactional
+    public int rebuildUser(Long userId) {
+        lastRepo.deleteAllByUserId(userId);
+
+        // Agrupamos por ejercicio conservando el orden cronológico
+        Map<Long, List<LastSetRowView>> byExercise = new LinkedHashMap<>();
+        for (LastSetRowView row : progressRepo.findCompletedSetsInOrder(userId, null)) {
+            if (row.getExerciseId() == null) continue;
+            byExercise.computeIfAbsent(row.getExerciseId(), id -> new ArrayList<>()).add(row);
+        }
+
+        List<UserExerciseLastPerformance> rows = byExercise.entrySet().stream()
+                .map(e -> {
+                    UserExerciseLastPerformance row = newRow(userId, e.getKey());
+                    fill(row, e.getValue());
+                    return row;
+                })
+                .toList();
+        lastRepo.saveAll(rows);
+
+        return rows.size();
+    }
+
+    /**
+     * Reconstruye la "serie anterior" de todos los usuarios, uno por transacción.
+     */
+    public int rebuildAll() {
+        int rows = 0;
+        for (Long userId : userRepo.findAllIds()) {
+            Integer rebuilt = txTemplate.execute(status -> rebuildUser(userId));
+            rows += rebuilt != null ? rebuilt : 0;
+        }
+        return rows;
+    }
+
+    // ============ HELPERS ============
+
+    /**
+     * Toma la última fila (la más reciente) y cuenta las series de ese mismo WorkoutExercise.
+     */
+    private static void fill(UserExerciseLastPerformance row, List<LastSetRowView> chronological) {
+        LastSetRowView last = chronological.get(chronological.size() - 1);
+        int completedSets = 0;
+        for (int i = chronological.size() - 1; i >= 0; i--) {
+            if (!last.getWorkoutExerciseId().equals(chronological.get(i).getWorkoutExerciseId())) break;
+            completedSets++;
+        }
+
+        row.setWorkoutExerciseId(last.getWorkoutExerciseId());
+        row.setSessionStartedAt(last.getSessionStartedAt());
+        row.setSetNumber(last.getSetNumber());
+        row.setReps(last.getReps());
+        row.setWeightKg(last.getWeightKg());
+        row.setCompletedSets(completedSets);
+    }
+
+    private UserExerciseLastPerformance newRow(Long userId, Long exerciseId) {
+        UserExerciseLastPerformance row = new UserExerciseLastPerformance();
+        row.setUser(userRepo.getReferenceById(userId));
+        row.setExercise(exerciseRepo.getReferenceById(exerciseId));
+        return row;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.event.XpChangedEvent;
+import com.example.ironplan.model.XpRank;
+import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.repository.UserRepository.LeaderboardChecksumView;
+import com.example.ironplan.repository.UserRepository.LeaderboardRowView;
+import com.example.ironplan.rest.dto.LeaderboardEntryDto;
+import com.example.ironplan.rest.dto.LeaderboardResponse;
+import com.example.ironplan.rest.error.NotFoundException;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Clasificación de XP de por vida en memoria: global, por organización y por grupo.
+ *
+ * - Se construye al arrancar con un recorrido en streaming de users.
+ * - Se actualiza con XpChangedEvent (tras el commit), sin consultar la BD.
+ * - Top-K, "mi puesto" y vecinos salen de XpRankIndex en O(log n + k).
+ * - Cada check-interval compara usuarios y XP por organización/grupo con la BD
+ *   y reconstruye si no cuadran (altas, cambios de organización, eventos perdidos).
+ */
+@Service
+public class LeaderboardService {
+
+    public enum Scope { GLOBAL, ORGANIZATION, GROUP }
+
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_RADIUS = 50;
+
+    private record Member(Long userId, String username, int lifetimeXp, String organizationCode, String organizationGroup) {
+
+        static Member of(LeaderboardRowView row) {
+            return new Member(
+                    row.getId(),
+                    row.getUsername(),
+                    row.getLifetimeXp() != null ? row.getLifetimeXp() : 0,
+                    row.getOrganizationCode(),
+                    row.getOrganizationGroup()
+            );
+        }
+
+        Member withXp(int xp) {
+            return new Member(userId, username, xp, organizationCode, organizationGroup);
+        }
+
+        // Clave del grupo dentro de su organización (los nombres de grupo se repiten entre organizaciones)
+        String groupKey() {
+            return organizationCode != null && organizationGroup != null
+                    ? organizationCode + "\u0000" + organizationGroup
+                    : null;
+        }
+    }
+
+    /**
+     * Todo lo que se reconstruye de una vez; se sustituye entero bajo el lock de escritura.
+     */
+    private static final class Board {
+        final Map<Long, Member> members = new HashMap<>();
+        final XpRankIndex global;
+        final Map<String, XpRankIndex> byOrganization = new HashMap<>();
+        final Map<String, XpRankIndex> byGroup = new HashMap<>();
+        final int bucketWidth;
+
+        Board(int bucketWidth) {
+            this.bucketWidth = bucketWidth;
+            this.global = new XpRankIndex(bucketWidth);
+        }
+
+        void add(Member m) {
+            members.put(m.userId(), m);
+            global.add(m.userId(), m.lifetimeXp());
+            if (m.organizationCode() != null) {
+                byOrganization.computeIfAbsent(m.organizationCode(), k -> new XpRankIndex(bucketWidth))
+                        .add(m.userId(), m.lifetimeXp());
+            }
+            if (m.groupKey() != null) {
+                byGroup.computeIfAbsent(m.groupKey(), k -> new XpRankIndex(bucketWidth))
+                        .add(m.userId(), m.lifetimeXp());
+            }
+        }
+
+        void remove(Member m) {
+            members.remove(m.userId());
+            global.remove(m.userId(), m.lifetimeXp());
+            if (m.organizationCode() != null) {
+                XpRankIndex org = byOrganization.get(m.organizationCode());
+                if (org != null) org.remove(m.userId(), m.lifetimeXp());
+            }
+            if (m.groupKey() != null) {
+                XpRankIndex group = byGroup.get(m.groupKey());
+                if (group != null) group.remove(m.userId(), m.lifetimeXp());
+            }
+        }
+
+        XpRankIndex index(Scope scope, Member me) {
+            return switch (scope) {
+                case GLOBAL -> global;
+                case ORGANIZATION -> me.organizationCode() != null ? byOrganization.get(me.organizationCode()) : null;
+                case GROUP -> me.groupKey() != null ? byGroup.get(me.groupKey()) : null;
+            };
+        }
+    }
+
+    private final UserRepository userRepo;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTx;
+    private final int bucketWidth;
+    private final Duration checkInterval;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService checker;
+    private Board board;
+
+    public LeaderboardService(
+            UserRepository userRepo,
+            EntityManager entityManager,
+            PlatformTransactionManager txManager,
+            @Value("${ironplan.leaderboard.bucket-width:100}") int bucketWidth,
+            @Value("${ironplan.leaderboard.check-interval:10m}") Duration checkInterval
+    ) {
+        this.userRepo = userRepo;
+        this.entityManager = entityManager;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.bucketWidth = Math.max(1, bucketWidth);
+        this.checkInterval = checkInterval;
+        this.checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leaderboard-checker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long periodMs = checkInterval.toMillis();
+        checker.execute(this::rebuildSafely);
+        checker.scheduleWithFixedDelay(this::checkSafely, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checker.shutdownNow();
+    }
+
+    // ============ LECTURA ============
+
+    public LeaderboardResponse top(Long userId, Scope scope, int limit) {
+        Board current = ensureBuilt();
+        Member me = member(current, userId);
+
+        lock.readLock().lock();
+        try {
+            XpRankIndex index = requireIndex(current, scope, me);
+            return response(current, scope, index, me, index.slice(1, Math.min(Math.max(limit, 1), MAX_LIMIT)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mi puesto y los radius usuarios por encima y por debajo.
+     */
+    public LeaderboardResponse around(Long userId, Scope scope, int radius) {
+        Board current = ensureBuilt();
+        Member me = member(current, userId);
+        int r = Math.min(Math.max(radius, 0), MAX_RADIUS);
+
+        lock.readLock().lock();
+        try {
+            XpRankIndex index = requireIndex(current, scope, me);
+            int position = index.position(me.userId(), me.lifetimeXp());
+            int from = Math.max(1, position - r);
+            return response(current, scope, index, me, index.slice(from, position - from + r + 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ============ ACTUALIZACIÓN ============
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onXpChanged(XpChangedEvent event) {
+        Board current = board;
+        if (current == null) return; // la construcción inicial ya leerá el valor confirmado
+
+        lock.writeLock().lock();
+        try {
+            Member existing = current.members.get(event.userId());
+            if (existing == null) {
+                // Usuario nuevo desde la última reconstrucción: lo dará de alta member() al consultarlo
+                return;
+            }
+            // lifetimeXp solo sube: un evento con menos XP es de una transacción anterior cuyo
+            // AFTER_COMMIT llegó tarde, y no debe pisar el valor más reciente
+            if (event.lifetimeXp() <= existing.lifetimeXp()) return;
+            current.remove(existing);
+            current.add(existing.withXp(event.lifetimeXp()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstruye desde la BD con un recorrido en streaming y sustituye la clasificación.
+     *
+     * @return usuarios cargados
+     */
+    public int rebuild() {
+        Board fresh = new Board(bucketWidth);
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<LeaderboardRowView> rows = userRepo.streamLeaderboardRows()) {
+                rows.forEach(row -> fresh.add(Member.of(row)));
+            } finally {
+                entityManager.clear();
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            board = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return fresh.members.size();
+    }
+
+    // ============ COMPROBACIÓN ============
+
+    /**
+     * Compara usuarios y XP total por organización/grupo con la BD.
+     *
+     * @return true si la copia en memoria cuadra
+     */
+    public boolean isConsistent() {
+        Board current = board;
+        if (current == null) return false;
+
+        Map<List<String>, long[]> expected = new HashMap<>();
+        for (LeaderboardChecksumView row : userRepo.findLeaderboardChecksums()) {
+            expected.put(Arrays.asList(row.getOrganizationCode(), row.getOrganizationGroup()),
+                    new long[]{row.getUsers(), row.getXpSum()});
+        }
+
+        Map<List<String>, long[]> actual = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Member m : current.members.values()) {
+                long[] totals = actual.computeIfAbsent(
+                        Arrays.asList(m.organizationCode(), m.organizationGroup()), k -> new long[2]);
+                totals[0]++;
+                totals[1] += m.lifetimeXp();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (!expected.keySet().equals(actual.keySet())) return false;
+        for (Map.Entry<List<String>, long[]> e : expected.entrySet()) {
+            if (!Arrays.equals(e.getValue(), actual.get(e.getKey()))) return false;
+        }
+        return true;
+    }
+
+    // ============ HELPERS ============
+
+    private Board ensureBuilt() {
+        Board current = board;
+        if (current != null) return current;
+        synchronized (this) {
+            if (board == null) rebuild();
+            return board;
+        }
+    }
+
+    // El usuario que consulta siempre está en la clasificación (altas posteriores a la construcción)
+    private Member member(Board current, Long userId) {
+        lock.readLock().lock();
+        try {
+            Member m = current.members.get(userId);
+            if (m != null) return m;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Member loaded = userRepo.findLeaderboardRow(userId)
+                .map(Member::of)
+                .orElseThrow(() -> new NotFoundException("Usuario no encontrado"));
+
+        lock.writeLock().lock();
+        try {
+            Member existing = current.members.get(userId);
+            if (existing != null) return existing;
+            current.add(loaded);
+            return loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static XpRankIndex requireIndex(Board current, Scope scope, Member me) {
+        XpRankIndex index = current.index(scope, me);
+        if (index == null) {
+            throw new NotFoundException(scope == Scope.GROUP
+                    ? "No perteneces a ningún grupo de organización."
+                    : "No perteneces a ninguna organización.");
+        }
+        return index;
+    }
+
+    // Se llama con el read lock tomado: members y el índice se leen en el mismo estado
+    private static LeaderboardResponse response(Board current, Scope scope, XpRankIndex index, Member me,
+                                                List<XpRankIndex.Member> slice) {
+        List<LeaderboardEntryDto> entries = new ArrayList<>(slice.size());
+        for (XpRankIndex.Member m : slice) {
+            Member member = current.members.get(m.userId());
+            entries.add(new LeaderboardEntryDto(
+                    index.rank(m.xp()),
+                    m.userId(),
+                    member != null ? member.username() : null,
+                    m.xp(),
+                    XpRank.fromLifetimeXp(m.xp()),
+                    Objects.equals(m.userId(), me.userId())
+            ));
+        }
+        return new LeaderboardResponse(scope.name(), index.size(), index.rank(me.lifetimeXp()), entries);
+    }
+
+    private void rebuildSafely() {
+        try {
+            int users = rebuild();
+            System.out.println("✅ Clasificación de XP construida: " + users + " usuarios");
+        } catch (RuntimeException e) {
+            System.err.println("[LeaderboardService] Error construyendo la clasificación: " + e.getMessage());
+        }
+    }
+
+    private void checkSafely() {
+        try {
+            if (!isConsistent()) {
+                int users = rebuild();
+                System.out.println("✅ Clasificación de XP reconstruida tras comprobación: " + users + " usuarios");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[LeaderboardService] Error comprobando la clasificación: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.event.ExerciseCatalogChangedEvent;
+import com.example.ironplan.model.Exercise;
+import com.example.ironplan.repository.ExerciseRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diccionario de músculos normalizado a partir del catálogo de ejercicios.
+ *
+ * primaryMuscle / secondaryMuscle son texto libre ("Pecho", "pecho, tríceps", "Hombro/Tríceps"),
+ * así que se separan y normalizan a claves estables ("pecho", "triceps").
+ * Se carga al arrancar y se refresca cuando cambia un ejercicio.
+ */
+@Service
+public class MuscleMapService {
+
+    /**
+     * Músculos de un ejercicio, ya normalizados.
+     */
+    public record MuscleTargets(List<String> primary, List<String> secondary) {
+        static final MuscleTargets NONE = new MuscleTargets(List.of(), List.of());
+
+        public boolean isEmpty() {
+            return primary.isEmpty() && secondary.isEmpty();
+        }
+    }
+
+    private final ExerciseRepository exerciseRepo;
+
+    // exerciseId -> músculos
+    private final Map<Long, MuscleTargets> targetsByExercise = new ConcurrentHashMap<>();
+    // clave normalizada -> nombre para mostrar (primera forma vista en el catálogo)
+    private final Map<String, String> displayNames = new ConcurrentHashMap<>();
+
+    public MuscleMapService(ExerciseRepository exerciseRepo) {
+        this.exerciseRepo = exerciseRepo;
+    }
+
+    // ============ CARGA ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        List<Exercise> exercises = exerciseRepo.findAll();
+        exercises.forEach(this::put);
+        System.out.println("✅ Mapa de músculos cargado: " + exercises.size() + " ejercicios, "
+                + displayNames.size() + " músculos");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ExerciseCatalogChangedEvent event) {
+        targetsByExercise.remove(event.exerciseId());
+        exerciseRepo.findById(event.exerciseId()).ifPresent(this::put);
+    }
+
+    // ============ LECTURA ============
+
+    public MuscleTargets targetsFor(Long exerciseId) {
+        if (exerciseId == null) return MuscleTargets.NONE;
+
+        MuscleTargets cached = targetsByExercise.get(exerciseId);
+        if (cached != null) return cached;
+
+        // Ejercicio que no estaba al arrancar (ej: insertado por otro proceso)
+        return exerciseRepo.findById(exerciseId)
+                .map(this::put)
+                .orElse(MuscleTargets.NONE);
+    }
+
+    public String displayName(String muscleKey) {
+        return displayNames.getOrDefault(muscleKey, muscleKey);
+    }
+
+    // ============ NORMALIZACIÓN ============
+
+    private MuscleTargets put(Exercise exercise) {
+        List<String> primary = parse(exercise.getPrimaryMuscle());
+        List<String> secondary = new ArrayList<>(parse(exercise.getSecondaryMuscle()));
+        secondary.removeAll(primary); // si aparece en ambos, cuenta como primario
+
+        MuscleTargets targets = new MuscleTargets(List.copyOf(primary), List.copyOf(secondary));
+        targetsByExercise.put(exercise.getId(), targets);
+        return targets;
+    }
+
+    private List<String> parse(String raw) {
+        if (raw == null || raw.isBlank()) return List.of();
+
+        LinkedHashSet<String> keys = new LinkedHashSet<>();
+        for (String part : raw.split("(?i)[,;/+]|\\s+y\\s+|\\s+e\\s+")) {
+            String display = part.trim().replaceAll("\\s+", " ");
+            if (display.isEmpty()) continue;
+
+            String key = normalize(display);
+            if (key.isEmpty()) continue;
+
+            keys.add(key);
+            displayNames.putIfAbsent(key, capitalize(display));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    static String normalize(String value) {
+        String noAccents = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return noAccents.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static String capitalize(String value) {
+        return value.substring(0, 1).toUpperCase(Locale.ROOT) + value.substring(1).toLowerCase(Locale.ROOT);
+    }
+}
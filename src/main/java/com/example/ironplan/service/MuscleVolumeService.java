@@ -0,0 +1,217 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.Exercise;
+import com.example.ironplan.model.UserMuscleWeeklyVolume;
+import com.example.ironplan.model.WorkoutExercise;
+import com.example.ironplan.repository.ProgressRepository;
+import com.example.ironplan.repository.UserMuscleWeeklyVolumeRepository;
+import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.rest.dto.progress.MuscleVolumeDto;
+import com.example.ironplan.rest.dto.progress.MuscleWeekDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Mantiene el volumen semanal por grupo muscular (user_muscle_weekly_volume).
+ *
+ * - applyDelta: suma/resta la diferencia de series y volumen de un ejercicio (upsert atómico).
+ * - rebuildUser / rebuildAll: backfill a partir del histórico.
+ *
+ * La semana sale del startedAt de la sesión, que no cambia durante su vida,
+ * así los deltas siempre caen en la misma fila.
+ */
+@Service
+public class MuscleVolumeService {
+
+    // Filas con menos de esto se consideran vacías (restos de redondeo)
+    private static final double EPSILON = 1e-6;
+
+    private final UserMuscleWeeklyVolumeRepository volumeRepo;
+    private final ProgressRepository progressRepo;
+    private final UserRepository userRepo;
+    private final MuscleMapService muscleMap;
+    private final TransactionTemplate txTemplate;
+    private final double secondaryCredit;
+
+    public MuscleVolumeService(
+            UserMuscleWeeklyVolumeRepository volumeRepo,
+            ProgressRepository progressRepo,
+            UserRepository userRepo,
+            MuscleMapService muscleMap,
+            PlatformTransactionManager txManager,
+            @Value("${ironplan.muscles.secondary-credit:0.5}") double secondaryCredit
+    ) {
+        this.volumeRepo = volumeRepo;
+        this.progressRepo = progressRepo;
+        this.userRepo = userRepo;
+        this.muscleMap = muscleMap;
+        this.txTemplate = new TransactionTemplate(txManager);
+        this.secondaryCredit = secondaryCredit;
+    }
+
+    // ============ LECTURA ============
+
+    /**
+     * Últimas N semanas (incluida la actual), de la más antigua a la más reciente.
+     * Las semanas sin entrenamiento salen con la lista vacía.
+     */
+    @Transactional(readOnly = true)
+    public List<MuscleWeekDto> getWeeks(Long userId, int weeks) {
+        if (weeks <= 0) return List.of();
+
+        LocalDate currentWeek = weekStart(LocalDate.now());
+        LocalDate fromWeek = currentWeek.minusWeeks(weeks - 1L);
+
+        Map<LocalDate, List<MuscleVolumeDto>> byWeek = new TreeMap<>();
+        for (int i = 0; i < weeks; i++) {
+            byWeek.put(fromWeek.plusWeeks(i), new ArrayList<>());
+        }
+
+        for (UserMuscleWeeklyVolume row :
+                volumeRepo.findByUser_IdAndWeekStartGreaterThanEqualOrderByWeekStartAscHardSetsDesc(userId, fromWeek)) {
+            List<MuscleVolumeDto> muscles = byWeek.get(row.getWeekStart());
+            if (muscles == null) continue;
+            muscles.add(new MuscleVolumeDto(
+                    row.getMuscle(),
+                    muscleMap.displayName(row.getMuscle()),
+                    round(row.getHardSets()),
+                    round(row.getVolumeKg())
+            ));
+        }
+
+        return byWeek.entrySet().stream()
+                .map(e -> new MuscleWeekDto(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    // ============ MANTENIMIENTO INCREMENTAL ============
+
+    /**
+     * Aplica la diferencia de series completadas y volumen de un ejercicio de catálogo
+     * en la semana de la sesión. Los primarios suman 1 por serie, los secundarios
+     * la fracción configurada (ironplan.muscles.secondary-credit).
+     */
+    @Transactional
+    public void applyDelta(Long userId, Long exerciseId, LocalDate sessionDay, double deltaSets, double deltaVolumeKg) {
+        if (Math.abs(deltaSets) < EPSILON && Math.abs(deltaVolumeKg) < EPSILON) return;
+
+        MuscleMapService.MuscleTargets targets = muscleMap.targetsFor(exerciseId);
+        if (targets.isEmpty()) return;
+
+        Map<String, Double> credit = credits(targets);
+        LocalDate week = weekStart(sessionDay);
+
+        // Suma atómica en MySQL; si es una resta, las filas que se quedan a cero se borran
+        volumeRepo.addDelta(userId, week, credit, deltaSets, deltaVolumeKg);
+        if (deltaSets < 0 || deltaVolumeKg < 0) {
+            volumeRepo.deleteEmpty(userId, week, credit.keySet(), EPSILON);
+        }
+    }
+
+    /**
+     * Resta lo que aportaban los ejercicios de una sesión (antes de borrar sus series).
+     */
+    @Transactional
+    public void removeSession(Long userId, Long sessionId, LocalDate sessionDay, List<WorkoutExercise> exercises) {
+        Map<Long, Long> catalogByWorkoutExercise = new HashMap<>();
+        for (WorkoutExercise we : exercises) {
+            Exercise catalogExercise = we.resolveCatalogExercise();
+            if (catalogExercise != null) {
+                catalogByWorkoutExercise.put(we.getId(), catalogExercise.getId());
+            }
+        }
+
+        for (ProgressRepository.WorkoutExerciseTotalsView row : progressRepo.findCompletedTotalsBySession(sessionId)) {
+            Long exerciseId = catalogByWorkoutExercise.get(row.getWorkoutExerciseId());
+            if (exerciseId == null) continue;
+
+            double sets = row.getSets() != null ? row.getSets() : 0;
+            double volume = row.getVolumeKg() != null ? row.getVolumeKg() : 0.0;
+            applyDelta(userId, exerciseId, sessionDay, -sets, -volume);
+        }
+    }
+
+    // ============ RECONSTRUCCIÓN ============
+
+    @Transactional
+    public int rebuildUser(Long userId) {
+        volumeRepo.deleteAllByUserId(userId);
+
+        // (semana, músculo) -> [series, volumen]
+        Map<LocalDate, Map<String, double[]>> acc = new TreeMap<>();
+        for (ProgressRepository.ExerciseDayTotalsView row : progressRepo.findExerciseDayTotals(userId)) {
+            if (row.getExerciseId() == null || row.getDay() == null) continue;
+
+            MuscleMapService.MuscleTargets targets = muscleMap.targetsFor(row.getExerciseId());
+            if (targets.isEmpty()) continue;
+
+            double sets = row.getSets() != null ? row.getSets() : 0;
+            double volume = row.getVolumeKg() != null ? row.getVolumeKg() : 0.0;
+            Map<String, double[]> week = acc.computeIfAbsent(weekStart(row.getDay()), w -> new HashMap<>());
+
+            credits(targets).forEach((muscle, factor) -> {
+                double[] totals = week.computeIfAbsent(muscle, m -> new double[2]);
+                totals[0] += sets * factor;
+                totals[1] += volume * factor;
+            });
+        }
+
+        List<UserMuscleWeeklyVolume> rows = new ArrayList<>();
+        acc.forEach((week, muscles) -> muscles.forEach((muscle, totals) -> {
+            UserMuscleWeeklyVolume row = newRow(userId, week, muscle);
+            row.setHardSets(totals[0]);
+            row.setVolumeKg(totals[1]);
+            rows.add(row);
+        }));
+        volumeRepo.saveAll(rows);
+
+        return rows.size();
+    }
+
+    /**
+     * Reconstruye el volumen por músculo de todos los usuarios, uno por transacción.
+     */
+    public int rebuildAll() {
+        int rows = 0;
+        for (Long userId : userRepo.findAllIds()) {
+            Integer rebuilt = txTemplate.execute(status -> rebuildUser(userId));
+            rows += rebuilt != null ? rebuilt : 0;
+        }
+        return rows;
+    }
+
+    // ============ HELPERS ============
+
+    private Map<String, Double> credits(MuscleMapService.MuscleTargets targets) {
+        Map<String, Double> credit = new LinkedHashMap<>();
+        targets.primary().forEach(m -> credit.put(m, 1.0));
+        if (secondaryCredit > 0) {
+            targets.secondary().forEach(m -> credit.putIfAbsent(m, secondaryCredit));
+        }
+        return credit;
+    }
+
+    private UserMuscleWeeklyVolume newRow(Long userId, LocalDate week, String muscle) {
+        UserMuscleWeeklyVolume row = new UserMuscleWeeklyVolume();
+        row.setUser(userRepo.getReferenceById(userId));
+        row.setWeekStart(week);
+        row.setMuscle(muscle);
+        return row;
+    }
+
+    static LocalDate weekStart(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
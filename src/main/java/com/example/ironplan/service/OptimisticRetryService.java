@@ -0,0 +1,66 @@
+package com.example.ironplan.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Reintento acotado cuando una escritura choca con otra por @Version.
+ *
+ * Debe envolver la llamada transaccional completa (desde el controlador): cada intento
+ * abre una transacción nueva y vuelve a leer el estado actual. Dentro de una transacción
+ * ya abierta no reintenta, porque esa transacción ya está marcada para rollback.
+ */
+@Service
+public class OptimisticRetryService {
+
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public OptimisticRetryService(
+            @Value("${ironplan.optimistic-retry.max-attempts:3}") int maxAttempts,
+            @Value("${ironplan.optimistic-retry.backoff-ms:20}") long backoffMs
+    ) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(0, backoffMs);
+    }
+
+    public <T> T run(Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) throw e;
+                pause(attempt);
+            }
+        }
+    }
+
+    public void run(Runnable action) {
+        run(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void pause(int attempt) {
+        if (backoffMs == 0) return;
+        // Espera creciente con algo de azar para que dos reintentos no vuelvan a chocar
+        long delay = backoffMs * attempt + ThreadLocalRandom.current().nextLong(backoffMs + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reintento interrumpido", e);
+        }
+    }
+}
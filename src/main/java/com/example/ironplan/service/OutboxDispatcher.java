@@ -0,0 +1,178 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.OutboxEvent;
+import com.example.ironplan.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Despachador del outbox.
+ *
+ * - Un hilo sondea los eventos vencidos (y se despierta al confirmarse uno nuevo).
+ * - Cada evento se reclama con un UPDATE condicional, así que con varias instancias
+ *   solo una lo procesa; si el worker muere, el reclamo caduca (lock-timeout).
+ * - Los workers son un pool acotado con cola acotada: solo se reclama lo que cabe.
+ * - Un fallo reprograma el evento con espera exponencial hasta max-attempts.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lockTimeout;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final OutboxEventRepository outboxRepo;
+    private final PostWorkoutPipeline pipeline;
+    private final TransactionTemplate txTemplate;
+
+    private final ScheduledExecutorService poller;
+    private final ThreadPoolExecutor workers;
+    private volatile boolean started;
+
+    public OutboxDispatcher(
+            @Value("${ironplan.outbox.enabled:true}") boolean enabled,
+            @Value("${ironplan.outbox.workers:4}") int workerCount,
+            @Value("${ironplan.outbox.queue-capacity:200}") int queueCapacity,
+            @Value("${ironplan.outbox.batch-size:50}") int batchSize,
+            @Value("${ironplan.outbox.poll-interval:5s}") Duration pollInterval,
+            @Value("${ironplan.outbox.lock-timeout:5m}") Duration lockTimeout,
+            @Value("${ironplan.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${ironplan.outbox.backoff:10s}") Duration backoff,
+            OutboxEventRepository outboxRepo,
+            PostWorkoutPipeline pipeline,
+            PlatformTransactionManager txManager
+    ) {
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollInterval = pollInterval;
+        this.lockTimeout = lockTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+        this.outboxRepo = outboxRepo;
+        this.pipeline = pipeline;
+        this.txTemplate = new TransactionTemplate(txManager);
+
+        this.poller = Executors.newSingleThreadScheduledExecutor(daemon("outbox-poller"));
+        int threads = Math.max(1, workerCount);
+        this.workers = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                daemon("outbox-worker")
+        );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        started = true;
+        long periodMs = pollInterval.toMillis();
+        poller.scheduleWithFixedDelay(this::pollSafely, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adelanta el siguiente sondeo (se llama al confirmar un evento nuevo).
+     */
+    public void wakeUp() {
+        if (!started) return;
+        try {
+            poller.execute(this::pollSafely);
+        } catch (RejectedExecutionException ignored) {
+            // apagándose
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        started = false;
+        poller.shutdownNow();
+        workers.shutdown();
+    }
+
+    // ============ SONDEO ============
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            System.err.println("[OutboxDispatcher] Error sondeando el outbox: " + e.getMessage());
+        }
+    }
+
+    // Siempre en el hilo del poller: nunca hay dos sondeos a la vez en esta instancia
+    private void poll() {
+        int free = workers.getQueue().remainingCapacity();
+        if (free <= 0) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = outboxRepo.findDueIds(now, PageRequest.of(0, Math.min(batchSize, free)));
+
+        for (Long id : dueIds) {
+            Integer claimed = txTemplate.execute(status -> outboxRepo.claim(id, now, now.plus(lockTimeout)));
+            if (claimed == null || claimed == 0) continue; // otra instancia se lo llevó
+
+            try {
+                workers.execute(() -> process(id));
+            } catch (RejectedExecutionException e) {
+                // Cola llena: el reclamo caduca y se vuelve a intentar
+                return;
+            }
+        }
+    }
+
+    // ============ PROCESO ============
+
+    private void process(Long id) {
+        OutboxEvent event = outboxRepo.findById(id).orElse(null);
+        if (event == null) return;
+
+        try {
+            switch (event.getType()) {
+                case WORKOUT_COMPLETED -> pipeline.handle(event);
+            }
+            txTemplate.executeWithoutResult(status -> outboxRepo.markDone(id, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            // 10s, 20s, 40s... con tope de 1h
+            long factor = 1L << Math.min(event.getAttempts(), 8);
+            Duration wait = backoff.multipliedBy(factor);
+            if (wait.compareTo(Duration.ofHours(1)) > 0) wait = Duration.ofHours(1);
+
+            LocalDateTime next = LocalDateTime.now().plus(wait);
+            String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage());
+            txTemplate.executeWithoutResult(status -> outboxRepo.markFailed(id, maxAttempts, next, error));
+            System.err.println("[OutboxDispatcher] Evento " + id + " falló (intento " + (event.getAttempts() + 1) + "): " + error);
+        }
+    }
+
+    private static String truncate(String s) {
+        return s.length() <= 500 ? s : s.substring(0, 500);
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.OutboxEvent;
+import com.example.ironplan.model.OutboxEventType;
+import com.example.ironplan.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Escritura en el outbox: el evento se guarda en la transacción del llamador,
+ * así que solo existe si el cambio que lo origina se confirma.
+ */
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxRepo;
+    private final OutboxDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxRepo, OutboxDispatcher dispatcher, ObjectMapper objectMapper) {
+        this.outboxRepo = outboxRepo;
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(OutboxEventType type, Long userId, Long aggregateId, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setType(type);
+        event.setUserId(userId);
+        event.setAggregateId(aggregateId);
+        event.setPayload(toJson(payload));
+        outboxRepo.save(event);
+
+        // Sin esperar al siguiente sondeo: se despacha en cuanto se confirma
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wakeUp();
+            }
+        });
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload de outbox no serializable: " + payload, e);
+        }
+    }
+}
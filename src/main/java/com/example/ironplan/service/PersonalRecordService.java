@@ -0,0 +1,394 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.Exercise;
+import com.example.ironplan.model.UserExerciseRecord;
+import com.example.ironplan.model.WorkoutExercise;
+import com.example.ironplan.model.WorkoutSession;
+import com.example.ironplan.model.WorkoutSessionStatus;
+import com.example.ironplan.model.WorkoutSet;
+import com.example.ironplan.repository.ExerciseRepository;
+import com.example.ironplan.repository.ProgressRepository;
+import com.example.ironplan.repository.ProgressRepository.SetRecordRowView;
+import com.example.ironplan.repository.UserExerciseRecordRepository;
+import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.rest.dto.PersonalRecordFlagsDto;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene el índice de récords personales (user_exercise_records).
+ *
+ * Solo cuentan las sesiones COMPLETED: una sesión activa que se abandona no deja récords.
+ *
+ * - applyExerciseSets: al guardar series. Con la sesión activa solo compara (para avisar del
+ *   récord en la respuesta); en una sesión ya completada actualiza el índice, y si se edita a la
+ *   baja (o se desmarca) la serie que tenía un récord, ese ejercicio se recalcula desde el histórico.
+ * - applySession: incorpora las series de una sesión al completarse (PostWorkoutPipeline).
+ * - rebuildUser / rebuildAll: reconstrucción completa desde el histórico.
+ */
+@Service
+public class PersonalRecordService {
+
+    private final UserExerciseRecordRepository recordRepo;
+    private final ProgressRepository progressRepo;
+    private final ExerciseRepository exerciseRepo;
+    private final UserRepository userRepo;
+    private final TransactionTemplate txTemplate;
+
+    public PersonalRecordService(
+            UserExerciseRecordRepository recordRepo,
+            ProgressRepository progressRepo,
+            ExerciseRepository exerciseRepo,
+            UserRepository userRepo,
+            PlatformTransactionManager txManager
+    ) {
+        this.recordRepo = recordRepo;
+        this.progressRepo = progressRepo;
+        this.exerciseRepo = exerciseRepo;
+        this.userRepo = userRepo;
+        this.txTemplate = new TransactionTemplate(txManager);
+    }
+
+    // ============ LECTURA ============
+
+    @Transactional(readOnly = true)
+    public Optional<UserExerciseRecord> find(Long userId, Long exerciseId) {
+        return recordRepo.findByUser_IdAndExercise_Id(userId, exerciseId);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, UserExerciseRecord> findAll(Long userId, Collection<Long> exerciseIds) {
+        if (exerciseIds.isEmpty()) return Map.of();
+        return recordRepo.findByUser_IdAndExercise_IdIn(userId, exerciseIds).stream()
+                .collect(Collectors.toMap(r -> r.getExercise().getId(), r -> r));
+    }
+
+    // ============ ACTUALIZACIÓN INCREMENTAL ============
+
+    /**
+     * Compara las series actuales de un ejercicio de la sesión contra el récord
+     * guardado y devuelve qué récords se superaron. Solo lo guarda si la sesión
+     * ya está completada; si no, lo hace applySession al completarla.
+     */
+    @Transactional
+    public PersonalRecordFlagsDto applyExerciseSets(Long userId, WorkoutSession session, WorkoutExercise we, List<WorkoutSet> sets) {
+        Exercise catalogExercise = we.resolveCatalogExercise();
+        if (catalogExercise == null) {
+            return PersonalRecordFlagsDto.none();
+        }
+
+        List<SetRecordRowView> rows = sets.stream()
+                .filter(WorkoutSet::isCompleted)
+                .map(ws -> row(catalogExercise.getId(), we.getId(), ws))
+                .toList();
+
+        Optional<UserExerciseRecord> existing = recordRepo.findByUser_IdAndExercise_Id(userId, catalogExercise.getId());
+
+        if (session.getStatus() != WorkoutSessionStatus.COMPLETED) {
+            // Sobre una copia: el índice no cambia hasta que la sesión se complete
+            return existing
+                    .map(record -> merge(copyOf(record), rows))
+                    .orElse(PersonalRecordFlagsDto.none());
+        }
+
+        // Un récord de esta misma sesión ya no se alcanza (ej: 500 kg corregido a 50): merge
+        // solo sube valores, así que se recalcula con las series ya guardadas
+        if (existing.isPresent() && lostRecord(existing.get(), we.getId(), rows)) {
+            return rebuildAfterEdit(existing.get(), userId, catalogExercise.getId(), we.getId());
+        }
+
+        if (rows.isEmpty()) {
+            return PersonalRecordFlagsDto.none();
+        }
+
+        boolean hadRecord = existing.isPresent();
+        UserExerciseRecord record = existing.orElseGet(() -> newRecord(userId, catalogExercise.getId()));
+
+        PersonalRecordFlagsDto flags = merge(record, rows);
+        recordRepo.save(record);
+
+        // La primera vez no hay nada que batir
+        return hadRecord ? flags : PersonalRecordFlagsDto.none();
+    }
+
+    /**
+     * Incorpora las series de una sesión recién completada. Se puede repetir sin
+     * efecto (merge solo sube valores y reconoce la sesión que ya tenía el volumen).
+     */
+    @Transactional
+    public int applySession(Long userId, Long sessionId) {
+        Map<Long, List<SetRecordRowView>> byExercise = progressRepo.findCompletedSetRowsForSession(sessionId).stream()
+                .filter(r -> r.getExerciseId() != null)
+                .collect(Collectors.groupingBy(SetRecordRowView::getExerciseId, LinkedHashMap::new, Collectors.toList()));
+        if (byExercise.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, UserExerciseRecord> existing = findAll(userId, byExercise.keySet());
+        List<UserExerciseRecord> records = new ArrayList<>(byExercise.size());
+        byExercise.forEach((exerciseId, rows) -> {
+            UserExerciseRecord record = existing.get(exerciseId);
+            if (record == null) {
+                record = newRecord(userId, exerciseId);
+            }
+            merge(record, rows);
+            records.add(record);
+        });
+        recordRepo.saveAll(records);
+
+        return records.size();
+    }
+
+    // ============ RECONSTRUCCIÓN ============
+
+    /**
+     * Recalcula el récord de un ejercicio desde cero (ej: tras descartar una sesión).
+     */
+    @Transactional
+    public void rebuildUserExercise(Long userId, Long exerciseId) {
+        List<SetRecordRowView> rows = progressRepo.findCompletedSetRows(userId, exerciseId);
+        Optional<UserExerciseRecord> existing = recordRepo.findByUser_IdAndExercise_Id(userId, exerciseId);
+
+        if (rows.isEmpty()) {
+            existing.ifPresent(recordRepo::delete);
+            return;
+        }
+
+        UserExerciseRecord record = existing.orElseGet(() -> newRecord(userId, exerciseId));
+        clear(record);
+        merge(record, rows);
+        recordRepo.save(record);
+    }
+
+    @Transactional
+    public int rebuildUser(Long userId) {
+        recordRepo.deleteAllByUserId(userId);
+
+        Map<Long, List<SetRecordRowView>> byExercise = progressRepo.findCompletedSetRows(userId, null).stream()
+                .filter(r -> r.getExerciseId() != null)
+                .collect(Collectors.groupingBy(SetRecordRowView::getExerciseId, LinkedHashMap::new, Collectors.toList()));
+
+        List<UserExerciseRecord> records = new ArrayList<>(byExercise.size());
+        byExercise.forEach((exerciseId, rows) -> {
+            UserExerciseRecord record = newRecord(userId, exerciseId);
+            merge(record, rows);
+            records.add(record);
+        });
+        recordRepo.saveAll(records);
+
+        return records.size();
+    }
+
+    /**
+     * Reconstruye los récords de todos los usuarios, uno por transacción.
+     */
+    public int rebuildAll() {
+        int records = 0;
+        for (Long userId : userRepo.findAllIds()) {
+            Integer rebuilt = txTemplate.execute(status -> rebuildUser(userId));
+            records += rebuilt != null ? rebuilt : 0;
+        }
+        return records;
+    }
+
+    // ============ HELPERS ============
+
+    private UserExerciseRecord newRecord(Long userId, Long exerciseId) {
+        UserExerciseRecord record = new UserExerciseRecord();
+        record.setUser(userRepo.getReferenceById(userId));
+        record.setExercise(exerciseRepo.getReferenceById(exerciseId));
+        return record;
+    }
+
+    // Copia sin persistir para calcular qué se superaría sin tocar el índice
+    private static UserExerciseRecord copyOf(UserExerciseRecord r) {
+        UserExerciseRecord copy = new UserExerciseRecord();
+        copy.setHeaviestWeightKg(r.getHeaviestWeightKg());
+        copy.setHeaviestReps(r.getHeaviestReps());
+        copy.setHeaviestAt(r.getHeaviestAt());
+        copy.setHeaviestWorkoutExerciseId(r.getHeaviestWorkoutExerciseId());
+        copy.setBestE1rmKg(r.getBestE1rmKg());
+        copy.setBestE1rmWeightKg(r.getBestE1rmWeightKg());
+        copy.setBestE1rmReps(r.getBestE1rmReps());
+        copy.setBestE1rmAt(r.getBestE1rmAt());
+        copy.setBestE1rmWorkoutExerciseId(r.getBestE1rmWorkoutExerciseId());
+        copy.setBestVolumeKg(r.getBestVolumeKg());
+        copy.setBestVolumeWorkoutExerciseId(r.getBestVolumeWorkoutExerciseId());
+        copy.setBestVolumeAt(r.getBestVolumeAt());
+        copy.setFirstPerformedAt(r.getFirstPerformedAt());
+        copy.setLastPerformedAt(r.getLastPerformedAt());
+        return copy;
+    }
+
+    private void clear(UserExerciseRecord r) {
+        r.setHeaviestWeightKg(null);
+        r.setHeaviestReps(null);
+        r.setHeaviestAt(null);
+        r.setHeaviestWorkoutExerciseId(null);
+        r.setBestE1rmKg(null);
+        r.setBestE1rmWeightKg(null);
+        r.setBestE1rmReps(null);
+        r.setBestE1rmAt(null);
+        r.setBestE1rmWorkoutExerciseId(null);
+        r.setBestVolumeKg(null);
+        r.setBestVolumeWorkoutExerciseId(null);
+        r.setBestVolumeAt(null);
+        r.setFirstPerformedAt(null);
+        r.setLastPerformedAt(null);
+    }
+
+    /**
+     * Incorpora filas de series completadas al récord. Las filas pueden venir de
+     * una sola sesión (incremental) o de todo el histórico (reconstrucción).
+     */
+    private PersonalRecordFlagsDto merge(UserExerciseRecord r, List<SetRecordRowView> rows) {
+        boolean newHeaviest = false;
+        boolean newE1rm = false;
+        boolean newVolume = false;
+
+        Map<Long, Double> volumeByWorkoutExercise = new LinkedHashMap<>();
+        Map<Long, LocalDateTime> lastAtByWorkoutExercise = new HashMap<>();
+
+        for (SetRecordRowView row : rows) {
+            LocalDateTime at = row.getPerformedAt() != null ? row.getPerformedAt() : LocalDateTime.now();
+
+            if (r.getFirstPerformedAt() == null || at.isBefore(r.getFirstPerformedAt())) {
+                r.setFirstPerformedAt(at);
+            }
+            if (r.getLastPerformedAt() == null || at.isAfter(r.getLastPerformedAt())) {
+                r.setLastPerformedAt(at);
+            }
+
+            Double weight = row.getWeightKg();
+            Integer reps = row.getReps();
+            if (weight == null) continue;
+
+            // Serie más pesada (desempate por reps)
+            if (r.getHeaviestWeightKg() == null
+                    || weight > r.getHeaviestWeightKg()
+                    || (weight.equals(r.getHeaviestWeightKg()) && reps != null
+                        && (r.getHeaviestReps() == null || reps > r.getHeaviestReps()))) {
+                newHeaviest = true;
+                r.setHeaviestWeightKg(weight);
+                r.setHeaviestReps(reps);
+                r.setHeaviestAt(at);
+                r.setHeaviestWorkoutExerciseId(row.getWorkoutExerciseId());
+            }
+
+            if (reps == null) continue;
+
+            Double e1rm = ProgressService.calculate1RM(weight, reps);
+            if (e1rm != null && (r.getBestE1rmKg() == null || e1rm > r.getBestE1rmKg())) {
+                newE1rm = true;
+                r.setBestE1rmKg(e1rm);
+                r.setBestE1rmWeightKg(weight);
+                r.setBestE1rmReps(reps);
+                r.setBestE1rmAt(at);
+                r.setBestE1rmWorkoutExerciseId(row.getWorkoutExerciseId());
+            }
+
+            volumeByWorkoutExercise.merge(row.getWorkoutExerciseId(), weight * reps, Double::sum);
+            lastAtByWorkoutExercise.merge(row.getWorkoutExerciseId(), at, (a, b) -> a.isAfter(b) ? a : b);
+        }
+
+        for (Map.Entry<Long, Double> entry : volumeByWorkoutExercise.entrySet()) {
+            Long weId = entry.getKey();
+            double volume = entry.getValue();
+            boolean sameSession = weId.equals(r.getBestVolumeWorkoutExerciseId());
+
+            if (sameSession) {
+                // La sesión que ya tenía el récord se está editando y no baja (si baja,
+                // applyExerciseSets recalcula desde el histórico antes de llegar aquí)
+                r.setBestVolumeKg(volume);
+                r.setBestVolumeAt(lastAtByWorkoutExercise.get(weId));
+            } else if (r.getBestVolumeKg() == null || volume > r.getBestVolumeKg()) {
+                newVolume = r.getBestVolumeKg() != null;
+                r.setBestVolumeKg(volume);
+                r.setBestVolumeWorkoutExerciseId(weId);
+                r.setBestVolumeAt(lastAtByWorkoutExercise.get(weId));
+            }
+        }
+
+        return new PersonalRecordFlagsDto(newHeaviest, newE1rm, newVolume);
+    }
+
+    /**
+     * ¿Algún récord venía de este WorkoutExercise y sus series actuales ya no lo alcanzan?
+     */
+    private static boolean lostRecord(UserExerciseRecord r, Long workoutExerciseId, List<SetRecordRowView> rows) {
+        double bestWeight = -1, bestE1rm = -1, volume = 0;
+        Integer bestWeightReps = null;
+        for (SetRecordRowView row : rows) {
+            Double weight = row.getWeightKg();
+            Integer reps = row.getReps();
+            if (weight == null) continue;
+
+            if (weight > bestWeight || (weight == bestWeight && reps != null
+                    && (bestWeightReps == null || reps > bestWeightReps))) {
+                bestWeight = weight;
+                bestWeightReps = reps;
+            }
+            if (reps == null) continue;
+
+            Double e1rm = ProgressService.calculate1RM(weight, reps);
+            if (e1rm != null) bestE1rm = Math.max(bestE1rm, e1rm);
+            volume += weight * reps;
+        }
+
+        if (workoutExerciseId.equals(r.getHeaviestWorkoutExerciseId()) && r.getHeaviestWeightKg() != null) {
+            boolean reached = bestWeight > r.getHeaviestWeightKg()
+                    || (bestWeight == r.getHeaviestWeightKg()
+                        && (r.getHeaviestReps() == null || (bestWeightReps != null && bestWeightReps >= r.getHeaviestReps())));
+            if (!reached) return true;
+        }
+        if (workoutExerciseId.equals(r.getBestE1rmWorkoutExerciseId()) && r.getBestE1rmKg() != null
+                && bestE1rm < r.getBestE1rmKg()) {
+            return true;
+        }
+        return workoutExerciseId.equals(r.getBestVolumeWorkoutExerciseId()) && r.getBestVolumeKg() != null
+                && volume < r.getBestVolumeKg();
+    }
+
+    /**
+     * Recalcula el récord desde el histórico (que ya incluye las series recién guardadas)
+     * y marca como récord nuevo solo lo que esta sesión sube respecto a lo anterior.
+     */
+    private PersonalRecordFlagsDto rebuildAfterEdit(UserExerciseRecord before, Long userId, Long exerciseId, Long workoutExerciseId) {
+        Double heaviest = before.getHeaviestWeightKg();
+        Double e1rm = before.getBestE1rmKg();
+        Double volume = before.getBestVolumeKg();
+
+        rebuildUserExercise(userId, exerciseId);
+
+        Optional<UserExerciseRecord> after = recordRepo.findByUser_IdAndExercise_Id(userId, exerciseId);
+        if (after.isEmpty()) {
+            return PersonalRecordFlagsDto.none();
+        }
+        UserExerciseRecord r = after.get();
+        return new PersonalRecordFlagsDto(
+                workoutExerciseId.equals(r.getHeaviestWorkoutExerciseId()) && beats(r.getHeaviestWeightKg(), heaviest),
+                workoutExerciseId.equals(r.getBestE1rmWorkoutExerciseId()) && beats(r.getBestE1rmKg(), e1rm),
+                workoutExerciseId.equals(r.getBestVolumeWorkoutExerciseId()) && beats(r.getBestVolumeKg(), volume)
+        );
+    }
+
+    private static boolean beats(Double value, Double previous) {
+        return value != null && previous != null && value > previous;
+    }
+
+    private static SetRecordRowView row(Long exerciseId, Long workoutExerciseId, WorkoutSet ws) {
+        return new SetRecordRowView() {
+            @Override public Long getExerciseId() { return exerciseId; }
+            @Override public Long getWorkoutExerciseId() { return workoutExerciseId; }
+            @Override public LocalDateTime getPerformedAt() { return ws.getCreatedAt(); }
+            @Override public Double getWeightKg() { return ws.getWeightKg(); }
+            @Override public Integer getReps() { return ws.getReps(); }
+        };
+    }
+}
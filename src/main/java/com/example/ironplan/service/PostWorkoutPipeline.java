@@ -0,0 +1,141 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.event.WorkoutSessionCompletedEvent;
+import com.example.ironplan.model.OutboxEvent;
+import com.example.ironplan.model.WorkoutSession;
+import com.example.ironplan.model.XpEventType;
+import com.example.ironplan.repository.OutboxEventRepository;
+import com.example.ironplan.repository.WorkoutSessionRepository;
+import com.example.ironplan.rest.error.NotFoundException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+
+/**
+ * Lo que pasa después de completar una sesión, fuera de la petición del usuario
+ * (lo dispara OutboxDispatcher a partir de un evento WORKOUT_COMPLETED).
+ *
+ * Cada paso corre en su propia transacción y se marca como hecho en esa misma
+ * transacción; un reintento solo repite los pasos que no llegaron a confirmarse.
+ */
+@Service
+public class PostWorkoutPipeline {
+
+    /**
+     * Payload del evento WORKOUT_COMPLETED.
+     *
+     * @param xpToGrant         XP de la sesión a sumar al usuario (0 si no corresponde)
+     * @param checkAchievements revisar hazañas de entrenamiento y XP
+     * @param sendNotification  notificar "Rutina completada"
+     */
+    public record WorkoutCompleted(Long sessionId, int xpToGrant, boolean checkAchievements, boolean sendNotification) {}
+
+    static final int STEP_ROLLUP = 1;
+    static final int STEP_XP = 1 << 1;
+    static final int STEP_ACHIEVEMENTS = 1 << 2;
+    static final int STEP_NOTIFICATION = 1 << 3;
+    static final int STEP_RECORDS = 1 << 4;
+
+    private final WorkoutSessionRepository sessionRepo;
+    private final OutboxEventRepository outboxRepo;
+    private final TrainingRollupService rollupService;
+    private final PersonalRecordService recordService;
+    private final XpService xpService;
+    private final AchievementService achievementService;
+    private final NotificationService notificationService;
+    private final ApplicationEventPublisher events;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate txTemplate;
+
+    public PostWorkoutPipeline(
+            WorkoutSessionRepository sessionRepo,
+            OutboxEventRepository outboxRepo,
+            TrainingRollupService rollupService,
+            PersonalRecordService recordService,
+            XpService xpService,
+            AchievementService achievementService,
+            NotificationService notificationService,
+            ApplicationEventPublisher events,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager txManager
+    ) {
+        this.sessionRepo = sessionRepo;
+        this.outboxRepo = outboxRepo;
+        this.rollupService = rollupService;
+        this.recordService = recordService;
+        this.xpService = xpService;
+        this.achievementService = achievementService;
+        this.notificationService = notificationService;
+        this.events = events;
+        this.objectMapper = objectMapper;
+        this.txTemplate = new TransactionTemplate(txManager);
+    }
+
+    public void handle(OutboxEvent event) {
+        WorkoutCompleted payload = readPayload(event);
+        int done = event.getCompletedSteps();
+
+        // 1) Acumulado diario + evento de dominio (racha, cachés de progreso)
+        step(event, payload, done, STEP_ROLLUP, session -> {
+            rollupService.refreshForSession(session);
+            events.publishEvent(new WorkoutSessionCompletedEvent(event.getUserId(), session.getId()));
+        });
+
+        // 2) Récords personales: las series de la sesión cuentan desde que se completa
+        step(event, payload, done, STEP_RECORDS, session ->
+                recordService.applySession(event.getUserId(), session.getId()));
+
+        // 3) XP de la sesión (antes que las hazañas de XP)
+        if (payload.xpToGrant() > 0) {
+            step(event, payload, done, STEP_XP, session -> xpService.grantXp(
+                    session.getUser(),
+                    payload.xpToGrant(),
+                    XpEventType.WORKOUT_COMPLETED,
+                    String.format("Sesión completada: %s", routineName(session))
+            ));
+        }
+
+        // 4) Hazañas (ya son idempotentes: solo desbloquean si no estaban)
+        if (payload.checkAchievements()) {
+            step(event, payload, done, STEP_ACHIEVEMENTS, session ->
+                    achievementService.checkWorkoutAchievements(session.getUser()));
+        }
+
+        // 5) Notificación
+        if (payload.sendNotification()) {
+            step(event, payload, done, STEP_NOTIFICATION, session -> notificationService.notifyWorkoutCompleted(
+                    session.getUser(),
+                    routineName(session),
+                    session.getXpEarned() != null ? session.getXpEarned() : 0
+            ));
+        }
+    }
+
+    private void step(OutboxEvent event, WorkoutCompleted payload, int done, int step, Consumer<WorkoutSession> action) {
+        if ((done & step) != 0) return;
+
+        txTemplate.executeWithoutResult(status -> {
+            WorkoutSession session = sessionRepo.findById(payload.sessionId())
+                    .orElseThrow(() -> new NotFoundException("Sesión de entrenamiento no encontrada: " + payload.sessionId()));
+            action.accept(session);
+            outboxRepo.markStepDone(event.getId(), step);
+        });
+    }
+
+    private static String routineName(WorkoutSession session) {
+        return session.getRoutineDetail() != null ? session.getRoutineDetail().getTitle() : "Entrenamiento";
+    }
+
+    private WorkoutCompleted readPayload(OutboxEvent event) {
+        try {
+            return objectMapper.readValue(event.getPayload(), WorkoutCompleted.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Payload inválido en el evento de outbox " + event.getId(), e);
+        }
+    }
+}
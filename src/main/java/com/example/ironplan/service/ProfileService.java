@@ -21,7 +21,7 @@ public class ProfileService {
     private final RoutineTemplateRepository routineTemplateRepo;
     private final RoutineBlockRepository routineBlockRepo;
     private final RoutineDetailRepository routineDetailRepo;
-    private final UserXpEventRepository userXpEventRepo;
+    private final UserXpMonthlyRepository xpMonthlyRepo;
     private final UserRepository userRepo;
 
     public ProfileService(
@@ -31,7 +31,7 @@ public class ProfileService {
             RoutineTemplateRepository routineTemplateRepo,
             RoutineBlockRepository routineBlockRepo,
             RoutineDetailRepository routineDetailRepo,
-            UserXpEventRepository userXpEventRepo,
+            UserXpMonthlyRepository xpMonthlyRepo,
             UserRepository userRepo
     ) {
         this.workoutSessionRepo = workoutSessionRepo;
@@ -40,7 +40,7 @@ public class ProfileService {
         this.routineTemplateRepo = routineTemplateRepo;
         this.routineBlockRepo = routineBlockRepo;
         this.routineDetailRepo = routineDetailRepo;
-        this.userXpEventRepo = userXpEventRepo;
+        this.xpMonthlyRepo = xpMonthlyRepo;
         this.userRepo = userRepo;
     }
 
@@ -71,8 +71,9 @@ public class ProfileService {
         long totalRoutinesOwned = routineTemplateRepo
                 .countByUser_Id(user.getId());
 
-        long totalXpActions = userXpEventRepo
-                .countByUser_Id(user.getId());
+        // Sale del acumulado mensual, no de contar user_xp_events
+        long totalXpActions = xpMonthlyRepo
+                .sumEvents(user.getId());
 
         var stats = new ProfileStatsDto(
                 totalWorkouts,
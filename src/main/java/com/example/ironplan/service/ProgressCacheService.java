@@ -0,0 +1,175 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.event.WorkoutSessionCompletedEvent;
+import com.example.ironplan.event.WorkoutSessionDiscardedEvent;
+import com.example.ironplan.event.WorkoutSetsSavedEvent;
+import com.example.ironplan.rest.dto.progress.ExerciseProgressDto;
+import com.example.ironplan.rest.dto.progress.ProgressCacheStatsDto;
+import com.example.ironplan.rest.dto.progress.ProgressSummaryDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria de las lecturas de progreso más caras
+ * (resumen y progreso por ejercicio).
+ *
+ * - Acotada por tamaño y por tiempo desde la escritura.
+ * - Se invalida por usuario cuando se confirma una escritura (eventos de dominio),
+ *   usando un índice userId -> claves para no recorrer toda la caché.
+ */
+@Service
+public class ProgressCacheService {
+
+    record SummaryKey(Long userId, int weeks) implements UserKey {}
+
+    record ExerciseKey(Long userId, Long exerciseId, int sessions) implements UserKey {}
+
+    interface UserKey {
+        Long userId();
+    }
+
+    private final UserScopedCache<SummaryKey, ProgressSummaryDto> summaries;
+    private final UserScopedCache<ExerciseKey, ExerciseProgressDto> exercises;
+
+    public ProgressCacheService(
+            @Value("${ironplan.progress-cache.max-size:2000}") long maxSize,
+            @Value("${ironplan.progress-cache.ttl:10m}") Duration ttl
+    ) {
+        this.summaries = new UserScopedCache<>("summary", maxSize, ttl);
+        this.exercises = new UserScopedCache<>("exercise", maxSize, ttl);
+    }
+
+    // ============ LECTURA ============
+
+    public ProgressSummaryDto getSummary(Long userId, int weeks, Supplier<ProgressSummaryDto> loader) {
+        return summaries.get(new SummaryKey(userId, weeks), loader);
+    }
+
+    public ExerciseProgressDto getExerciseProgress(
+            Long userId, Long exerciseId, int sessions, Supplier<ExerciseProgressDto> loader) {
+        return exercises.get(new ExerciseKey(userId, exerciseId, sessions), loader);
+    }
+
+    public List<ProgressCacheStatsDto> stats() {
+        return List.of(summaries.stats(), exercises.stats());
+    }
+
+    // ============ INVALIDACIÓN ============
+    // AFTER_COMMIT: así una lectura concurrente no vuelve a cachear datos sin confirmar.
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSetsSaved(WorkoutSetsSavedEvent event) {
+        summaries.invalidateUser(event.userId(), k -> true);
+        if (event.exerciseId() == null) {
+            exercises.invalidateUser(event.userId(), k -> true);
+        } else {
+            exercises.invalidateUser(event.userId(), k -> k.exerciseId().equals(event.exerciseId()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSessionCompleted(WorkoutSessionCompletedEvent event) {
+        // El historial por ejercicio solo cuenta sesiones COMPLETED: cambia todo
+        summaries.invalidateUser(event.userId(), k -> true);
+        exercises.invalidateUser(event.userId(), k -> true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSessionDiscarded(WorkoutSessionDiscardedEvent event) {
+        summaries.invalidateUser(event.userId(), k -> true);
+        exercises.invalidateUser(event.userId(), k -> event.exerciseIds().contains(k.exerciseId()));
+    }
+
+    // ============ HELPERS ============
+
+    /**
+     * Caché Caffeine con índice secundario por usuario.
+     */
+    private static final class UserScopedCache<K extends UserKey, V> {
+
+        private final String name;
+        private final Cache<K, V> cache;
+        private final Map<Long, Set<K>> keysByUser = new ConcurrentHashMap<>();
+        private final AtomicLong invalidations = new AtomicLong();
+
+        UserScopedCache(String name, long maxSize, Duration ttl) {
+            this.name = name;
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    // Síncrono: corre dentro del bloqueo de la clave, igual que la carga
+                    .<K, V>evictionListener((key, value, cause) -> {
+                        if (key != null) unindex(key);
+                    })
+                    .build();
+        }
+
+        V get(K key, Supplier<V> loader) {
+            return cache.get(key, k -> {
+                // Indexamos antes de guardar el valor: una invalidación concurrente
+                // espera a que termine la carga y la elimina
+                keysByUser.computeIfAbsent(k.userId(), id -> ConcurrentHashMap.newKeySet()).add(k);
+                V value = null;
+                try {
+                    value = loader.get();
+                    return value;
+                } finally {
+                    // Si la carga falla (o no devuelve nada) no queda entrada: fuera del índice
+                    if (value == null) unindex(k);
+                }
+            });
+        }
+
+        void invalidateUser(Long userId, Predicate<K> filter) {
+            Set<K> keys = keysByUser.get(userId);
+            if (keys == null) return;
+
+            List<K> toRemove = keys.stream().filter(filter).toList();
+            if (toRemove.isEmpty()) return;
+
+            // compute bloquea la clave: una carga en curso termina antes y luego se borra
+            for (K key : toRemove) {
+                cache.asMap().compute(key, (k, v) -> {
+                    unindex(k);
+                    return null;
+                });
+            }
+            invalidations.addAndGet(toRemove.size());
+        }
+
+        private void unindex(K key) {
+            keysByUser.computeIfPresent(key.userId(), (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+
+        ProgressCacheStatsDto stats() {
+            CacheStats s = cache.stats();
+            return new ProgressCacheStatsDto(
+                    name,
+                    cache.estimatedSize(),
+                    s.hitCount(),
+                    s.missCount(),
+                    s.hitRate(),
+                    s.evictionCount(),
+                    invalidations.get()
+            );
+        }
+    }
+}
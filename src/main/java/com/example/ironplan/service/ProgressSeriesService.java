@@ -0,0 +1,177 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.Exercise;
+import com.example.ironplan.repository.ExerciseRepository;
+import com.example.ironplan.repository.ProgressRepository;
+import com.example.ironplan.rest.dto.progress.ExerciseSeriesDto;
+import com.example.ironplan.rest.dto.progress.SeriesPointDto;
+import com.example.ironplan.rest.error.NotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Series temporales de un ejercicio para las gráficas.
+ *
+ * Agrupa por día/semana/mes en el servidor y reduce cada serie con LTTB
+ * (Largest-Triangle-Three-Buckets), que conserva picos y valles, a un número
+ * máximo de puntos. El tamaño de la respuesta no depende del historial.
+ */
+@Service
+public class ProgressSeriesService {
+
+    public enum Bucket {
+        DAY, WEEK, MONTH;
+
+        public static Bucket from(String value) {
+            try {
+                return Bucket.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Agrupación no soportada: " + value);
+            }
+        }
+
+        LocalDate start(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+    }
+
+    // Límites del presupuesto de puntos
+    private static final int MIN_POINTS = 3;
+    private static final int MAX_POINTS = 500;
+
+    // Límite inferior cuando no se pide fecha de inicio
+    private static final LocalDate HISTORY_START = LocalDate.of(2000, 1, 1);
+
+    private final ProgressRepository progressRepo;
+    private final ExerciseRepository exerciseRepo;
+
+    public ProgressSeriesService(ProgressRepository progressRepo, ExerciseRepository exerciseRepo) {
+        this.progressRepo = progressRepo;
+        this.exerciseRepo = exerciseRepo;
+    }
+
+    @Transactional(readOnly = true)
+    public ExerciseSeriesDto getExerciseSeries(Long userId, Long exerciseId, Bucket bucket, int points, LocalDate from) {
+        Exercise exercise = exerciseRepo.findById(exerciseId)
+                .orElseThrow(() -> new NotFoundException("Ejercicio no encontrado: " + exerciseId));
+
+        int budget = Math.max(MIN_POINTS, Math.min(points, MAX_POINTS));
+        LocalDate start = from != null ? from : HISTORY_START;
+
+        // Agregar por bucket: mejor 1RM y volumen total
+        Map<LocalDate, double[]> byBucket = new TreeMap<>(); // [0] = 1RM, [1] = volumen
+        for (ProgressRepository.DailySetGroupView row : progressRepo.findDailySetGroups(userId, exerciseId, start.atStartOfDay())) {
+            if (row.getDay() == null) continue;
+
+            double[] acc = byBucket.computeIfAbsent(bucket.start(row.getDay()), d -> new double[2]);
+            Double weight = row.getWeightKg();
+            Integer reps = row.getReps();
+            if (weight == null || reps == null) continue;
+
+            Double e1rm = ProgressService.calculate1RM(weight, reps);
+            if (e1rm != null && e1rm > acc[0]) {
+                acc[0] = e1rm;
+            }
+            long sets = row.getSets() != null ? row.getSets() : 0;
+            acc[1] += weight * reps * sets;
+        }
+
+        List<SeriesPointDto> e1rm = new ArrayList<>(byBucket.size());
+        List<SeriesPointDto> volume = new ArrayList<>(byBucket.size());
+        byBucket.forEach((date, acc) -> {
+            if (acc[0] > 0) e1rm.add(new SeriesPointDto(date, round(acc[0])));
+            volume.add(new SeriesPointDto(date, round(acc[1])));
+        });
+
+        return new ExerciseSeriesDto(
+                exerciseId,
+                exercise.getName(),
+                bucket.name(),
+                byBucket.size(),
+                downsample(e1rm, budget),
+                downsample(volume, budget)
+        );
+    }
+
+    // ============ LTTB ============
+
+    /**
+     * Largest-Triangle-Three-Buckets: conserva el primer y último punto y, en cada
+     * bucket intermedio, el punto que forma el triángulo de mayor área con el punto
+     * elegido antes y la media del bucket siguiente.
+     */
+    static List<SeriesPointDto> downsample(List<SeriesPointDto> data, int threshold) {
+        int n = data.size();
+        if (threshold >= n || threshold < 3) {
+            return data;
+        }
+
+        List<SeriesPointDto> sampled = new ArrayList<>(threshold);
+        double every = (double) (n - 2) / (threshold - 2);
+
+        int a = 0;
+        sampled.add(data.get(a));
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // Media del bucket siguiente
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x(data.get(j));
+                avgY += data.get(j).value();
+            }
+            int avgLen = Math.max(1, avgEnd - avgStart);
+            avgX /= avgLen;
+            avgY /= avgLen;
+
+            // Bucket actual
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+
+            double ax = x(data.get(a));
+            double ay = data.get(a).value();
+            double maxArea = -1;
+            int next = rangeStart;
+
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs(
+                        (ax - avgX) * (data.get(j).value() - ay)
+                                - (ax - x(data.get(j))) * (avgY - ay)
+                );
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+
+            sampled.add(data.get(next));
+            a = next;
+        }
+
+        sampled.add(data.get(n - 1));
+        return sampled;
+    }
+
+    private static double x(SeriesPointDto p) {
+        return p.date().toEpochDay();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -4,13 +4,14 @@ import com.example.ironplan.model.*;
 import com.example.ironplan.repository.*;
 import com.example.ironplan.rest.dto.progress.*;
 import com.example.ironplan.rest.error.NotFoundException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -20,19 +21,38 @@ public class ProgressService {
 
     private final ProgressRepository progressRepo;
     private final ExerciseRepository exerciseRepo;
-    private final WorkoutSetRepository workoutSetRepo;
+    private final RoutineDetailRepository routineDetailRepo;
+    private final UserDailyTrainingRepository dailyRepo;
+    private final TrainingRollupService rollupService;
+    private final PersonalRecordService recordService;
+    private final TrainingStreakService streakService;
 
     // Incremento de peso estándar (2.5 kg para la mayoría de ejercicios)
     private static final double WEIGHT_INCREMENT = 2.5;
 
+    // Máximo de sesiones por página en el historial de un ejercicio
+    private static final int MAX_HISTORY_PAGE = 50;
+
+    // Entrenamientos recientes que mira la recomendación, y ejercicios por petición
+    private static final int RECENT_PERFORMANCES = 3;
+    private static final int MAX_RECOMMENDATIONS = 50;
+
     public ProgressService(
             ProgressRepository progressRepo,
             ExerciseRepository exerciseRepo,
-            WorkoutSetRepository workoutSetRepo
+            RoutineDetailRepository routineDetailRepo,
+            UserDailyTrainingRepository dailyRepo,
+            TrainingRollupService rollupService,
+            PersonalRecordService recordService,
+            TrainingStreakService streakService
     ) {
         this.progressRepo = progressRepo;
         this.exerciseRepo = exerciseRepo;
-        this.workoutSetRepo = workoutSetRepo;
+        this.routineDetailRepo = routineDetailRepo;
+        this.dailyRepo = dailyRepo;
+        this.rollupService = rollupService;
+        this.recordService = recordService;
+        this.streakService = streakService;
     }
 
     // ============ RESUMEN GENERAL DE PROGRESO ============
@@ -42,41 +62,42 @@ public class ProgressService {
         Long userId = user.getId();
 
         // Totales
-        long totalWorkouts = progressRepo.countCompletedWorkouts(userId);
-        long totalSets = progressRepo.countCompletedSets(userId);
-        Double totalVolume = progressRepo.sumTotalVolume(userId);
-        Long totalMinutes = progressRepo.sumTotalMinutes(userId);
-
-        // Frecuencia y streak
-        List<LocalDate> workoutDates = progressRepo.findWorkoutDates(userId);
-        int currentStreak = calculateCurrentStreak(workoutDates);
-        int longestStreak = calculateLongestStreak(workoutDates);
-        double avgWorkoutsPerWeek = calculateAvgWorkoutsPerWeek(workoutDates, weeksToShow);
-
-        // Top ejercicios
-        List<Object[]> topExercisesRaw = progressRepo.findTopExercisesByVolume(userId);
-        List<ExercisePrDto> topExercises = topExercisesRaw.stream()
-                .limit(5)
+        ProgressRepository.WorkoutTotalsView workoutTotals = progressRepo.findWorkoutTotals(userId);
+        long totalWorkouts = workoutTotals.getWorkouts() != null ? workoutTotals.getWorkouts() : 0;
+        Long totalMinutes = workoutTotals.getMinutes();
+
+        // Series y volumen salen del acumulado diario
+        UserDailyTrainingRepository.RollupTotalsView rollupTotals = dailyRepo.sumTotals(userId);
+        long totalSets = rollupTotals.getSets() != null ? rollupTotals.getSets() : 0;
+        Double totalVolume = rollupTotals.getVolumeKg();
+
+        // Frecuencia y streak (estado persistido, sin listas de fechas)
+        TrainingStreakService.StreakSummary streak = streakService.getSummary(userId, weeksToShow);
+
+        // Top ejercicios (el 1RM y las reps del top set salen del índice de récords)
+        List<ProgressRepository.ExerciseVolumeView> topRows =
+                progressRepo.findTopExercisesByVolume(userId, PageRequest.of(0, 5));
+        Map<Long, UserExerciseRecord> records = recordService.findAll(userId,
+                topRows.stream().map(ProgressRepository.ExerciseVolumeView::getExerciseId).toList());
+
+        List<ExercisePrDto> topExercises = topRows.stream()
                 .map(row -> {
-                    Long exId = (Long) row[0];
-                    String exName = (String) row[1];
-                    String muscle = (String) row[2];
-                    Double topWeight = row[3] != null ? ((Number) row[3]).doubleValue() : null;
-                    Double volume = row[4] != null ? ((Number) row[4]).doubleValue() : 0.0;
-
-                    // Obtener top set para 1RM
-                    List<WorkoutSet> topSets = progressRepo.findTopSetForExercise(userId, exId);
-                    Double estimated1RM = null;
-                    Integer topReps = null;
-                    if (!topSets.isEmpty()) {
-                        WorkoutSet ts = topSets.get(0);
-                        topReps = ts.getReps();
-                        if (ts.getWeightKg() != null && ts.getReps() != null && ts.getReps() > 0) {
-                            estimated1RM = calculate1RM(ts.getWeightKg(), ts.getReps());
-                        }
-                    }
-
-                    return new ExercisePrDto(exId, exName, muscle, topWeight, topReps, estimated1RM, volume);
+                    Long exId = row.getExerciseId();
+                    Double volume = row.getVolumeKg() != null ? row.getVolumeKg() : 0.0;
+
+                    UserExerciseRecord record = records.get(exId);
+                    Integer topReps = record != null ? record.getHeaviestReps() : null;
+                    Double estimated1RM = record != null ? record.getBestE1rmKg() : null;
+
+                    return new ExercisePrDto(
+                            exId,
+                            row.getExerciseName(),
+                            row.getPrimaryMuscle(),
+                            row.getTopWeight(),
+                            topReps,
+                            estimated1RM,
+                            volume
+                    );
                 })
                 .toList();
 
@@ -88,9 +109,9 @@ public class ProgressService {
                 (int) totalSets,
                 totalVolume != null ? totalVolume : 0.0,
                 totalMinutes != null ? totalMinutes.intValue() : 0,
-                avgWorkoutsPerWeek,
-                currentStreak,
-                longestStreak,
+                streak.avgWorkoutsPerWeek(),
+                streak.currentStreak(),
+                streak.longestStreak(),
                 topExercises,
                 weeklyHistory
         );
@@ -99,49 +120,59 @@ public class ProgressService {
     // ============ HISTORIAL DE UN EJERCICIO ============
 
     @Transactional(readOnly = true)
-    public ExerciseProgressDto getExerciseProgress(User user, Long exerciseId, int sessionsToShow) {
+    public ExerciseProgressDto getExerciseProgress(User user, Long exerciseId, int sessionsToShow, String cursor) {
         Long userId = user.getId();
 
         Exercise exercise = exerciseRepo.findById(exerciseId)
                 .orElseThrow(() -> new NotFoundException("Ejercicio no encontrado: " + exerciseId));
 
-        List<WorkoutSet> allSets = progressRepo.findAllCompletedSetsForExercise(userId, exerciseId);
+        // Totales de por vida (agregados en MySQL, sin traer las series)
+        ProgressRepository.ExerciseLifetimeTotalsView totals = progressRepo.findExerciseLifetimeTotals(userId, exerciseId);
+        int totalSessions = totals.getSessions() != null ? totals.getSessions().intValue() : 0;
+        double totalVolume = totals.getVolumeKg() != null ? totals.getVolumeKg() : 0.0;
 
-        if (allSets.isEmpty()) {
+        if (totalSessions == 0) {
             return new ExerciseProgressDto(
                     exerciseId,
                     exercise.getName(),
                     exercise.getPrimaryMuscle(),
                     0, 0.0, null, null,
-                    Collections.emptyList()
+                    Collections.emptyList(),
+                    null
             );
         }
 
-        // Agrupar por WorkoutExercise (sesión)
-        Map<Long, List<WorkoutSet>> setsByWorkoutExercise = allSets.stream()
-                .collect(Collectors.groupingBy(ws -> ws.getWorkoutExercise().getId()));
-
-        // Calcular totales
-        int totalSessions = setsByWorkoutExercise.size();
-        double totalVolume = allSets.stream()
-                .filter(ws -> ws.getWeightKg() != null && ws.getReps() != null)
-                .mapToDouble(ws -> ws.getWeightKg() * ws.getReps())
-                .sum();
-
-        // Top set global
+        // Top set global y mejor 1RM (índice de récords)
         TopSetDto topSet = null;
         Double estimated1RM = null;
-        List<WorkoutSet> topSets = progressRepo.findTopSetForExercise(userId, exerciseId);
-        if (!topSets.isEmpty()) {
-            WorkoutSet ts = topSets.get(0);
-            topSet = new TopSetDto(ts.getWeightKg(), ts.getReps(), ts.getCreatedAt());
-            if (ts.getWeightKg() != null && ts.getReps() != null && ts.getReps() > 0) {
-                estimated1RM = calculate1RM(ts.getWeightKg(), ts.getReps());
+        UserExerciseRecord record = recordService.find(userId, exerciseId).orElse(null);
+        if (record != null) {
+            if (record.getHeaviestWeightKg() != null) {
+                topSet = new TopSetDto(record.getHeaviestWeightKg(), record.getHeaviestReps(), record.getHeaviestAt());
             }
+            estimated1RM = record.getBestE1rmKg();
         }
 
-        // Historial por sesión (últimas N)
-        List<ExerciseSessionHistoryDto> history = buildSessionHistory(setsByWorkoutExercise, sessionsToShow);
+        // Historial por sesión: una página de N sesiones a partir del cursor
+        int limit = Math.max(1, Math.min(sessionsToShow, MAX_HISTORY_PAGE));
+        HistoryCursor after = HistoryCursor.decode(cursor);
+
+        List<WorkoutExercise> page = new ArrayList<>(progressRepo.findExerciseHistoryPage(
+                userId,
+                exerciseId,
+                after != null ? after.completedAt() : null,
+                after != null ? after.workoutExerciseId() : null,
+                PageRequest.of(0, limit + 1)
+        ));
+
+        String nextCursor = null;
+        if (page.size() > limit) {
+            page = page.subList(0, limit);
+            WorkoutExercise last = page.get(page.size() - 1);
+            nextCursor = new HistoryCursor(last.getWorkoutSession().getCompletedAt(), last.getId()).encode();
+        }
+
+        List<ExerciseSessionHistoryDto> history = buildSessionHistory(page);
 
         return new ExerciseProgressDto(
                 exerciseId,
@@ -151,7 +182,8 @@ public class ProgressService {
                 totalVolume,
                 topSet,
                 estimated1RM,
-                history
+                history,
+                nextCursor
         );
     }
 
@@ -161,44 +193,38 @@ public class ProgressService {
     public List<WeeklyStatsDto> getWeeklyHistory(User user, int weeksToShow) {
         Long userId = user.getId();
         List<WeeklyStatsDto> weeks = new ArrayList<>();
+        if (weeksToShow <= 0) return weeks;
 
         LocalDate today = LocalDate.now();
         LocalDate startOfWeek = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate oldestWeekStart = startOfWeek.minusWeeks(weeksToShow - 1L);
+
+        // Un solo range scan sobre el acumulado diario
+        Map<LocalDate, UserDailyTraining> daysByDate = rollupService
+                .findRange(userId, oldestWeekStart, startOfWeek.plusDays(6))
+                .stream()
+                .collect(Collectors.toMap(UserDailyTraining::getTrainingDate, d -> d));
 
         for (int i = 0; i < weeksToShow; i++) {
             LocalDate weekStart = startOfWeek.minusWeeks(i);
             LocalDate weekEnd = weekStart.plusDays(6);
 
-            LocalDateTime startDt = weekStart.atStartOfDay();
-            LocalDateTime endDt = weekEnd.plusDays(1).atStartOfDay();
-
-            List<WorkoutSet> weekSets = progressRepo.findCompletedSetsInDateRange(userId, startDt, endDt);
-
-            // Agrupar por sesión
-            Map<Long, List<WorkoutSet>> setsBySession = weekSets.stream()
-                    .collect(Collectors.groupingBy(ws -> ws.getWorkoutExercise().getWorkoutSession().getId()));
-
-            int workoutsCompleted = setsBySession.size();
-            int totalSets = weekSets.size();
-            double totalVolume = weekSets.stream()
-                    .filter(ws -> ws.getWeightKg() != null && ws.getReps() != null)
-                    .mapToDouble(ws -> ws.getWeightKg() * ws.getReps())
-                    .sum();
-
-            // Calcular minutos
-            int totalMinutes = setsBySession.values().stream()
-                    .mapToInt(sets -> {
-                        if (sets.isEmpty()) return 0;
-                        WorkoutSession session = sets.get(0).getWorkoutExercise().getWorkoutSession();
-                        if (session.getStartedAt() != null && session.getCompletedAt() != null) {
-                            return (int) ChronoUnit.MINUTES.between(session.getStartedAt(), session.getCompletedAt());
-                        }
-                        return 0;
-                    })
-                    .sum();
+            int workoutsCompleted = 0;
+            int totalSets = 0;
+            double totalVolume = 0.0;
+            int totalMinutes = 0;
+
+            for (int d = 0; d < 7; d++) {
+                UserDailyTraining day = daysByDate.get(weekStart.plusDays(d));
+                if (day == null) continue;
+                workoutsCompleted += day.getSessionsCount();
+                totalSets += day.getSetsCount();
+                totalVolume += day.getVolumeKg();
+                totalMinutes += day.getMinutes();
+            }
 
             // Daily breakdown
-            List<DailyWorkoutDto> dailyBreakdown = buildDailyBreakdown(weekStart, setsBySession);
+            List<DailyWorkoutDto> dailyBreakdown = buildDailyBreakdown(weekStart, daysByDate);
 
             weeks.add(new WeeklyStatsDto(
                     weekStart,
@@ -224,43 +250,117 @@ public class ProgressService {
             int repsMin,
             int repsMax
     ) {
+        var item = new RecommendationBatchRequest.Item(exerciseId, plannedSets, repsMin, repsMax);
+        return getProgressionRecommendations(user, new RecommendationBatchRequest(null, List.of(item))).get(0);
+    }
+
+    /**
+     * Recomendaciones para varios ejercicios (ej: todos los de una RoutineDetail).
+     * Las últimas ejecuciones de todos los ejercicios salen de una sola consulta
+     * con ventana y sus series de otra; el resto se calcula en memoria.
+     */
+    @Transactional(readOnly = true)
+    public List<ProgressionRecommendationDto> getProgressionRecommendations(User user, RecommendationBatchRequest request) {
         Long userId = user.getId();
 
-        Exercise exercise = exerciseRepo.findById(exerciseId)
-                .orElseThrow(() -> new NotFoundException("Ejercicio no encontrado: " + exerciseId));
+        List<RecommendationBatchRequest.Item> items = resolveRecommendationItems(request);
+        if (items.isEmpty()) return List.of();
+        if (items.size() > MAX_RECOMMENDATIONS) {
+            throw new IllegalArgumentException("Máximo " + MAX_RECOMMENDATIONS + " ejercicios por petición");
+        }
 
-        // Obtener últimos 3 entrenamientos de este ejercicio
-        List<WorkoutExercise> recentExercises = progressRepo.findRecentWorkoutExercises(userId, exerciseId);
-        
-        // Limitar a 3
-        recentExercises = recentExercises.stream().limit(3).toList();
+        Set<Long> exerciseIds = items.stream()
+                .map(RecommendationBatchRequest.Item::exerciseId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Long, Exercise> exercisesById = exerciseRepo.findAllById(exerciseIds).stream()
+                .collect(Collectors.toMap(Exercise::getId, e -> e));
+
+        // Últimos 3 entrenamientos de cada ejercicio
+        Map<Long, List<ProgressRepository.RecentPerformanceRowView>> recentByExercise =
+                progressRepo.findRecentPerformances(userId, exerciseIds, RECENT_PERFORMANCES).stream()
+                        .collect(Collectors.groupingBy(
+                                ProgressRepository.RecentPerformanceRowView::getExerciseId,
+                                LinkedHashMap::new,
+                                Collectors.toList()
+                        ));
+
+        // Series de todas esas ejecuciones en una sola consulta
+        List<Long> workoutExerciseIds = recentByExercise.values().stream()
+                .flatMap(List::stream)
+                .map(ProgressRepository.RecentPerformanceRowView::getWorkoutExerciseId)
+                .toList();
+        Map<Long, List<WorkoutSet>> setsByWorkoutExercise = workoutExerciseIds.isEmpty()
+                ? Map.of()
+                : progressRepo.findCompletedSetsForWorkoutExercises(workoutExerciseIds).stream()
+                        .collect(Collectors.groupingBy(ws -> ws.getWorkoutExercise().getId()));
+
+        List<ProgressionRecommendationDto> result = new ArrayList<>(items.size());
+        for (RecommendationBatchRequest.Item item : items) {
+            Exercise exercise = exercisesById.get(item.exerciseId());
+            if (exercise == null) {
+                throw new NotFoundException("Ejercicio no encontrado: " + item.exerciseId());
+            }
 
-        if (recentExercises.isEmpty()) {
-            // Primera vez
-            return new ProgressionRecommendationDto(
-                    exerciseId,
-                    exercise.getName(),
-                    plannedSets,
-                    repsMin,
-                    repsMax,
-                    Collections.emptyList(),
-                    ProgressionRecommendationDto.RecommendationType.FIRST_TIME,
-                    "Primera vez con este ejercicio. Empieza con un peso que te permita hacer " + repsMin + "-" + repsMax + " reps con buena técnica.",
-                    null,
-                    (repsMin + repsMax) / 2
-            );
+            List<ProgressRepository.RecentPerformanceRowView> recent =
+                    recentByExercise.getOrDefault(item.exerciseId(), List.of());
+
+            if (recent.isEmpty()) {
+                result.add(firstTimeRecommendation(exercise, item.plannedSets(), item.repsMin(), item.repsMax()));
+                continue;
+            }
+
+            // Construir historial de rendimiento reciente
+            List<RecentPerformanceDto> recentPerformance =
+                    buildRecentPerformance(recent, setsByWorkoutExercise, item.repsMin(), item.repsMax());
+
+            // Aplicar algoritmo de recomendación
+            result.add(calculateRecommendation(
+                    exercise,
+                    item.plannedSets(),
+                    item.repsMin(),
+                    item.repsMax(),
+                    recentPerformance
+            ));
         }
 
-        // Construir historial de rendimiento reciente
-        List<RecentPerformanceDto> recentPerformance = buildRecentPerformance(recentExercises, repsMin, repsMax);
+        return result;
+    }
 
-        // Aplicar algoritmo de recomendación
-        return calculateRecommendation(
-                exercise,
+    private List<RecommendationBatchRequest.Item> resolveRecommendationItems(RecommendationBatchRequest request) {
+        if (request.routineDetailId() != null) {
+            RoutineDetail detail = routineDetailRepo.findWithExercisesById(request.routineDetailId())
+                    .orElseThrow(() -> new NotFoundException("Sesión de rutina no encontrada: " + request.routineDetailId()));
+
+            return detail.getExercises().stream()
+                    .map(re -> new RecommendationBatchRequest.Item(
+                            re.getExercise().getId(),
+                            re.getSets(),
+                            re.getRepsMin(),
+                            re.getRepsMax()
+                    ))
+                    .toList();
+        }
+        return request.exercises() != null ? request.exercises() : List.of();
+    }
+
+    private ProgressionRecommendationDto firstTimeRecommendation(
+            Exercise exercise,
+            int plannedSets,
+            int repsMin,
+            int repsMax
+    ) {
+        return new ProgressionRecommendationDto(
+                exercise.getId(),
+                exercise.getName(),
                 plannedSets,
                 repsMin,
                 repsMax,
-                recentPerformance
+                Collections.emptyList(),
+                ProgressionRecommendationDto.RecommendationType.FIRST_TIME,
+                "Primera vez con este ejercicio. Empieza con un peso que te permita hacer " + repsMin + "-" + repsMax + " reps con buena técnica.",
+                null,
+                (repsMin + repsMax) / 2
         );
     }
 
@@ -378,15 +478,16 @@ public class ProgressService {
     }
 
     private List<RecentPerformanceDto> buildRecentPerformance(
-            List<WorkoutExercise> recentExercises,
+            List<ProgressRepository.RecentPerformanceRowView> recent,
+            Map<Long, List<WorkoutSet>> setsByWorkoutExercise,
             int repsMin,
             int repsMax
     ) {
         List<RecentPerformanceDto> result = new ArrayList<>();
 
-        for (WorkoutExercise we : recentExercises) {
-            List<WorkoutSet> sets = workoutSetRepo.findByWorkoutExercise_IdOrderBySetNumberAsc(we.getId());
-            
+        for (ProgressRepository.RecentPerformanceRowView row : recent) {
+            List<WorkoutSet> sets = setsByWorkoutExercise.getOrDefault(row.getWorkoutExerciseId(), List.of());
+
             List<WorkoutSet> completedSets = sets.stream()
                     .filter(WorkoutSet::isCompleted)
                     .filter(ws -> ws.getReps() != null)
@@ -418,12 +519,8 @@ public class ProgressService {
                     .mapToDouble(ws -> ws.getWeightKg() * ws.getReps())
                     .sum();
 
-            LocalDateTime date = we.getWorkoutSession().getCompletedAt() != null
-                    ? we.getWorkoutSession().getCompletedAt()
-                    : we.getWorkoutSession().getStartedAt();
-
             result.add(new RecentPerformanceDto(
-                    date,
+                    row.getPerformedAt(),
                     avgWeight > 0 ? avgWeight : null,
                     avgReps,
                     completedSets.size(),
@@ -436,30 +533,21 @@ public class ProgressService {
         return result;
     }
 
-    private List<ExerciseSessionHistoryDto> buildSessionHistory(
-            Map<Long, List<WorkoutSet>> setsByWorkoutExercise,
-            int limit
-    ) {
-        // Ordenar por fecha (más reciente primero)
-        List<Map.Entry<Long, List<WorkoutSet>>> sorted = setsByWorkoutExercise.entrySet().stream()
-                .sorted((e1, e2) -> {
-                    LocalDateTime d1 = e1.getValue().get(0).getWorkoutExercise().getWorkoutSession().getCompletedAt();
-                    LocalDateTime d2 = e2.getValue().get(0).getWorkoutExercise().getWorkoutSession().getCompletedAt();
-                    if (d1 == null && d2 == null) return 0;
-                    if (d1 == null) return 1;
-                    if (d2 == null) return -1;
-                    return d2.compareTo(d1);
-                })
-                .limit(limit)
-                .toList();
+    private List<ExerciseSessionHistoryDto> buildSessionHistory(List<WorkoutExercise> page) {
+        if (page.isEmpty()) return Collections.emptyList();
+
+        // Series de toda la página en una sola consulta
+        Map<Long, List<WorkoutSet>> setsByWorkoutExercise = progressRepo.findCompletedSetsForWorkoutExercises(
+                        page.stream().map(WorkoutExercise::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(ws -> ws.getWorkoutExercise().getId()));
 
         List<ExerciseSessionHistoryDto> history = new ArrayList<>();
 
-        for (Map.Entry<Long, List<WorkoutSet>> entry : sorted) {
-            List<WorkoutSet> sets = entry.getValue();
+        for (WorkoutExercise we : page) {
+            List<WorkoutSet> sets = setsByWorkoutExercise.getOrDefault(we.getId(), List.of());
             if (sets.isEmpty()) continue;
 
-            WorkoutExercise we = sets.get(0).getWorkoutExercise();
             WorkoutSession session = we.getWorkoutSession();
 
             double volume = sets.stream()
@@ -511,44 +599,26 @@ public class ProgressService {
         return history;
     }
 
-    private List<DailyWorkoutDto> buildDailyBreakdown(LocalDate weekStart, Map<Long, List<WorkoutSet>> setsBySession) {
+    private List<DailyWorkoutDto> buildDailyBreakdown(LocalDate weekStart, Map<LocalDate, UserDailyTraining> daysByDate) {
         List<DailyWorkoutDto> days = new ArrayList<>();
 
         for (int i = 0; i < 7; i++) {
             LocalDate date = weekStart.plusDays(i);
             int dayOfWeek = date.getDayOfWeek().getValue();
 
-            // Buscar si hay workout ese día
-            boolean found = false;
-            for (Map.Entry<Long, List<WorkoutSet>> entry : setsBySession.entrySet()) {
-                if (entry.getValue().isEmpty()) continue;
-                WorkoutSession session = entry.getValue().get(0).getWorkoutExercise().getWorkoutSession();
-                LocalDate sessionDate = session.getCompletedAt() != null
-                        ? session.getCompletedAt().toLocalDate()
-                        : (session.getStartedAt() != null ? session.getStartedAt().toLocalDate() : null);
-
-                if (date.equals(sessionDate)) {
-                    int sets = entry.getValue().size();
-                    double volume = entry.getValue().stream()
-                            .filter(ws -> ws.getWeightKg() != null && ws.getReps() != null)
-                            .mapToDouble(ws -> ws.getWeightKg() * ws.getReps())
-                            .sum();
-                    int minutes = 0;
-                    if (session.getStartedAt() != null && session.getCompletedAt() != null) {
-                        minutes = (int) ChronoUnit.MINUTES.between(session.getStartedAt(), session.getCompletedAt());
-                    }
-
-                    String sessionName = session.getRoutineDetail() != null
-                            ? session.getRoutineDetail().getTitle()
-                            : "Entrenamiento";
-
-                    days.add(new DailyWorkoutDto(date, dayOfWeek, true, session.getId(), sessionName, sets, volume, minutes));
-                    found = true;
-                    break;
-                }
-            }
-
-            if (!found) {
+            UserDailyTraining day = daysByDate.get(date);
+            if (day != null && day.getSessionsCount() > 0) {
+                days.add(new DailyWorkoutDto(
+                        date,
+                        dayOfWeek,
+                        true,
+                        day.getLastSessionId(),
+                        day.getSessionTitles(),
+                        day.getSetsCount(),
+                        day.getVolumeKg(),
+                        day.getMinutes()
+                ));
+            } else {
                 days.add(new DailyWorkoutDto(date, dayOfWeek, false, null, null, 0, 0, 0));
             }
         }
@@ -556,64 +626,28 @@ public class ProgressService {
         return days;
     }
 
-    private int calculateCurrentStreak(List<LocalDate> workoutDates) {
-        if (workoutDates.isEmpty()) return 0;
-
-        LocalDate today = LocalDate.now();
-        LocalDate yesterday = today.minusDays(1);
-        
-        // Si no entrenó hoy ni ayer, streak = 0
-        if (!workoutDates.contains(today) && !workoutDates.contains(yesterday)) {
-            return 0;
-        }
-
-        int streak = 0;
-        LocalDate checkDate = workoutDates.contains(today) ? today : yesterday;
+    /**
+     * Cursor del historial de un ejercicio: (completedAt, workoutExerciseId) en Base64 URL-safe.
+     */
+    private record HistoryCursor(LocalDateTime completedAt, Long workoutExerciseId) {
 
-        for (LocalDate date : workoutDates) {
-            if (date.equals(checkDate)) {
-                streak++;
-                checkDate = checkDate.minusDays(1);
-            } else if (date.isBefore(checkDate)) {
-                break;
-            }
+        String encode() {
+            String raw = completedAt + "|" + workoutExerciseId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
         }
 
-        return streak;
-    }
-
-    private int calculateLongestStreak(List<LocalDate> workoutDates) {
-        if (workoutDates.isEmpty()) return 0;
-
-        // Ordenar ascendente para calcular
-        List<LocalDate> sorted = workoutDates.stream()
-                .sorted()
-                .toList();
-
-        int maxStreak = 1;
-        int currentStreak = 1;
-
-        for (int i = 1; i < sorted.size(); i++) {
-            long daysBetween = ChronoUnit.DAYS.between(sorted.get(i - 1), sorted.get(i));
-            if (daysBetween == 1) {
-                currentStreak++;
-                maxStreak = Math.max(maxStreak, currentStreak);
-            } else {
-                currentStreak = 1;
+        static HistoryCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new HistoryCursor(
+                        LocalDateTime.parse(raw.substring(0, sep)),
+                        Long.parseLong(raw.substring(sep + 1))
+                );
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de historial inválido");
             }
         }
-
-        return maxStreak;
-    }
-
-    private double calculateAvgWorkoutsPerWeek(List<LocalDate> workoutDates, int weeksToConsider) {
-        if (workoutDates.isEmpty()) return 0.0;
-
-        LocalDate cutoff = LocalDate.now().minusWeeks(weeksToConsider);
-        long count = workoutDates.stream()
-                .filter(d -> !d.isBefore(cutoff))
-                .count();
-
-        return (double) count / weeksToConsider;
     }
 }
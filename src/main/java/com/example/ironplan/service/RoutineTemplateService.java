@@ -26,7 +26,7 @@ public class RoutineTemplateService {
     private final RoutineBlockRepository blockRepo;
     private final ExerciseRepository exerciseRepo;
     private final UserUnlockedRoutineRepository unlockedRepo;
-    private final UserRepository userRepo;
+    private final XpService xpService;
     private final AchievementService achievementService;
 
 
@@ -34,13 +34,13 @@ public class RoutineTemplateService {
                                   RoutineBlockRepository blockRepo,
                                   ExerciseRepository exerciseRepo,
                                   UserUnlockedRoutineRepository unlockedRepo,
-                                  UserRepository userRepo,
+                                  XpService xpService,
                                   AchievementService achievementService) {
         this.repo = repo;
         this.blockRepo = blockRepo;
         this.exerciseRepo = exerciseRepo;
         this.unlockedRepo = unlockedRepo;
-        this.userRepo = userRepo;
+        this.xpService = xpService;
         this.achievementService = achievementService;
     }
 
@@ -246,21 +246,14 @@ public class RoutineTemplateService {
             return; // ya estaba desbloqueada
         }
 
-        int cost = routine.getXp_cost();
-
-        if (user.getXpPoints() < cost) {
-            throw new IllegalStateException("XP insuficiente");
-        }
-
-        // Descontar XP
-        user.setXpPoints(user.getXpPoints() - cost);
-        userRepo.save(user);
-
-        // Registrar desbloqueo
+        // Registrar desbloqueo (la restricción única frena una compra doble)
         UserUnlockedRoutine unlock = new UserUnlockedRoutine();
         unlock.setUser(user);
         unlock.setRoutine(routine);
         unlockedRepo.save(unlock);
+
+        // Descontar XP con un UPDATE condicionado al saldo, no con el principal de la petición
+        xpService.spendXp(user, routine.getXp_cost(), routine, "Rutina desbloqueada: " + routine.getName());
     }
 
 
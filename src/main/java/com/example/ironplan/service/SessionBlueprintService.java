@@ -0,0 +1,119 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.event.ExerciseCatalogChangedEvent;
+import com.example.ironplan.model.Exercise;
+import com.example.ironplan.model.RoutineDetail;
+import com.example.ironplan.model.RoutineExercise;
+import com.example.ironplan.repository.RoutineDetailRepository;
+import com.example.ironplan.rest.error.NotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Plantillas ya resueltas de cada sesión de rutina (RoutineDetail) para iniciar entrenamientos
+ * sin recorrer las relaciones lazy de la rutina y del catálogo cada vez.
+ *
+ * - Inmutables: nombre visible, valores planificados e ids de catálogo.
+ * - Se invalidan al editar la sesión de rutina (evict) o al cambiar un ejercicio del catálogo.
+ */
+@Service
+public class SessionBlueprintService {
+
+    /**
+     * Un ejercicio de la sesión tal como se copia a WorkoutExercise.
+     */
+    public record ExerciseBlueprint(
+            Long routineExerciseId,
+            Long catalogExerciseId,
+            String exerciseName,
+            Integer exerciseOrder,
+            Integer plannedSets,
+            Integer plannedRepsMin,
+            Integer plannedRepsMax,
+            Integer plannedRir,
+            Integer plannedRestSeconds
+    ) {}
+
+    public record SessionBlueprint(Long routineDetailId, List<ExerciseBlueprint> exercises) {
+
+        boolean uses(Long exerciseId) {
+            return exercises.stream().anyMatch(e -> exerciseId.equals(e.catalogExerciseId()));
+        }
+    }
+
+    private final RoutineDetailRepository routineDetailRepo;
+    private final Cache<Long, SessionBlueprint> blueprints;
+
+    public SessionBlueprintService(
+            RoutineDetailRepository routineDetailRepo,
+            @Value("${ironplan.blueprints.max-size:1000}") long maxSize,
+            @Value("${ironplan.blueprints.ttl:1h}") Duration ttl
+    ) {
+        this.routineDetailRepo = routineDetailRepo;
+        this.blueprints = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // ============ LECTURA ============
+
+    @Transactional(readOnly = true)
+    public SessionBlueprint get(Long routineDetailId) {
+        return blueprints.get(routineDetailId, this::load);
+    }
+
+    // ============ INVALIDACIÓN ============
+
+    public void evict(Long routineDetailId) {
+        blueprints.invalidate(routineDetailId);
+    }
+
+    // Cambia el nombre del catálogo (fallback del nombre visible) o se borra el ejercicio
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ExerciseCatalogChangedEvent event) {
+        blueprints.asMap().values().removeIf(b -> b.uses(event.exerciseId()));
+    }
+
+    // ============ CONSTRUCCIÓN ============
+
+    private SessionBlueprint load(Long routineDetailId) {
+        RoutineDetail detail = routineDetailRepo.findWithExercisesById(routineDetailId)
+                .orElseThrow(() -> new NotFoundException("Sesión de rutina no encontrada: " + routineDetailId));
+
+        List<ExerciseBlueprint> exercises = detail.getExercises().stream()
+                .map(SessionBlueprintService::toBlueprint)
+                .toList();
+        return new SessionBlueprint(detail.getId(), exercises);
+    }
+
+    private static ExerciseBlueprint toBlueprint(RoutineExercise re) {
+        Exercise catalog = re.getExercise();
+
+        String displayName = re.getDisplayName();
+        if (displayName == null && catalog != null) {
+            displayName = catalog.getName();
+        }
+
+        return new ExerciseBlueprint(
+                re.getId(),
+                catalog != null ? catalog.getId() : null,
+                displayName != null ? displayName : "Ejercicio",
+                re.getExerciseOrder(),
+                re.getSets(),
+                re.getRepsMin(),
+                re.getRepsMax(),
+                re.getRir(),
+                // si re.getRestMinutes() son minutos, aquí probablemente quieres * 60
+                re.getRestMinutes()
+        );
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.WorkoutSessionStatus;
+import com.example.ironplan.repository.WorkoutSessionRepository;
+import com.example.ironplan.repository.WorkoutSessionRepository.DetailVersionView;
+import com.example.ironplan.rest.dto.WorkoutSessionDetailResponse;
+import com.example.ironplan.rest.error.NotFoundException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+
+/**
+ * Detalle de sesión ya serializado, con ETag, para GET /api/workouts/{id}/detail.
+ *
+ * - Solo las sesiones COMPLETED llevan ETag y se cachean: su detalle no cambia salvo
+ *   edición tardía de series, que sube la versión de la sesión (ver WorkoutSessionRepository.touch).
+ * - El ETag sale de versión + updatedAt; con If-None-Match basta una consulta de versión.
+ * - Las sesiones activas cambian con cada serie sin tocar la sesión: se construyen siempre.
+ */
+@Service
+public class SessionDetailCache {
+
+    /**
+     * Respuesta lista para enviar. eTag es null si la sesión no es cacheable;
+     * body es null si el cliente ya tiene la versión actual (304).
+     */
+    public record Snapshot(String eTag, byte[] body) {
+
+        public boolean notModified() {
+            return body == null;
+        }
+    }
+
+    private record Entry(String eTag, byte[] body) {}
+
+    private final WorkoutSessionRepository sessionRepo;
+    private final WorkoutSessionService sessionService;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, Entry> details;
+
+    public SessionDetailCache(
+            WorkoutSessionRepository sessionRepo,
+            WorkoutSessionService sessionService,
+            ObjectMapper objectMapper,
+            @Value("${ironplan.session-detail.max-size:2000}") long maxSize,
+            @Value("${ironplan.session-detail.ttl:30m}") Duration ttl
+    ) {
+        this.sessionRepo = sessionRepo;
+        this.sessionService = sessionService;
+        this.objectMapper = objectMapper;
+        this.details = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    /**
+     * Misma transacción de lectura para la versión y el detalle, así el cuerpo cacheado
+     * corresponde siempre al ETag con el que se guarda.
+     */
+    @Transactional(readOnly = true)
+    public Snapshot get(Long sessionId, Long userId, String ifNoneMatch) {
+        DetailVersionView version = sessionRepo.findDetailVersion(sessionId, userId)
+                .orElseThrow(() -> new NotFoundException("Sesión de entrenamiento no encontrada"));
+
+        if (version.getStatus() != WorkoutSessionStatus.COMPLETED) {
+            return new Snapshot(null, serialize(sessionService.getSessionDetail(sessionId, userId)));
+        }
+
+        String eTag = eTag(sessionId, version);
+        if (matches(ifNoneMatch, eTag)) {
+            return new Snapshot(eTag, null);
+        }
+
+        Entry cached = details.getIfPresent(sessionId);
+        if (cached == null || !cached.eTag().equals(eTag)) {
+            cached = new Entry(eTag, serialize(sessionService.getSessionDetail(sessionId, userId)));
+            details.put(sessionId, cached);
+        }
+        return new Snapshot(eTag, cached.body());
+    }
+
+    // ============ HELPERS ============
+
+    private static String eTag(Long sessionId, DetailVersionView version) {
+        long updatedAt = version.getUpdatedAt() != null
+                ? version.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli()
+                : 0L;
+        return "\"" + sessionId + "-" + version.getVersion() + "-" + Long.toString(updatedAt, 36) + "\"";
+    }
+
+    // If-None-Match puede traer varias etiquetas, "*" o la forma débil W/"..."
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(eTag)) return true;
+        }
+        return false;
+    }
+
+    private byte[] serialize(WorkoutSessionDetailResponse detail) {
+        try {
+            return objectMapper.writeValueAsBytes(detail);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el detalle de la sesión " + detail.sessionId(), e);
+        }
+    }
+}
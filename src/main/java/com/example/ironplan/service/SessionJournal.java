@@ -0,0 +1,254 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.rest.dto.WorkoutSetInput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Diario local de solo-añadir (archivo mapeado en memoria) para ActiveSessionStore.
+ *
+ * Formato: cabecera con la generación actual + registros de tamaño fijo.
+ * Cada registro lleva generación y CRC; al releer se para en el primero que no cuadre
+ * (escritura a medias o registro de una generación anterior). Vaciar el diario es
+ * subir la generación, sin reescribir el archivo.
+ *
+ * Un registro sin serie (nº serie 0) es una marca de volcado: lo anterior de esa sesión
+ * ya está en MySQL y no debe reaplicarse.
+ *
+ * Compactar escribe lo pendiente en un archivo aparte (".compact"), lo fuerza a disco y lo
+ * mueve encima del diario de forma atómica: si se cae a medias, al arrancar sigue el diario
+ * anterior completo y el temporal se borra.
+ */
+final class SessionJournal implements Closeable {
+
+    record Entry(Long sessionId, Long userId, Long workoutExerciseId, WorkoutSetInput set) {
+
+        static Entry flushed(Long sessionId, Long userId) {
+            return new Entry(sessionId, userId, 0L, null);
+        }
+
+        boolean isFlushMark() {
+            return set == null;
+        }
+    }
+
+    private static final int MAGIC = 0x49504A31; // "IPJ1"
+    private static final int HEADER_BYTES = Long.BYTES;
+    // magic, generación, sesión, usuario, ejercicio, nº serie, reps, peso, completada, crc
+    private static final int PAYLOAD_BYTES = 4 + 8 + 8 + 8 + 8 + 4 + 4 + 8 + 1;
+    private static final int RECORD_BYTES = PAYLOAD_BYTES + 4;
+
+    private final Path path;
+    private final Path compactPath;
+    private final long capacityBytes;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long generation;
+
+    SessionJournal(Path path, long capacityBytes) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.path = path;
+        this.compactPath = path.resolveSibling(path.getFileName() + ".compact");
+        this.capacityBytes = capacityBytes;
+
+        // Compactación que no llegó a moverse: el diario original sigue siendo el bueno
+        Files.deleteIfExists(compactPath);
+
+        this.channel = open(path);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+
+        this.generation = buffer.getLong(0);
+        if (generation == 0) {
+            writeGeneration(1);
+        }
+        buffer.position(HEADER_BYTES);
+    }
+
+    /**
+     * Registros válidos de la generación actual, en orden. Deja el cursor al final
+     * para que los siguientes append vayan detrás.
+     */
+    synchronized List<Entry> replay() {
+        List<Entry> entries = new ArrayList<>();
+        int pos = HEADER_BYTES;
+        while (pos + RECORD_BYTES <= buffer.capacity()) {
+            if (buffer.getInt(pos) != MAGIC
+                    || buffer.getLong(pos + 4) != generation
+                    || buffer.getInt(pos + PAYLOAD_BYTES) != crc(pos)) {
+                break;
+            }
+            entries.add(read(pos));
+            pos += RECORD_BYTES;
+        }
+        buffer.position(pos);
+        return entries;
+    }
+
+    /**
+     * Añade todos los registros y los fuerza a disco, o ninguno si no caben.
+     *
+     * @return false si el diario está lleno
+     */
+    synchronized boolean append(List<Entry> entries) {
+        if (buffer.remaining() < entries.size() * RECORD_BYTES) {
+            return false;
+        }
+
+        int start = buffer.position();
+        for (Entry e : entries) {
+            write(buffer, generation, e);
+        }
+
+        // fsync de lo recién escrito antes de confirmar al cliente
+        buffer.force(start, buffer.position() - start);
+        return true;
+    }
+
+    /**
+     * Sustituye el contenido del diario por estos registros. Se escriben y fuerzan en el
+     * archivo temporal antes de tocar el diario, así que en ningún momento se pierden.
+     *
+     * @return false si no caben (el diario queda como estaba)
+     */
+    synchronized boolean compact(List<Entry> entries) throws IOException {
+        if ((long) entries.size() * RECORD_BYTES > capacityBytes - HEADER_BYTES) {
+            return false;
+        }
+
+        long nextGeneration = generation + 1;
+        try (FileChannel compactChannel = FileChannel.open(compactPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer compacted = compactChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+            compacted.putLong(0, nextGeneration);
+            compacted.position(HEADER_BYTES);
+            for (Entry e : entries) {
+                write(compacted, nextGeneration, e);
+            }
+            compacted.force();
+        } catch (IOException e) {
+            Files.deleteIfExists(compactPath);
+            throw e;
+        }
+
+        // A partir de aquí el diario es el compactado; el mapeo anterior apunta al archivo viejo
+        Files.move(compactPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+
+        FileChannel previous = channel;
+        channel = open(path);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        generation = nextGeneration;
+        buffer.position(HEADER_BYTES + entries.size() * RECORD_BYTES);
+        previous.close();
+        return true;
+    }
+
+    boolean isEmpty() {
+        return position() == HEADER_BYTES;
+    }
+
+    // Más de la mitad ocupada: conviene compactar
+    boolean isHalfFull() {
+        return position() - HEADER_BYTES > (buffer.capacity() - HEADER_BYTES) / 2;
+    }
+
+    synchronized int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Descarta todos los registros (ya están en MySQL). Solo cuando no queda nada pendiente;
+     * para conservar registros, compact().
+     */
+    synchronized void reset() {
+        writeGeneration(generation + 1);
+        buffer.position(HEADER_BYTES);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    // ============ HELPERS ============
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // El rename solo es durable cuando el directorio llega a disco (no todos los SO lo permiten)
+    private void forceDirectory() {
+        Path dir = path.toAbsolutePath().getParent();
+        try (FileChannel dirChannel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            dirChannel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void writeGeneration(long value) {
+        generation = value;
+        buffer.putLong(0, value);
+        buffer.force(0, HEADER_BYTES);
+    }
+
+    private static void write(ByteBuffer target, long generation, Entry e) {
+        int pos = target.position();
+        WorkoutSetInput set = e.isFlushMark() ? new WorkoutSetInput(0, null, null, false) : e.set();
+        target.putInt(MAGIC)
+                .putLong(generation)
+                .putLong(e.sessionId())
+                .putLong(e.userId())
+                .putLong(e.workoutExerciseId())
+                .putInt(set.setNumber())
+                .putInt(set.reps() != null ? set.reps() : -1)
+                .putDouble(set.weightKg() != null ? set.weightKg() : Double.NaN)
+                .put((byte) (set.completed() ? 1 : 0));
+        target.putInt(crc(target, pos));
+    }
+
+    private int crc(int pos) {
+        return crc(buffer, pos);
+    }
+
+    private static int crc(ByteBuffer source, int pos) {
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = source.slice(pos, PAYLOAD_BYTES);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private Entry read(int pos) {
+        int setNumber = buffer.getInt(pos + 36);
+        if (setNumber == 0) {
+            return Entry.flushed(buffer.getLong(pos + 12), buffer.getLong(pos + 20));
+        }
+        int reps = buffer.getInt(pos + 40);
+        double weight = buffer.getDouble(pos + 44);
+        return new Entry(
+                buffer.getLong(pos + 12),
+                buffer.getLong(pos + 20),
+                buffer.getLong(pos + 28),
+                new WorkoutSetInput(
+                        setNumber,
+                        reps >= 0 ? reps : null,
+                        Double.isNaN(weight) ? null : weight,
+                        buffer.get(pos + 52) == 1
+                )
+        );
+    }
+}
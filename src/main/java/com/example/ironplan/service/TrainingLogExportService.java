@@ -0,0 +1,210 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.repository.ProgressRepository;
+import com.example.ironplan.rest.dto.progress.TrainingLogRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Exporta el registro de entrenamiento completo de un usuario (CSV o NDJSON).
+ *
+ * Lee con un stream de solo avance y escribe cada fila según llega,
+ * así la memoria no depende del tamaño del historial.
+ */
+@Service
+public class TrainingLogExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() { return contentType; }
+
+        public String extension() { return extension; }
+
+        public static Format from(String value) {
+            for (Format f : values()) {
+                if (f.extension.equalsIgnoreCase(value)) return f;
+            }
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + value);
+        }
+    }
+
+    private static final String CSV_HEADER = "session_id,session_title,status,started_at,completed_at,"
+            + "workout_exercise_id,exercise_order,exercise_name,set_number,reps,weight_kg,completed";
+
+    private final ProgressRepository progressRepo;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    public TrainingLogExportService(
+            ProgressRepository progressRepo,
+            EntityManager entityManager,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager txManager
+    ) {
+        this.progressRepo = progressRepo;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /**
+     * Escribe el historial en el stream de salida. Pensado para StreamingResponseBody:
+     * corre fuera del hilo de la petición, por eso abre su propia transacción.
+     */
+    public void export(Long userId, Format format, OutputStream out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<TrainingLogRow> rows = progressRepo.streamTrainingLog(userId)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                switch (format) {
+                    case CSV -> writeCsv(rows.iterator(), writer);
+                    case NDJSON -> writeNdjson(rows.iterator(), writer);
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                entityManager.clear();
+            }
+        });
+    }
+
+    // ============ CSV ============
+
+    private void writeCsv(Iterator<TrainingLogRow> rows, Writer w) throws IOException {
+        w.write(CSV_HEADER);
+        w.write('\n');
+
+        while (rows.hasNext()) {
+            TrainingLogRow r = rows.next();
+            w.write(String.valueOf(r.sessionId()));
+            w.write(',');
+            w.write(csv(r.sessionTitle()));
+            w.write(',');
+            w.write(r.status().name());
+            w.write(',');
+            w.write(text(r.startedAt()));
+            w.write(',');
+            w.write(text(r.completedAt()));
+            w.write(',');
+            w.write(String.valueOf(r.workoutExerciseId()));
+            w.write(',');
+            w.write(text(r.exerciseOrder()));
+            w.write(',');
+            w.write(csv(r.exerciseName()));
+            w.write(',');
+            w.write(text(r.setNumber()));
+            w.write(',');
+            w.write(text(r.reps()));
+            w.write(',');
+            w.write(r.weightKg() != null ? String.format(Locale.ROOT, "%.2f", r.weightKg()) : "");
+            w.write(',');
+            w.write(r.completed() ? "true" : "false");
+            w.write('\n');
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    // ============ NDJSON ============
+
+    /**
+     * Una línea por sesión con sus ejercicios y series anidados. Las filas llegan
+     * ordenadas por sesión, así solo se guarda en memoria la sesión en curso.
+     */
+    private void writeNdjson(Iterator<TrainingLogRow> rows, Writer w) throws IOException {
+        Map<String, Object> session = null;
+        List<Map<String, Object>> exercises = null;
+        List<Map<String, Object>> sets = null;
+        Long currentSessionId = null;
+        Long currentExerciseId = null;
+
+        while (rows.hasNext()) {
+            TrainingLogRow r = rows.next();
+
+            if (!r.sessionId().equals(currentSessionId)) {
+                if (session != null) writeLine(session, w);
+
+                currentSessionId = r.sessionId();
+                currentExerciseId = null;
+                exercises = new ArrayList<>();
+                session = new LinkedHashMap<>();
+                session.put("sessionId", r.sessionId());
+                session.put("title", r.sessionTitle());
+                session.put("status", r.status().name());
+                session.put("startedAt", iso(r.startedAt()));
+                session.put("completedAt", iso(r.completedAt()));
+                session.put("exercises", exercises);
+            }
+
+            if (!r.workoutExerciseId().equals(currentExerciseId)) {
+                currentExerciseId = r.workoutExerciseId();
+                sets = new ArrayList<>();
+                Map<String, Object> exercise = new LinkedHashMap<>();
+                exercise.put("workoutExerciseId", r.workoutExerciseId());
+                exercise.put("order", r.exerciseOrder());
+                exercise.put("name", r.exerciseName());
+                exercise.put("sets", sets);
+                exercises.add(exercise);
+            }
+
+            Map<String, Object> set = new LinkedHashMap<>();
+            set.put("setNumber", r.setNumber());
+            set.put("reps", r.reps());
+            set.put("weightKg", r.weightKg());
+            set.put("completed", r.completed());
+            sets.add(set);
+        }
+
+        if (session != null) writeLine(session, w);
+    }
+
+    private void writeLine(Map<String, Object> value, Writer w) throws IOException {
+        w.write(objectMapper.writeValueAsString(value));
+        w.write('\n');
+    }
+
+    private static String iso(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+}
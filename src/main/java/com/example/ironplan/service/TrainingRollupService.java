@@ -0,0 +1,170 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.UserDailyTraining;
+import com.example.ironplan.model.WorkoutSession;
+import com.example.ironplan.repository.ProgressRepository;
+import com.example.ironplan.repository.ProgressRepository.SessionTotalsView;
+import com.example.ironplan.repository.UserDailyTrainingRepository;
+import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.repository.WorkoutSessionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene el acumulado diario de entrenamiento (user_daily_training).
+ *
+ * - refreshDay: recalcula un día concreto de un usuario (idempotente).
+ * - rebuildUser / rebuildAll: backfill a partir del histórico.
+ */
+@Service
+public class TrainingRollupService {
+
+    private final UserDailyTrainingRepository dailyRepo;
+    private final ProgressRepository progressRepo;
+    private final WorkoutSessionRepository sessionRepo;
+    private final UserRepository userRepo;
+    private final TransactionTemplate txTemplate;
+
+    // Límite inferior para reconstruir "todo" el histórico
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    public TrainingRollupService(
+            UserDailyTrainingRepository dailyRepo,
+            ProgressRepository progressRepo,
+            WorkoutSessionRepository sessionRepo,
+            UserRepository userRepo,
+            PlatformTransactionManager txManager
+    ) {
+        this.dailyRepo = dailyRepo;
+        this.progressRepo = progressRepo;
+        this.sessionRepo = sessionRepo;
+        this.userRepo = userRepo;
+        this.txTemplate = new TransactionTemplate(txManager);
+    }
+
+    // ============ LECTURA ============
+
+    @Transactional(readOnly = true)
+    public List<UserDailyTraining> findRange(Long userId, LocalDate from, LocalDate to) {
+        return dailyRepo.findByUser_IdAndTrainingDateBetweenOrderByTrainingDateAsc(userId, from, to);
+    }
+
+    // ============ MANTENIMIENTO INCREMENTAL ============
+
+    /**
+     * Recalcula el acumulado de un día a partir de los totales por sesión
+     * (agregados en MySQL) de las sesiones COMPLETED de ese día.
+     * Si ya no hay nada, borra la fila.
+     */
+    @Transactional
+    public void refreshDay(Long userId, LocalDate date) {
+        if (userId == null || date == null) return;
+
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+
+        List<SessionTotalsView> sessions = progressRepo.findSessionTotalsInRange(userId, start, end);
+        Optional<UserDailyTraining> existing = dailyRepo.findByUser_IdAndTrainingDate(userId, date);
+
+        if (sessions.isEmpty()) {
+            existing.ifPresent(dailyRepo::delete);
+            return;
+        }
+
+        UserDailyTraining day = existing.orElseGet(() -> newDay(userId, date));
+        applySessions(day, sessions);
+        dailyRepo.save(day);
+    }
+
+    /** Atajo para los servicios de workout: recalcula el día en que se completó la sesión. */
+    @Transactional
+    public void refreshForSession(WorkoutSession session) {
+        if (session == null || session.getCompletedAt() == null) return;
+        refreshDay(session.getUser().getId(), session.getCompletedAt().toLocalDate());
+    }
+
+    // ============ BACKFILL ============
+
+    /**
+     * Reconstruye todos los días de un usuario desde el histórico.
+     */
+    @Transactional
+    public int rebuildUser(Long userId) {
+        dailyRepo.deleteAllByUserId(userId);
+
+        // Una sola consulta agregada para todo el histórico del usuario
+        Map<LocalDate, List<SessionTotalsView>> byDate = progressRepo
+                .findSessionTotalsInRange(userId, HISTORY_START, LocalDateTime.now().plusDays(1))
+                .stream()
+                .collect(Collectors.groupingBy(
+                        st -> st.getCompletedAt().toLocalDate(),
+                        LinkedHashMap::new,
+                        Collectors.toList()
+                ));
+
+        List<UserDailyTraining> days = new ArrayList<>(byDate.size());
+        byDate.forEach((date, sessions) -> {
+            UserDailyTraining day = newDay(userId, date);
+            applySessions(day, sessions);
+            days.add(day);
+        });
+        dailyRepo.saveAll(days);
+
+        return days.size();
+    }
+
+    /**
+     * Reconstruye el acumulado de todos los usuarios con sesiones completadas.
+     * Cada usuario se procesa en su propia transacción.
+     */
+    public int rebuildAll() {
+        int days = 0;
+        for (Long userId : sessionRepo.findUserIdsWithCompletedSessions()) {
+            Integer rebuilt = txTemplate.execute(status -> rebuildUser(userId));
+            days += rebuilt != null ? rebuilt : 0;
+        }
+        return days;
+    }
+
+    // ============ HELPERS ============
+
+    private UserDailyTraining newDay(Long userId, LocalDate date) {
+        UserDailyTraining d = new UserDailyTraining();
+        d.setUser(userRepo.getReferenceById(userId));
+        d.setTrainingDate(date);
+        return d;
+    }
+
+    private void applySessions(UserDailyTraining day, List<SessionTotalsView> sessions) {
+        int sets = 0;
+        double volume = 0.0;
+        int minutes = 0;
+        List<String> ids = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+
+        for (SessionTotalsView session : sessions) {
+            sets += session.getSets() != null ? session.getSets().intValue() : 0;
+            volume += session.getVolumeKg() != null ? session.getVolumeKg() : 0.0;
+            if (session.getStartedAt() != null && session.getCompletedAt() != null) {
+                minutes += (int) ChronoUnit.MINUTES.between(session.getStartedAt(), session.getCompletedAt());
+            }
+            ids.add(String.valueOf(session.getSessionId()));
+            titles.add(session.getTitle() != null ? session.getTitle() : "Entrenamiento");
+        }
+
+        day.setSessionsCount(sessions.size());
+        day.setSetsCount(sets);
+        day.setVolumeKg(volume);
+        day.setMinutes(minutes);
+        day.setSessionIds(String.join(",", ids));
+        day.setSessionTitles(String.join(UserDailyTraining.TITLE_SEPARATOR, titles));
+    }
+}
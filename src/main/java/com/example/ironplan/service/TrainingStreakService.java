@@ -0,0 +1,214 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.event.WorkoutSessionCompletedEvent;
+import com.example.ironplan.model.User;
+import com.example.ironplan.model.UserTrainingStreak;
+import com.example.ironplan.model.WorkoutSessionStatus;
+import com.example.ironplan.repository.ProgressRepository;
+import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.repository.UserTrainingStreakRepository;
+import com.example.ironplan.repository.WorkoutSessionRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Mantiene la racha de entrenamiento persistida (user_training_streaks).
+ *
+ * - markDay: avanza la racha en O(1) al completar una sesión (caso normal: hoy).
+ * - rebuildUser / rebuildAll: backfill a partir del histórico.
+ */
+@Service
+public class TrainingStreakService {
+
+    // Máximo de días que cabe en day_bitmap (VARBINARY(4096))
+    private static final int MAX_DAYS = 4096 * 8;
+
+    private final UserTrainingStreakRepository streakRepo;
+    private final WorkoutSessionRepository sessionRepo;
+    private final ProgressRepository progressRepo;
+    private final UserRepository userRepo;
+    private final TransactionTemplate txTemplate;
+
+    public TrainingStreakService(
+            UserTrainingStreakRepository streakRepo,
+            WorkoutSessionRepository sessionRepo,
+            ProgressRepository progressRepo,
+            UserRepository userRepo,
+            PlatformTransactionManager txManager
+    ) {
+        this.streakRepo = streakRepo;
+        this.sessionRepo = sessionRepo;
+        this.progressRepo = progressRepo;
+        this.userRepo = userRepo;
+        this.txTemplate = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * Lo que necesita el resumen de progreso.
+     */
+    public record StreakSummary(int currentStreak, int longestStreak, double avgWorkoutsPerWeek) {
+        static StreakSummary empty() {
+            return new StreakSummary(0, 0, 0.0);
+        }
+    }
+
+    // ============ LECTURA ============
+
+    /**
+     * Racha actual, más larga y media de días entrenados por semana en las últimas N semanas.
+     * Sin listas de fechas: la media sale de contar bits del rango.
+     */
+    @Transactional(readOnly = true)
+    public StreakSummary getSummary(Long userId, int weeksToConsider) {
+        return streakRepo.findByUser_Id(userId)
+                .map(streak -> toSummary(streak, weeksToConsider, LocalDate.now()))
+                .orElseGet(StreakSummary::empty);
+    }
+
+    // ============ MANTENIMIENTO INCREMENTAL ============
+
+    /**
+     * Corre dentro del paso de acumulados de PostWorkoutPipeline.
+     */
+    @EventListener
+    public void onSessionCompleted(WorkoutSessionCompletedEvent event) {
+        sessionRepo.findById(event.sessionId())
+                .filter(s -> s.getStatus() == WorkoutSessionStatus.COMPLETED && s.getCompletedAt() != null)
+                .ifPresent(s -> markDay(event.userId(), s.getCompletedAt().toLocalDate()));
+    }
+
+    /**
+     * Marca un día como entrenado y avanza la racha.
+     * Si el día es anterior al último entrenado, recalcula desde el bitmap.
+     */
+    @Transactional
+    public void markDay(Long userId, LocalDate date) {
+        UserTrainingStreak streak = streakRepo.findByUser_Id(userId).orElse(null);
+        if (streak == null || date.isBefore(streak.getBitmapStart())) {
+            // Sin estado previo (o fecha fuera del bitmap): se construye desde el histórico
+            rebuildUser(userId);
+            return;
+        }
+
+        BitSet days = bits(streak);
+        int index = dayIndex(streak, date);
+        if (index >= MAX_DAYS) {
+            rebuildUser(userId);
+            return;
+        }
+        if (days.get(index)) {
+            return; // ya contaba
+        }
+        days.set(index);
+        streak.setDayBitmap(days.toByteArray());
+
+        LocalDate last = streak.getLastTrainingDate();
+        if (last == null || date.isAfter(last)) {
+            boolean consecutive = last != null && date.equals(last.plusDays(1));
+            streak.setCurrentStreak(consecutive ? streak.getCurrentStreak() + 1 : 1);
+            streak.setLastTrainingDate(date);
+            streak.setLongestStreak(Math.max(streak.getLongestStreak(), streak.getCurrentStreak()));
+        } else {
+            // Día pasado: puede unir dos rachas
+            recompute(streak, days);
+        }
+
+        streakRepo.save(streak);
+    }
+
+    // ============ RECONSTRUCCIÓN ============
+
+    @Transactional
+    public void rebuildUser(Long userId) {
+        List<LocalDate> dates = progressRepo.findWorkoutDates(userId);
+        User user = userRepo.findById(userId).orElse(null);
+        if (user == null) return;
+
+        UserTrainingStreak streak = streakRepo.findByUser_Id(userId).orElseGet(() -> {
+            UserTrainingStreak s = new UserTrainingStreak();
+            s.setUser(user);
+            return s;
+        });
+
+        // El bitmap empieza en el registro, salvo que haya entrenos anteriores (datos importados)
+        LocalDate start = user.getCreatedAt() != null ? user.getCreatedAt().toLocalDate() : LocalDate.now();
+        for (LocalDate d : dates) {
+            if (d.isBefore(start)) start = d;
+        }
+        streak.setBitmapStart(start);
+
+        BitSet days = new BitSet();
+        for (LocalDate d : dates) {
+            int index = dayIndex(streak, d);
+            if (index < MAX_DAYS) days.set(index);
+        }
+        streak.setDayBitmap(days.toByteArray());
+        recompute(streak, days);
+
+        streakRepo.save(streak);
+    }
+
+    /**
+     * Reconstruye las rachas de todos los usuarios, uno por transacción.
+     */
+    public int rebuildAll() {
+        List<Long> userIds = userRepo.findAllIds();
+        for (Long userId : userIds) {
+            txTemplate.executeWithoutResult(status -> rebuildUser(userId));
+        }
+        return userIds.size();
+    }
+
+    // ============ HELPERS ============
+
+    private StreakSummary toSummary(UserTrainingStreak streak, int weeksToConsider, LocalDate today) {
+        LocalDate last = streak.getLastTrainingDate();
+        boolean alive = last != null && !last.isBefore(today.minusDays(1));
+        int current = alive ? streak.getCurrentStreak() : 0;
+
+        double avg = 0.0;
+        if (weeksToConsider > 0 && streak.getDayBitmap() != null) {
+            BitSet days = bits(streak);
+            int from = Math.max(0, dayIndex(streak, today.minusWeeks(weeksToConsider)));
+            int to = Math.max(from, dayIndex(streak, today) + 1);
+            avg = (double) days.get(from, to).cardinality() / weeksToConsider;
+        }
+
+        return new StreakSummary(current, streak.getLongestStreak(), avg);
+    }
+
+    /**
+     * Recalcula racha actual, más larga y último día a partir del bitmap.
+     */
+    private void recompute(UserTrainingStreak streak, BitSet days) {
+        int longest = 0;
+        int run = 0;
+        int lastIndex = -1;
+
+        for (int i = days.nextSetBit(0); i >= 0; i = days.nextSetBit(i + 1)) {
+            run = (i == lastIndex + 1 && lastIndex >= 0) ? run + 1 : 1;
+            longest = Math.max(longest, run);
+            lastIndex = i;
+        }
+
+        streak.setLongestStreak(longest);
+        streak.setCurrentStreak(lastIndex >= 0 ? run : 0);
+        streak.setLastTrainingDate(lastIndex >= 0 ? streak.getBitmapStart().plusDays(lastIndex) : null);
+    }
+
+    private static BitSet bits(UserTrainingStreak streak) {
+        return streak.getDayBitmap() != null ? BitSet.valueOf(streak.getDayBitmap()) : new BitSet();
+    }
+
+    private static int dayIndex(UserTrainingStreak streak, LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(streak.getBitmapStart(), date);
+    }
+}
@@ -1,29 +1,39 @@
 // src/main/java/com/example/ironplan/service/WorkoutExerciseService.java
 package com.example.ironplan.service;
 
+import com.example.ironplan.model.Exercise;
 import com.example.ironplan.model.WorkoutExercise;
 import com.example.ironplan.model.WorkoutExerciseStatus;
 import com.example.ironplan.model.WorkoutSession;
 import com.example.ironplan.repository.WorkoutExerciseRepository;
 import com.example.ironplan.repository.WorkoutSessionRepository;
+import com.example.ironplan.rest.dto.WorkoutExerciseDetailResponse;
+import com.example.ironplan.rest.dto.WorkoutPreviousSetDto;
 import com.example.ironplan.rest.error.NotFoundException;
+import com.example.ironplan.rest.mapper.WorkoutExerciseViewMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class WorkoutExerciseService {
 
     private final WorkoutSessionRepository sessionRepo;
     private final WorkoutExerciseRepository workoutExerciseRepo;
+    private final LastPerformanceService lastPerformanceService;
+    private final WorkoutProgressService progressService;
 
     public WorkoutExerciseService(
             WorkoutSessionRepository sessionRepo,
-            WorkoutExerciseRepository workoutExerciseRepo
+            WorkoutExerciseRepository workoutExerciseRepo,
+            LastPerformanceService lastPerformanceService,
+            WorkoutProgressService progressService
     ) {
         this.sessionRepo = sessionRepo;
         this.workoutExerciseRepo = workoutExerciseRepo;
+        this.lastPerformanceService = lastPerformanceService;
+        this.progressService = progressService;
     }
 
     // ---------- HELPERS PRIVADOS ----------
@@ -39,14 +49,6 @@ public class WorkoutExerciseService {
         return session;
     }
 
-    private WorkoutExercise getExerciseForSession(Long sessionId, Integer exerciseOrder) {
-        return workoutExerciseRepo
-                .findByWorkoutSession_IdAndExerciseOrder(sessionId, exerciseOrder)
-                .orElseThrow(() -> new NotFoundException(
-                        "Ejercicio con orden " + exerciseOrder + " no encontrado en la sesión " + sessionId
-                ));
-    }
-
     private WorkoutExercise getExerciseByIdForSession(Long sessionId, Long exerciseId) {
         var exercise = workoutExerciseRepo.findById(exerciseId)
                 .orElseThrow(() -> new NotFoundException("Ejercicio de entrenamiento no encontrado: " + exerciseId));
@@ -60,13 +62,31 @@ public class WorkoutExerciseService {
     // ---------- OPERACIONES PÚBLICAS ----------
 
     /**
-     * Obtiene un ejercicio por su orden dentro de una sesión,
-     * validando que la sesión pertenezca al usuario.
+     * Todo lo que necesita la pantalla de un ejercicio en dos consultas:
+     * 1) ejercicios de la sesión con sesión, rutina y catálogo (fetch join)
+     * 2) serie anterior del usuario en ese ejercicio de catálogo (lectura por clave)
      */
     @Transactional(readOnly = true)
-    public WorkoutExercise getExerciseForUserByOrder(Long sessionId, Long userId, Integer exerciseOrder) {
-        var session = getSessionForUser(sessionId, userId);
-        return getExerciseForSession(session.getId(), exerciseOrder);
+    public WorkoutExerciseDetailResponse getExerciseScreen(Long sessionId, Long userId, Integer exerciseOrder) {
+        List<WorkoutExercise> exercises = workoutExerciseRepo.findScreenExercises(sessionId, userId);
+        if (exercises.isEmpty()) {
+            throw new NotFoundException("Sesión de entrenamiento no encontrada: " + sessionId);
+        }
+
+        WorkoutExercise exercise = exercises.stream()
+                .filter(we -> exerciseOrder.equals(we.getExerciseOrder()))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException(
+                        "Ejercicio con orden " + exerciseOrder + " no encontrado en la sesión " + sessionId
+                ));
+
+        Exercise catalogExercise = exercise.resolveCatalogExercise();
+        WorkoutPreviousSetDto previousSet = catalogExercise != null
+                ? lastPerformanceService.findPreviousSet(userId, catalogExercise.getId())
+                : null;
+
+        return WorkoutExerciseViewMapper.toDetailResponse(
+                exercise.getWorkoutSession(), exercise, previousSet, exercises);
     }
 
     /**
@@ -88,8 +108,8 @@ public class WorkoutExerciseService {
     }
 
     /**
-     * Marca un ejercicio como COMPLETED (si aún no lo está),
-     * actualiza el número de ejercicios completados y el porcentaje de progreso de la sesión.
+     * Marca un ejercicio como COMPLETED (si aún no lo está) y avanza el contador de la sesión.
+     * Comparte con el guardado de series las transiciones atómicas de WorkoutProgressService.
      */
     @Transactional
     public void markExerciseCompleted(Long sessionId, Long exerciseId, Long userId) {
@@ -97,38 +117,16 @@ public class WorkoutExerciseService {
         var exercise = getExerciseByIdForSession(sessionId, exerciseId);
 
         // Si ya estaba completado, no duplicamos
-        if (exercise.getStatus() != WorkoutExerciseStatus.COMPLETED) {
-            exercise.setStatus(WorkoutExerciseStatus.COMPLETED);
-            exercise.setCompletedSets(exercise.getPlannedSets());
-            exercise.setFinishedAt(LocalDateTime.now());
-
-            // Actualizar progreso de la sesión
-            int completed = session.getCompletedExercises() + 1;
-            session.setCompletedExercises(completed);
-
-            int total = session.getTotalExercises() != null ? session.getTotalExercises() : 0;
-            double progress = 0.0;
-            if (total > 0) {
-                progress = (completed * 100.0) / total;
-            }
-            session.setProgressPercentage(progress);
-
-            // XP sencillo: proporcional al progreso vs XP estimada de la RoutineDetail
-            if (session.getRoutineDetail() != null && session.getRoutineDetail().getEstimatedXp() != null) {
-                int estimatedXp = session.getRoutineDetail().getEstimatedXp();
-                int xp = (int) Math.round(estimatedXp * (progress / 100.0));
-                session.setXpEarned(xp);
-            }
-
-            // Si ya completó todos los ejercicios, marcamos la sesión como COMPLETED
-            if (total > 0 && completed >= total) {
-                session.setStatus(com.example.ironplan.model.WorkoutSessionStatus.COMPLETED);
-                session.setCompletedAt(LocalDateTime.now());
-            }
-
-            // Persistimos cambios
-            workoutExerciseRepo.save(exercise);
-            sessionRepo.save(session);
+        if (exercise.getStatus() == WorkoutExerciseStatus.COMPLETED) {
+            return;
+        }
+
+        int plannedSets = exercise.getPlannedSets() != null ? exercise.getPlannedSets() : 0;
+        boolean transitioned = progressService.completeExercise(exercise, plannedSets);
+
+        // Si ya completó todos los ejercicios, la sesión pasa a COMPLETED (una sola vez)
+        if (transitioned) {
+            progressService.completeSessionIfDone(session);
         }
     }
 }
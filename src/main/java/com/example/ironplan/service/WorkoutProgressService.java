@@ -0,0 +1,92 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.OutboxEventType;
+import com.example.ironplan.model.WorkoutExercise;
+import com.example.ironplan.model.WorkoutSession;
+import com.example.ironplan.repository.WorkoutExerciseRepository;
+import com.example.ironplan.repository.WorkoutSessionRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progreso de una sesión activa con UPDATE condicionales en lugar de recargar
+ * todos los ejercicios y guardar la sesión completa.
+ *
+ * - completeExercise: PENDING/IN_PROGRESS -> COMPLETED y +1 al contador de la sesión
+ *   (si ya estaba COMPLETED, solo actualiza sus series completadas).
+ * - completeSessionIfDone: ACTIVE -> COMPLETED cuando el contador llega al total.
+ *
+ * La base de datos decide quién hace cada transición, así que el evento de outbox
+ * (XP, hazañas, notificación) sale una sola vez aunque dos guardados lleguen a la vez.
+ */
+@Service
+public class WorkoutProgressService {
+
+    private final WorkoutSessionRepository sessionRepo;
+    private final WorkoutExerciseRepository workoutExerciseRepo;
+    private final OutboxService outbox;
+    private final EntityManager entityManager;
+
+    public WorkoutProgressService(
+            WorkoutSessionRepository sessionRepo,
+            WorkoutExerciseRepository workoutExerciseRepo,
+            OutboxService outbox,
+            EntityManager entityManager
+    ) {
+        this.sessionRepo = sessionRepo;
+        this.workoutExerciseRepo = workoutExerciseRepo;
+        this.outbox = outbox;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Marca el ejercicio como completado si aún no lo estaba.
+     *
+     * @return true si esta llamada hizo la transición (y sumó al contador de la sesión)
+     */
+    @Transactional
+    public boolean completeExercise(WorkoutExercise exercise, int completedSets) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean transitioned = workoutExerciseRepo.markCompletedIfNot(exercise.getId(), completedSets, now) == 1;
+
+        if (transitioned) {
+            sessionRepo.incrementCompletedExercises(exercise.getWorkoutSession().getId(), now);
+        } else {
+            // Ya estaba completado: el contador de series sí cambia (ej: una serie extra)
+            workoutExerciseRepo.updateCompletedSets(exercise.getId(), completedSets);
+        }
+
+        // Los cambios pendientes ya se volcaron antes del UPDATE; recargamos para que
+        // un flush posterior no pise lo que hay en la BD
+        entityManager.refresh(exercise);
+        return transitioned;
+    }
+
+    /**
+     * Cierra la sesión si ya están todos los ejercicios y deja en el outbox la XP de la rutina.
+     * Deja la entidad sincronizada con la BD.
+     *
+     * @return true si esta llamada completó la sesión
+     */
+    @Transactional
+    public boolean completeSessionIfDone(WorkoutSession session) {
+        int xp = session.fullXp();
+        boolean completed = sessionRepo.completeIfAllExercisesDone(session.getId(), xp, LocalDateTime.now()) == 1;
+
+        // Contadores y estado actualizados por los UPDATE de arriba
+        entityManager.refresh(session);
+
+        if (completed) {
+            outbox.enqueue(
+                    OutboxEventType.WORKOUT_COMPLETED,
+                    session.getUser().getId(),
+                    session.getId(),
+                    new PostWorkoutPipeline.WorkoutCompleted(session.getId(), xp, true, true)
+            );
+        }
+        return completed;
+    }
+}
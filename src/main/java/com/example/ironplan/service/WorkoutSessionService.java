@@ -1,20 +1,29 @@
 // src/main/java/com/example/ironplan/service/WorkoutSessionService.java
 package com.example.ironplan.service;
 
+import com.example.ironplan.event.WorkoutSessionDiscardedEvent;
+import com.example.ironplan.exception.SessionStateConflictException;
 import com.example.ironplan.model.*;
 import com.example.ironplan.repository.*;
+import com.example.ironplan.rest.dto.CustomWorkoutExerciseItem;
 import com.example.ironplan.rest.dto.PreviousSessionComparison;
 import com.example.ironplan.rest.dto.WorkoutSessionSummaryResponse;
 import com.example.ironplan.rest.dto.WorkoutSessionDetailResponse;
+import com.example.ironplan.rest.dto.WorkoutExerciseDetailDto;
+import com.example.ironplan.rest.dto.WorkoutSetDetailDto;
 import com.example.ironplan.rest.error.NotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -25,26 +34,41 @@ public class WorkoutSessionService {
     private final WorkoutExerciseRepository workoutExerciseRepo;
     private final WorkoutSetRepository workoutSetRepo;
     private final RoutineDetailRepository routineDetailRepo;
+    private final RoutineExerciseRepository routineExerciseRepo;
+    private final SessionBlueprintService blueprintService;
     private final UserRepository userRepo;
-    private final AchievementService achievementService;
-private final ExerciseRepository exerciseRepo;
+    private final ExerciseRepository exerciseRepo;
+    private final OutboxService outbox;
+    private final MuscleVolumeService muscleVolumeService;
+    private final LastPerformanceService lastPerformanceService;
+    private final ApplicationEventPublisher events;
 
     public WorkoutSessionService(
             WorkoutSessionRepository sessionRepo,
             WorkoutExerciseRepository workoutExerciseRepo,
             WorkoutSetRepository workoutSetRepo,
             RoutineDetailRepository routineDetailRepo,
+            RoutineExerciseRepository routineExerciseRepo,
+            SessionBlueprintService blueprintService,
             UserRepository userRepo,
             ExerciseRepository exerciseRepo,
-            AchievementService achievementService
+            OutboxService outbox,
+            MuscleVolumeService muscleVolumeService,
+            LastPerformanceService lastPerformanceService,
+            ApplicationEventPublisher events
     ) {
         this.sessionRepo = sessionRepo;
         this.workoutExerciseRepo = workoutExerciseRepo;
         this.workoutSetRepo = workoutSetRepo;
         this.routineDetailRepo = routineDetailRepo;
+        this.routineExerciseRepo = routineExerciseRepo;
+        this.blueprintService = blueprintService;
         this.userRepo = userRepo;
-        this.achievementService = achievementService;
         this.exerciseRepo = exerciseRepo;
+        this.outbox = outbox;
+        this.muscleVolumeService = muscleVolumeService;
+        this.lastPerformanceService = lastPerformanceService;
+        this.events = events;
     }
 
     @Transactional
@@ -57,71 +81,58 @@ private final ExerciseRepository exerciseRepo;
         session.setCompletedAt(LocalDateTime.now());
         session.setProgressPercentage(0.0);
 
-        return sessionRepo.save(session);
+        WorkoutSession saved = sessionRepo.save(session);
+        // Acumulado diario y evento de sesión en segundo plano (sin XP, hazañas ni notificación)
+        outbox.enqueue(OutboxEventType.WORKOUT_COMPLETED, userId, saved.getId(),
+                new PostWorkoutPipeline.WorkoutCompleted(saved.getId(), 0, false, false));
+        return saved;
     }
 
     /**
      * Inicia una sesión de entrenamiento real para un usuario,
      * basada en una RoutineDetail (sesión "Tirón", "Empuje", etc.).
+     *
+     * Los ejercicios salen de la plantilla cacheada y se insertan en un solo batch,
+     * así que el número de sentencias no depende de cuántos ejercicios tenga la sesión.
      */
     @Transactional
     public WorkoutSession startSession(Long userId, Long routineDetailId) {
         var user = userRepo.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Usuario no encontrado: " + userId));
 
-        var detail = routineDetailRepo.findById(routineDetailId)
-                .orElseThrow(() -> new NotFoundException("Sesión de rutina no encontrada: " + routineDetailId));
+        var blueprint = blueprintService.get(routineDetailId);
 
         var session = new WorkoutSession();
         session.setUser(user);
-        session.setRoutineDetail(detail);
+        session.setRoutineDetail(routineDetailRepo.getReferenceById(routineDetailId));
         session.setStatus(WorkoutSessionStatus.ACTIVE);
         session.setStartedAt(LocalDateTime.now());
         session.setXpEarned(0);
         session.setCompletedExercises(0);
         session.setProgressPercentage(0.0);
-
-        var routineExercises = detail.getExercises();
-        int totalExercises = routineExercises != null ? routineExercises.size() : 0;
-        session.setTotalExercises(totalExercises);
+        session.setTotalExercises(blueprint.exercises().size());
 
         // guardamos para obtener ID
         session = sessionRepo.save(session);
 
         var workoutExercises = new ArrayList<WorkoutExercise>();
-        if (routineExercises != null) {
-            for (RoutineExercise re : routineExercises) {
-                var we = new WorkoutExercise();
-                we.setWorkoutSession(session);
-                we.setRoutineExercise(re);
-
-                var displayName = re.getDisplayName();
-                if (displayName == null && re.getExercise() != null) {
-                    displayName = re.getExercise().getName();
-                }
-                we.setExerciseName(displayName != null ? displayName : "Ejercicio");
-
-                we.setExerciseOrder(re.getExerciseOrder());
-                we.setPlannedSets(re.getSets());
-                we.setPlannedRepsMin(re.getRepsMin());
-                we.setPlannedRepsMax(re.getRepsMax());
-                we.setPlannedRir(re.getRir());
-                // si re.getRestMinutes() son minutos, aquí probablemente quieres * 60
-                we.setPlannedRestSeconds(re.getRestMinutes());
-
-                we.setStatus(WorkoutExerciseStatus.PENDING);
-                we.setCompletedSets(0);
+        for (var item : blueprint.exercises()) {
+            var we = new WorkoutExercise();
+            we.setRoutineExercise(routineExerciseRepo.getReferenceById(item.routineExerciseId()));
+            we.setExerciseName(item.exerciseName());
+            we.setExerciseOrder(item.exerciseOrder());
+            we.setPlannedSets(item.plannedSets());
+            we.setPlannedRepsMin(item.plannedRepsMin());
+            we.setPlannedRepsMax(item.plannedRepsMax());
+            we.setPlannedRir(item.plannedRir());
+            we.setPlannedRestSeconds(item.plannedRestSeconds());
+            we.setStatus(WorkoutExerciseStatus.PENDING);
+            we.setCompletedSets(0);
 
-                workoutExercises.add(we);
-            }
+            workoutExercises.add(we);
         }
 
-        // guardamos los ejercicios
-        workoutExerciseRepo.saveAll(workoutExercises);
-
-        session.setWorkoutExercises(workoutExercises);
-
-        return session;
+        return insertExercises(session, workoutExercises);
     }
 
     //metodo para sesion personalizada
@@ -131,6 +142,13 @@ private final ExerciseRepository exerciseRepo;
         var user = userRepo.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Usuario no encontrado: " + userId));
 
+        // Todo el catálogo necesario en una sola consulta
+        Set<Long> exerciseIds = request.exercises().stream()
+                .map(CustomWorkoutExerciseItem::exerciseId)
+                .collect(Collectors.toSet());
+        Map<Long, Exercise> catalog = exerciseRepo.findAllById(exerciseIds).stream()
+                .collect(Collectors.toMap(Exercise::getId, Function.identity()));
+
         var session = new WorkoutSession();
         session.setUser(user);
         session.setRoutineDetail(null); // custom
@@ -143,8 +161,6 @@ private final ExerciseRepository exerciseRepo;
         int totalExercises = request.exercises() != null ? request.exercises().size() : 0;
         session.setTotalExercises(totalExercises);
 
-        session = sessionRepo.save(session);
-
         // Defaults (porque planned_* son NOT NULL en tu entidad)
         final int DEFAULT_SETS = 3;
         final int DEFAULT_REPS_MIN = 8;
@@ -157,11 +173,12 @@ private final ExerciseRepository exerciseRepo;
 
         for (var item : request.exercises()) {
 
-            var catalogExercise = exerciseRepo.findById(item.exerciseId())
-                    .orElseThrow(() -> new NotFoundException("Ejercicio de catálogo no encontrado: " + item.exerciseId()));
+            var catalogExercise = catalog.get(item.exerciseId());
+            if (catalogExercise == null) {
+                throw new NotFoundException("Ejercicio de catálogo no encontrado: " + item.exerciseId());
+            }
 
             var we = new WorkoutExercise();
-            we.setWorkoutSession(session);
 
             // Custom: no viene de rutina
             we.setRoutineExercise(null);
@@ -185,17 +202,32 @@ private final ExerciseRepository exerciseRepo;
             workoutExercises.add(we);
         }
 
-        workoutExerciseRepo.saveAll(workoutExercises);
-        session.setWorkoutExercises(workoutExercises);
+        session = sessionRepo.save(session);
+        return insertExercises(session, workoutExercises);
+    }
 
+    /**
+     * Inserta los ejercicios en un batch y deja en la sesión los ya persistidos (con id), en orden.
+     */
+    private WorkoutSession insertExercises(WorkoutSession session, List<WorkoutExercise> workoutExercises) {
+        workoutExerciseRepo.insertPlanned(session.getId(), workoutExercises);
+        session.setWorkoutExercises(
+                workoutExerciseRepo.findByWorkoutSession_IdOrderByExerciseOrderAsc(session.getId())
+        );
         return session;
     }
 
     @Transactional(readOnly = true)
     public WorkoutSessionDetailResponse getSessionDetail(Long sessionId, Long userId) {
 
-        WorkoutSession session = getSessionForUser(sessionId, userId);
-        var routineDetail = session.getRoutineDetail();
+        // sesión + rutina + ejercicios + series en una sola consulta
+        List<SessionDetailRow> rows = sessionRepo.findDetailRows(sessionId, userId);
+        if (rows.isEmpty()) {
+            throw new NotFoundException("Sesión de entrenamiento no encontrada");
+        }
+
+        WorkoutSession session = rows.get(0).session();
+        RoutineDetail routineDetail = rows.get(0).routineDetail();
 
         // nombre visible
         String routineName = (routineDetail != null && routineDetail.getTitle() != null)
@@ -205,58 +237,55 @@ private final ExerciseRepository exerciseRepo;
         // duración
         long durationMinutes = 0;
         if (session.getStartedAt() != null && session.getCompletedAt() != null) {
-            durationMinutes = java.time.Duration
+            durationMinutes = Duration
                     .between(session.getStartedAt(), session.getCompletedAt())
                     .toMinutes();
         }
 
-        // ejercicios ordenados
-        var exercises = workoutExerciseRepo
-                .findByWorkoutSession_IdOrderByExerciseOrderAsc(sessionId);
-
+        // las filas vienen ordenadas por ejercicio y serie: agrupamos conservando el orden
+        Map<WorkoutExercise, List<WorkoutSetDetailDto>> setsByExercise = new LinkedHashMap<>();
         int totalSeries = 0;
         double totalWeightKg = 0.0;
 
-        var exerciseDtos = new java.util.ArrayList<com.example.ironplan.rest.dto.WorkoutExerciseDetailDto>();
-
-        for (WorkoutExercise ex : exercises) {
-
-            var sets = workoutSetRepo.findByWorkoutExercise_IdOrderBySetNumberAsc(ex.getId());
-
-            totalSeries += sets.size();
-
-            var setDtos = new java.util.ArrayList<com.example.ironplan.rest.dto.WorkoutSetDetailDto>();
-            for (WorkoutSet s : sets) {
-                int reps = s.getReps() != null ? s.getReps() : 0;
-                double w  = s.getWeightKg() != null ? s.getWeightKg() : 0.0;
-                totalWeightKg += (w * reps);
-
-                setDtos.add(new com.example.ironplan.rest.dto.WorkoutSetDetailDto(
-                        s.getId(),
-                        s.getSetNumber(),
-                        s.getReps(),
-                        s.getWeightKg(),
-                        s.isCompleted(),
-                        s.getNotes()
-                ));
-            }
-
-            exerciseDtos.add(new com.example.ironplan.rest.dto.WorkoutExerciseDetailDto(
-                    ex.getId(),
-                    ex.getExerciseOrder(),
-                    ex.getExerciseName(),
-                    ex.getPlannedSets(),
-                    ex.getPlannedRepsMin(),
-                    ex.getPlannedRepsMax(),
-                    ex.getPlannedRir(),
-                    ex.getPlannedRestSeconds(),
-                    ex.getStatus() != null ? ex.getStatus().name() : null,
-                    ex.getCompletedSets(),
-                    setDtos
+        for (SessionDetailRow row : rows) {
+            WorkoutExercise ex = row.exercise();
+            if (ex == null) continue;
+
+            List<WorkoutSetDetailDto> setDtos = setsByExercise.computeIfAbsent(ex, k -> new ArrayList<>());
+            WorkoutSet s = row.set();
+            if (s == null) continue;
+
+            totalSeries++;
+            int reps = s.getReps() != null ? s.getReps() : 0;
+            double w  = s.getWeightKg() != null ? s.getWeightKg() : 0.0;
+            totalWeightKg += (w * reps);
+
+            setDtos.add(new WorkoutSetDetailDto(
+                    s.getId(),
+                    s.getSetNumber(),
+                    s.getReps(),
+                    s.getWeightKg(),
+                    s.isCompleted(),
+                    s.getNotes()
             ));
         }
 
-        return new com.example.ironplan.rest.dto.WorkoutSessionDetailResponse(
+        List<WorkoutExerciseDetailDto> exerciseDtos = new ArrayList<>();
+        setsByExercise.forEach((ex, setDtos) -> exerciseDtos.add(new WorkoutExerciseDetailDto(
+                ex.getId(),
+                ex.getExerciseOrder(),
+                ex.getExerciseName(),
+                ex.getPlannedSets(),
+                ex.getPlannedRepsMin(),
+                ex.getPlannedRepsMax(),
+                ex.getPlannedRir(),
+                ex.getPlannedRestSeconds(),
+                ex.getStatus() != null ? ex.getStatus().name() : null,
+                ex.getCompletedSets(),
+                List.copyOf(setDtos)
+        )));
+
+        return new WorkoutSessionDetailResponse(
                 session.getId(),
                 routineName,
                 session.getStartedAt(),
@@ -265,7 +294,7 @@ private final ExerciseRepository exerciseRepo;
                 totalSeries,
                 totalWeightKg,
                 session.getXpEarned(),
-                exerciseDtos
+                List.copyOf(exerciseDtos)
         );
     }
 
@@ -293,16 +322,15 @@ private final ExerciseRepository exerciseRepo;
     @Transactional
     public void completeSession(Long sessionId, Long userId) {
         var session = getSessionForUser(sessionId, userId);
+        session.freezeProgress(); // XP acumulada hasta ahora (derivada mientras estaba activa)
         session.setStatus(WorkoutSessionStatus.COMPLETED);
         session.setCompletedAt(LocalDateTime.now());
         session.setProgressPercentage(100.0);
         sessionRepo.save(session);
 
-        // Verificar hazañas de entrenamiento
-        achievementService.checkWorkoutAchievements(session.getUser());
-        
-        // Verificar hazañas de XP (por si ganó XP en este entrenamiento)
-        achievementService.checkXpAchievements(session.getUser());
+        // Acumulado diario, hazañas y notificación en segundo plano (outbox)
+        outbox.enqueue(OutboxEventType.WORKOUT_COMPLETED, userId, session.getId(),
+                new PostWorkoutPipeline.WorkoutCompleted(session.getId(), 0, true, true));
     }
 
     /**
@@ -315,13 +343,22 @@ private final ExerciseRepository exerciseRepo;
         
         // Solo se puede descartar sesiones activas
         if (session.getStatus() != WorkoutSessionStatus.ACTIVE) {
-            throw new IllegalStateException("Solo se pueden descartar sesiones activas");
+            throw new SessionStateConflictException(
+                    "La sesión " + sessionId + " está " + session.getStatus() + "; solo se pueden descartar sesiones activas");
         }
         
         // Eliminar todos los sets registrados
         var exercises = workoutExerciseRepo.findByWorkoutSession_IdOrderByExerciseOrderAsc(sessionId);
+        if (session.getStartedAt() != null) {
+            muscleVolumeService.removeSession(userId, sessionId, session.getStartedAt().toLocalDate(), exercises);
+        }
+        Set<Long> touchedExerciseIds = new LinkedHashSet<>();
         for (WorkoutExercise exercise : exercises) {
             workoutSetRepo.deleteAllByWorkoutExercise_Id(exercise.getId());
+            Exercise catalogExercise = exercise.resolveCatalogExercise();
+            if (catalogExercise != null) {
+                touchedExerciseIds.add(catalogExercise.getId());
+            }
         }
         
         // Marcar la sesión como cancelada
@@ -330,6 +367,14 @@ private final ExerciseRepository exerciseRepo;
         session.setProgressPercentage(0.0);
         session.setXpEarned(0);
         sessionRepo.save(session);
+
+        // La "serie anterior" que venía de esta sesión ya no cuenta
+        // (los récords solo incluyen sesiones completadas: no hay nada que quitar)
+        for (Long catalogExerciseId : touchedExerciseIds) {
+            lastPerformanceService.refresh(userId, catalogExerciseId);
+        }
+
+        events.publishEvent(new WorkoutSessionDiscardedEvent(userId, sessionId, touchedExerciseIds));
     }
 
     /**
@@ -342,8 +387,12 @@ private final ExerciseRepository exerciseRepo;
         
         // Solo se puede finalizar sesiones activas
         if (session.getStatus() != WorkoutSessionStatus.ACTIVE) {
-            throw new IllegalStateException("Solo se pueden finalizar sesiones activas");
+            throw new SessionStateConflictException(
+                    "La sesión " + sessionId + " está " + session.getStatus() + "; solo se pueden finalizar sesiones activas");
         }
+
+        // XP acumulada con los ejercicios completados (derivada mientras estaba activa)
+        session.freezeProgress();
         
         // Calcular progreso real basado en ejercicios completados
         var exercises = workoutExerciseRepo.findByWorkoutSession_IdOrderByExerciseOrderAsc(sessionId);
@@ -369,11 +418,11 @@ private final ExerciseRepository exerciseRepo;
         session.setCompletedAt(LocalDateTime.now());
         sessionRepo.save(session);
 
-        // Verificar hazañas si completó al menos un ejercicio
-        if (completedExercises > 0) {
-            achievementService.checkWorkoutAchievements(session.getUser());
-            achievementService.checkXpAchievements(session.getUser());
-        }
+        // Acumulado diario en segundo plano (outbox); hazañas y notificación
+        // solo si completó al menos un ejercicio
+        boolean trained = completedExercises > 0;
+        outbox.enqueue(OutboxEventType.WORKOUT_COMPLETED, userId, session.getId(),
+                new PostWorkoutPipeline.WorkoutCompleted(session.getId(), 0, trained, trained));
     }
 
     @Transactional
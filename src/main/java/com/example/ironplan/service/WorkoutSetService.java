@@ -1,24 +1,32 @@
 // src/main/java/com/example/ironplan/service/WorkoutSetService.java
 package com.example.ironplan.service;
 
+import com.example.ironplan.event.WorkoutSetsSavedEvent;
+import com.example.ironplan.model.Exercise;
 import com.example.ironplan.model.WorkoutExercise;
 import com.example.ironplan.model.WorkoutExerciseStatus;
 import com.example.ironplan.model.WorkoutSession;
 import com.example.ironplan.model.WorkoutSessionStatus;
 import com.example.ironplan.model.WorkoutSet;
-import com.example.ironplan.model.XpEventType;
 import com.example.ironplan.repository.WorkoutExerciseRepository;
 import com.example.ironplan.repository.WorkoutSessionRepository;
 import com.example.ironplan.repository.WorkoutSetRepository;
+import com.example.ironplan.rest.dto.PersonalRecordFlagsDto;
+import com.example.ironplan.rest.dto.SaveSetsResponse;
 import com.example.ironplan.rest.dto.WorkoutPreviousSetDto;
 import com.example.ironplan.rest.error.NotFoundException;
 import com.example.ironplan.rest.dto.WorkoutSetInput;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class WorkoutSetService {
@@ -26,18 +34,36 @@ public class WorkoutSetService {
     private final WorkoutSessionRepository sessionRepo;
     private final WorkoutExerciseRepository workoutExerciseRepo;
     private final WorkoutSetRepository workoutSetRepo;
-    private final XpService xpService;
+    private final WorkoutProgressService progressService;
+    private final TrainingRollupService rollupService;
+    private final PersonalRecordService recordService;
+    private final MuscleVolumeService muscleVolumeService;
+    private final LastPerformanceService lastPerformanceService;
+    private final ApplicationEventPublisher events;
+    private final EntityManager entityManager;
 
     public WorkoutSetService(
             WorkoutSessionRepository sessionRepo,
             WorkoutExerciseRepository workoutExerciseRepo,
             WorkoutSetRepository workoutSetRepo,
-            XpService xpService
+            WorkoutProgressService progressService,
+            TrainingRollupService rollupService,
+            PersonalRecordService recordService,
+            MuscleVolumeService muscleVolumeService,
+            LastPerformanceService lastPerformanceService,
+            ApplicationEventPublisher events,
+            EntityManager entityManager
     ) {
         this.sessionRepo = sessionRepo;
         this.workoutExerciseRepo = workoutExerciseRepo;
         this.workoutSetRepo = workoutSetRepo;
-        this.xpService = xpService;
+        this.progressService = progressService;
+        this.rollupService = rollupService;
+        this.recordService = recordService;
+        this.muscleVolumeService = muscleVolumeService;
+        this.lastPerformanceService = lastPerformanceService;
+        this.events = events;
+        this.entityManager = entityManager;
     }
 
     // ---------- HELPERS PRIVADOS ----------
@@ -69,12 +95,14 @@ public class WorkoutSetService {
      *
      * - Valida que la sesión pertenezca al usuario.
      * - Valida que el ejercicio pertenezca a la sesión.
-     * - Crea/actualiza WorkoutSet para cada setNumber enviado.
+     * - Crea/actualiza WorkoutSet para cada setNumber enviado (un solo batch upsert).
      * - Actualiza completedSets y status del WorkoutExercise.
-     * - Actualiza progreso y XP de la WorkoutSession.
+     * - Actualiza progreso de la WorkoutSession y da la XP al completarla (una sola vez).
+     * - Actualiza los récords personales y devuelve cuáles se superaron.
+     * - Devuelve el progreso resultante del ejercicio y de la sesión.
      */
     @Transactional
-    public void saveSetsForExercise(
+    public SaveSetsResponse saveSetsForExercise(
             Long sessionId,
             Long exerciseId,
             Long userId,
@@ -90,110 +118,126 @@ public class WorkoutSetService {
             exercise.setStartedAt(LocalDateTime.now());
         }
 
-        // Traemos las series actuales
+        // Traemos las series actuales (una sola lectura)
         var existingSets = workoutSetRepo
                 .findByWorkoutExercise_IdOrderBySetNumberAsc(exercise.getId());
 
-        // Mapeamos por número de serie para fácil acceso
-        var existingByNumber = existingSets.stream()
-                .collect(java.util.stream.Collectors.toMap(
-                        WorkoutSet::getSetNumber,
-                        s -> s
-                ));
+        // Foto de lo completado antes de editar, para el delta de volumen por músculo
+        long previousCompleted = existingSets.stream().filter(WorkoutSet::isCompleted).count();
+        double previousVolume = completedVolume(existingSets);
 
-        // Procesamos cada input
+        // Estado combinado en memoria: copias de las series actuales + lo que llega.
+        // No tocamos las entidades gestionadas para que Hibernate no emita sus propios UPDATE.
+        Map<Integer, WorkoutSet> merged = new TreeMap<>();
+        for (WorkoutSet existing : existingSets) {
+            merged.put(existing.getSetNumber(), copyOf(existing));
+        }
+
+        Map<Integer, WorkoutSet> changed = new TreeMap<>();
         for (WorkoutSetInput input : setsInput) {
             if (input.setNumber() == null || input.setNumber() <= 0) {
                 continue; // ignoramos entradas inválidas
             }
 
-            var set = existingByNumber.get(input.setNumber());
-            if (set == null) {
-                set = new WorkoutSet();
-                set.setWorkoutExercise(exercise);
-                set.setSetNumber(input.setNumber());
-            }
+            WorkoutSet set = merged.computeIfAbsent(input.setNumber(), number -> {
+                WorkoutSet created = new WorkoutSet();
+                created.setWorkoutExercise(exercise);
+                created.setSetNumber(number);
+                created.setCreatedAt(LocalDateTime.now());
+                return created;
+            });
 
             set.setReps(input.reps());
             set.setWeightKg(input.weightKg());
             set.setCompleted(input.completed());
-
-            // (opcional) aquí podrías manejar notes por set si quisieras
-            // set.setNotes(...);
-
-            workoutSetRepo.save(set);
+            changed.put(input.setNumber(), set);
         }
 
-        // Recalcular estado del ejercicio: cuántas series completadas
-        var updatedSets = workoutSetRepo
-                .findByWorkoutExercise_IdOrderBySetNumberAsc(exercise.getId());
+        // Un único batch INSERT ... ON DUPLICATE KEY UPDATE
+        workoutSetRepo.upsertSets(exercise.getId(), changed.values());
+        // Las entidades cargadas arriba ya no reflejan la BD
+        existingSets.forEach(entityManager::detach);
 
+        List<WorkoutSet> updatedSets = new ArrayList<>(merged.values());
         long completedCount = updatedSets.stream()
                 .filter(WorkoutSet::isCompleted)
                 .count();
 
-        exercise.setCompletedSets((int) completedCount);
-
-        // Si ya completó todas las series planeadas → marcar ejercicio COMPLETED
+        // Si ya completó todas las series planeadas → marcar ejercicio COMPLETED.
+        // La transición es un UPDATE condicional: solo una petición suma al contador de la sesión.
         int plannedSets = exercise.getPlannedSets() != null ? exercise.getPlannedSets() : 0;
+        boolean exerciseJustCompleted = false;
         if (plannedSets > 0 && completedCount >= plannedSets) {
-            exercise.setStatus(WorkoutExerciseStatus.COMPLETED);
-            exercise.setFinishedAt(LocalDateTime.now());
+            exerciseJustCompleted = progressService.completeExercise(exercise, (int) completedCount);
+        } else {
+            exercise.setCompletedSets((int) completedCount);
+            workoutExerciseRepo.save(exercise);
         }
 
-        workoutExerciseRepo.save(exercise);
+        // Récords personales: solo comparamos las series de este ejercicio
+        PersonalRecordFlagsDto records = recordService.applyExerciseSets(userId, session, exercise, updatedSets);
 
-        // Recalcular progreso de la sesión y XP
-        recalculateSessionProgressAndXp(session);
-    }
+        // "Serie anterior" para la próxima vez (rutina y personalizadas)
+        lastPerformanceService.applyExerciseSets(userId, session, exercise, updatedSets);
 
-    // ---------- RECALCULAR PROGRESO / XP ----------
+        // Progreso de la sesión: solo cambia cuando un ejercicio pasa a COMPLETED
+        boolean sessionJustCompleted = exerciseJustCompleted && progressService.completeSessionIfDone(session);
 
-    private void recalculateSessionProgressAndXp(WorkoutSession session) {
-        // Traemos todos los ejercicios de la sesión
-        var exercises = workoutExerciseRepo
-                .findByWorkoutSession_IdOrderByExerciseOrderAsc(session.getId());
-
-        int total = session.getTotalExercises() != null ? session.getTotalExercises() : exercises.size();
-        int completed = (int) exercises.stream()
-                .filter(e -> e.getStatus() == WorkoutExerciseStatus.COMPLETED)
-                .count();
-
-        session.setCompletedExercises(completed);
-
-        double progress = 0.0;
-        if (total > 0) {
-            progress = (completed * 100.0) / total;
-        }
-        session.setProgressPercentage(progress);
-
-        // XP proporcional usando estimatedXp de RoutineDetail
-        int xpToGrant = 0;
-        if (session.getRoutineDetail() != null && session.getRoutineDetail().getEstimatedXp() != null) {
-            int estimatedXp = session.getRoutineDetail().getEstimatedXp();
-            xpToGrant = (int) Math.round(estimatedXp * (progress / 100.0));
-            session.setXpEarned(xpToGrant);
+        // Edición tardía de una sesión ya completada: actualizamos el acumulado diario
+        // (si se acaba de completar, lo hace PostWorkoutPipeline)
+        // y cambiamos la versión de la sesión para que su ETag de detalle deje de valer
+        if (!sessionJustCompleted && session.getStatus() == WorkoutSessionStatus.COMPLETED) {
+            rollupService.refreshForSession(session);
+            sessionRepo.touch(session.getId(), LocalDateTime.now());
+            entityManager.refresh(session);
         }
 
-        // Si ya completó todo, marcamos la sesión como COMPLETED y sumamos XP al usuario
-        boolean wasActive = session.getStatus() == WorkoutSessionStatus.ACTIVE;
-        if (total > 0 && completed >= total && wasActive) {
-            session.setStatus(WorkoutSessionStatus.COMPLETED);
-            session.setCompletedAt(LocalDateTime.now());
-            
-            // ✅ SUMAR XP AL USUARIO
-            if (xpToGrant > 0) {
-                String description = String.format(
-                    "Sesión completada: %s",
-                    session.getRoutineDetail() != null ? session.getRoutineDetail().getTitle() : "Entrenamiento"
-                );
-                xpService.grantXp(session.getUser(), xpToGrant, XpEventType.WORKOUT_COMPLETED, description);
-            }
+        Exercise catalogExercise = exercise.resolveCatalogExercise();
+        if (catalogExercise != null && session.getStartedAt() != null) {
+            muscleVolumeService.applyDelta(
+                    userId,
+                    catalogExercise.getId(),
+                    session.getStartedAt().toLocalDate(),
+                    completedCount - previousCompleted,
+                    completedVolume(updatedSets) - previousVolume
+            );
         }
 
-        sessionRepo.save(session);
+        events.publishEvent(new WorkoutSetsSavedEvent(
+                userId, session.getId(), catalogExercise != null ? catalogExercise.getId() : null));
+
+        return new SaveSetsResponse(
+                exercise.getId(),
+                records,
+                exercise.getCompletedSets(),
+                exercise.getPlannedSets(),
+                exercise.getStatus(),
+                session.getCompletedExercises(),
+                session.getTotalExercises(),
+                session.getProgressPercentage(),
+                session.getStatus()
+        );
     }
 
+    private static WorkoutSet copyOf(WorkoutSet source) {
+        WorkoutSet copy = new WorkoutSet();
+        copy.setId(source.getId());
+        copy.setWorkoutExercise(source.getWorkoutExercise());
+        copy.setSetNumber(source.getSetNumber());
+        copy.setReps(source.getReps());
+        copy.setWeightKg(source.getWeightKg());
+        copy.setCompleted(source.isCompleted());
+        copy.setCreatedAt(source.getCreatedAt());
+        return copy;
+    }
 
-
+    private static double completedVolume(List<WorkoutSet> sets) {
+        double volume = 0.0;
+        for (WorkoutSet s : sets) {
+            if (s.isCompleted() && s.getWeightKg() != null && s.getReps() != null) {
+                volume += s.getWeightKg() * s.getReps();
+            }
+        }
+        return volume;
+    }
 }
@@ -0,0 +1,197 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.WorkoutExercise;
+import com.example.ironplan.model.WorkoutSession;
+import com.example.ironplan.model.WorkoutSessionStatus;
+import com.example.ironplan.model.WorkoutSet;
+import com.example.ironplan.repository.WorkoutExerciseRepository;
+import com.example.ironplan.repository.WorkoutSessionRepository;
+import com.example.ironplan.repository.WorkoutSetRepository;
+import com.example.ironplan.rest.dto.WorkoutExerciseDetailDto;
+import com.example.ironplan.rest.dto.WorkoutSetDetailDto;
+import com.example.ironplan.rest.dto.WorkoutSetInput;
+import com.example.ironplan.rest.dto.WorkoutSyncOperation;
+import com.example.ironplan.rest.dto.WorkoutSyncRequest;
+import com.example.ironplan.rest.dto.WorkoutSyncResponse;
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Aplica el diario offline de una sesión (series, reordenes, ejercicios completados,
+ * finalizar / descartar) en una sola transacción.
+ *
+ * - Cada operación trae un seq creciente; las que ya se aplicaron (seq <= last_sync_seq) se saltan,
+ *   así que reenviar el mismo diario tras un corte de red no duplica nada.
+ * - Las operaciones reutilizan los mismos servicios que los endpoints individuales.
+ * - FINISH sobre una sesión que ya quedó COMPLETED (la última serie la cerró sola) no hace nada;
+ *   DISCARD sobre una sesión cerrada responde 409 (SessionStateConflictException).
+ * - Si algo falla no se aplica nada y el cursor no avanza.
+ */
+@Service
+public class WorkoutSyncService {
+
+    private final WorkoutSessionService sessionService;
+    private final WorkoutSetService setService;
+    private final WorkoutExerciseService exerciseService;
+    private final WorkoutSessionRepository sessionRepo;
+    private final WorkoutExerciseRepository workoutExerciseRepo;
+    private final WorkoutSetRepository workoutSetRepo;
+    private final EntityManager entityManager;
+
+    public WorkoutSyncService(
+            WorkoutSessionService sessionService,
+            WorkoutSetService setService,
+            WorkoutExerciseService exerciseService,
+            WorkoutSessionRepository sessionRepo,
+            WorkoutExerciseRepository workoutExerciseRepo,
+            WorkoutSetRepository workoutSetRepo,
+            EntityManager entityManager
+    ) {
+        this.sessionService = sessionService;
+        this.setService = setService;
+        this.exerciseService = exerciseService;
+        this.sessionRepo = sessionRepo;
+        this.workoutExerciseRepo = workoutExerciseRepo;
+        this.workoutSetRepo = workoutSetRepo;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional
+    public WorkoutSyncResponse sync(Long sessionId, Long userId, WorkoutSyncRequest request) {
+        WorkoutSession session = sessionService.getSessionForUser(sessionId, userId);
+        long lastSeq = session.getLastSyncSeq() != null ? session.getLastSyncSeq() : 0L;
+
+        List<WorkoutSyncOperation> pending = request.operations().stream()
+                .filter(op -> op.seq() > lastSeq)
+                .toList();
+        validate(pending);
+
+        for (WorkoutSyncOperation op : pending) {
+            apply(session, userId, op);
+        }
+
+        long appliedSeq = lastSeq;
+        if (!pending.isEmpty()) {
+            appliedSeq = pending.get(pending.size() - 1).seq();
+            // Si otra sincronización de esta sesión avanzó el cursor, se revierte todo
+            // y OptimisticRetryService vuelve a intentarlo (ya deduplicado)
+            if (sessionRepo.advanceSyncSeq(sessionId, lastSeq, appliedSeq) == 0) {
+                throw new OptimisticLockingFailureException(
+                        "La sesión " + sessionId + " se sincronizó en paralelo");
+            }
+        }
+
+        entityManager.refresh(session);
+        return toResponse(session, appliedSeq, pending.size(), request.operations().size() - pending.size());
+    }
+
+    // ============ OPERACIONES ============
+
+    private void apply(WorkoutSession session, Long userId, WorkoutSyncOperation op) {
+        Long sessionId = session.getId();
+        switch (op.type()) {
+            case SAVE_SETS -> {
+                List<WorkoutSetInput> inputs = op.sets().stream()
+                        .map(item -> new WorkoutSetInput(
+                                item.setNumber(),
+                                item.reps(),
+                                item.weightKg(),
+                                Boolean.TRUE.equals(item.completed())
+                        ))
+                        .toList();
+                setService.saveSetsForExercise(sessionId, op.workoutExerciseId(), userId, inputs, null);
+            }
+            case REORDER -> sessionService.reorderNextExercises(sessionId, userId, op.workoutExerciseIds());
+            case COMPLETE_EXERCISE -> exerciseService.markExerciseCompleted(sessionId, op.workoutExerciseId(), userId);
+            case FINISH -> {
+                // La sesión es la misma instancia gestionada que refrescan los servicios,
+                // así que su estado ya refleja el autocompletado de las operaciones anteriores
+                if (session.getStatus() != WorkoutSessionStatus.COMPLETED) {
+                    sessionService.finishSession(sessionId, userId);
+                }
+            }
+            case DISCARD -> sessionService.discardSession(sessionId, userId);
+        }
+    }
+
+    /**
+     * Secuencia estrictamente creciente, campos requeridos por tipo
+     * y finalizar / descartar solo como última operación.
+     */
+    private static void validate(List<WorkoutSyncOperation> ops) {
+        Long previousSeq = null;
+        for (int i = 0; i < ops.size(); i++) {
+            WorkoutSyncOperation op = ops.get(i);
+
+            if (previousSeq != null && op.seq() <= previousSeq) {
+                throw new IllegalArgumentException("Las operaciones deben venir con seq creciente (seq " + op.seq() + ")");
+            }
+            previousSeq = op.seq();
+
+            boolean valid = switch (op.type()) {
+                case SAVE_SETS -> op.workoutExerciseId() != null && op.sets() != null && !op.sets().isEmpty();
+                case REORDER -> op.workoutExerciseIds() != null;
+                case COMPLETE_EXERCISE -> op.workoutExerciseId() != null;
+                case FINISH, DISCARD -> i == ops.size() - 1;
+            };
+            if (!valid) {
+                throw new IllegalArgumentException("Operación " + op.type() + " inválida (seq " + op.seq() + ")");
+            }
+        }
+    }
+
+    // ============ ESTADO RECONCILIADO ============
+
+    private WorkoutSyncResponse toResponse(WorkoutSession session, long appliedSeq, int applied, int skipped) {
+        List<WorkoutExercise> exercises = workoutExerciseRepo
+                .findByWorkoutSession_IdOrderByExerciseOrderAsc(session.getId());
+
+        // Una sola consulta para las series de toda la sesión
+        Map<Long, List<WorkoutSet>> setsByExercise = workoutSetRepo.findBySessionId(session.getId()).stream()
+                .collect(Collectors.groupingBy(ws -> ws.getWorkoutExercise().getId()));
+
+        List<WorkoutExerciseDetailDto> exerciseDtos = exercises.stream()
+                .map(ex -> new WorkoutExerciseDetailDto(
+                        ex.getId(),
+                        ex.getExerciseOrder(),
+                        ex.getExerciseName(),
+                        ex.getPlannedSets(),
+                        ex.getPlannedRepsMin(),
+                        ex.getPlannedRepsMax(),
+                        ex.getPlannedRir(),
+                        ex.getPlannedRestSeconds(),
+                        ex.getStatus() != null ? ex.getStatus().name() : null,
+                        ex.getCompletedSets(),
+                        setsByExercise.getOrDefault(ex.getId(), List.of()).stream()
+                                .map(s -> new WorkoutSetDetailDto(
+                                        s.getId(),
+                                        s.getSetNumber(),
+                                        s.getReps(),
+                                        s.getWeightKg(),
+                                        s.isCompleted(),
+                                        s.getNotes()
+                                ))
+                                .toList()
+                ))
+                .toList();
+
+        return new WorkoutSyncResponse(
+                session.getId(),
+                appliedSeq,
+                applied,
+                skipped,
+                session.getStatus(),
+                session.getCompletedExercises(),
+                session.getTotalExercises(),
+                session.getProgressPercentage(),
+                session.getXpEarned(),
+                exerciseDtos
+        );
+    }
+}
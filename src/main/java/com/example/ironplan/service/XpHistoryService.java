@@ -0,0 +1,184 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.UserXpMonthly;
+import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.repository.UserXpEventRepository;
+import com.example.ironplan.repository.UserXpEventRepository.MonthlyTotalsView;
+import com.example.ironplan.repository.UserXpEventRepository.XpHistoryRowView;
+import com.example.ironplan.repository.UserXpMonthlyRepository;
+import com.example.ironplan.rest.dto.XpHistoryItemDto;
+import com.example.ironplan.rest.dto.XpHistoryPageResponse;
+import com.example.ironplan.rest.dto.XpMonthDto;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Historial de XP del usuario.
+ *
+ * - getHistory: páginas de user_xp_events por clave (createdAt, id), sin OFFSET.
+ * - getMonthly: gráficas desde user_xp_monthly (se suma en XpService al confirmar cada lote).
+ * - rebuildUser / rebuildAll: backfill del acumulado mensual a partir del historial.
+ */
+@Service
+public class XpHistoryService {
+
+    private static final int MAX_PAGE = 100;
+    private static final int MAX_MONTHS = 60;
+
+    private final UserXpEventRepository xpEventRepo;
+    private final UserXpMonthlyRepository xpMonthlyRepo;
+    private final UserRepository userRepo;
+    private final TransactionTemplate txTemplate;
+
+    public XpHistoryService(
+            UserXpEventRepository xpEventRepo,
+            UserXpMonthlyRepository xpMonthlyRepo,
+            UserRepository userRepo,
+            PlatformTransactionManager txManager
+    ) {
+        this.xpEventRepo = xpEventRepo;
+        this.xpMonthlyRepo = xpMonthlyRepo;
+        this.userRepo = userRepo;
+        this.txTemplate = new TransactionTemplate(txManager);
+    }
+
+    // ============ LECTURA ============
+
+    @Transactional(readOnly = true)
+    public XpHistoryPageResponse getHistory(Long userId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE);
+        HistoryCursor after = HistoryCursor.decode(cursor);
+
+        // limit + 1 para saber si hay otra página
+        List<XpHistoryRowView> rows = xpEventRepo.findHistoryPage(
+                userId,
+                after != null ? after.createdAt() : null,
+                after != null ? after.id() : null,
+                PageRequest.ofSize(pageSize + 1)
+        );
+
+        boolean hasMore = rows.size() > pageSize;
+        List<XpHistoryRowView> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<XpHistoryItemDto> items = page.stream()
+                .map(r -> new XpHistoryItemDto(
+                        r.getId(),
+                        r.getXpDelta(),
+                        r.getType(),
+                        r.getDescription(),
+                        r.getRoutineTemplateId(),
+                        r.getRoutineName(),
+                        r.getCreatedAt()
+                ))
+                .toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            XpHistoryRowView last = page.get(page.size() - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new XpHistoryPageResponse(items, nextCursor);
+    }
+
+    /**
+     * Últimos N meses (incluido el actual), con los meses sin actividad a cero.
+     */
+    @Transactional(readOnly = true)
+    public List<XpMonthDto> getMonthly(Long userId, int months) {
+        int count = Math.min(Math.max(months, 1), MAX_MONTHS);
+        LocalDate current = LocalDate.now().withDayOfMonth(1);
+        LocalDate from = current.minusMonths(count - 1L);
+
+        Map<LocalDate, List<UserXpMonthly>> byMonth = new TreeMap<>();
+        for (UserXpMonthly row : xpMonthlyRepo.findByUser_IdAndMonthStartGreaterThanEqualOrderByMonthStartAsc(userId, from)) {
+            byMonth.computeIfAbsent(row.getMonthStart(), m -> new ArrayList<>()).add(row);
+        }
+
+        List<XpMonthDto> result = new ArrayList<>(count);
+        for (LocalDate month = from; !month.isAfter(current); month = month.plusMonths(1)) {
+            int gained = 0, spent = 0, events = 0;
+            List<XpMonthDto.TypeTotal> byType = new ArrayList<>();
+            for (UserXpMonthly row : byMonth.getOrDefault(month, List.of())) {
+                gained += row.getGained();
+                spent += row.getSpent();
+                events += row.getEvents();
+                byType.add(new XpMonthDto.TypeTotal(row.getType(), row.getGained(), row.getSpent(), row.getEvents()));
+            }
+            result.add(new XpMonthDto(month, gained, spent, events, byType));
+        }
+        return result;
+    }
+
+    // ============ RECONSTRUCCIÓN ============
+
+    @Transactional
+    public int rebuildUser(Long userId) {
+        xpMonthlyRepo.deleteAllByUserId(userId);
+
+        List<UserXpMonthly> rows = new ArrayList<>();
+        for (MonthlyTotalsView t : xpEventRepo.findMonthlyTotals(userId)) {
+            UserXpMonthly row = new UserXpMonthly();
+            row.setUser(userRepo.getReferenceById(userId));
+            row.setMonthStart(LocalDate.of(t.getYear(), t.getMonth(), 1));
+            row.setType(t.getType());
+            row.setGained(t.getGained() != null ? t.getGained().intValue() : 0);
+            row.setSpent(t.getSpent() != null ? t.getSpent().intValue() : 0);
+            row.setEvents(t.getEvents() != null ? t.getEvents().intValue() : 0);
+            rows.add(row);
+        }
+        xpMonthlyRepo.saveAll(rows);
+
+        return rows.size();
+    }
+
+    /**
+     * Reconstruye el acumulado mensual de XP de todos los usuarios, uno por transacción.
+     */
+    public int rebuildAll() {
+        int rows = 0;
+        for (Long userId : userRepo.findAllIds()) {
+            Integer rebuilt = txTemplate.execute(status -> rebuildUser(userId));
+            rows += rebuilt != null ? rebuilt : 0;
+        }
+        return rows;
+    }
+
+    // ============ HELPERS ============
+
+    /**
+     * Cursor del historial de XP: (createdAt, id) en Base64 URL-safe.
+     */
+    private record HistoryCursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new HistoryCursor(
+                        LocalDateTime.parse(raw.substring(0, sep)),
+                        Long.parseLong(raw.substring(sep + 1))
+                );
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de historial inválido");
+            }
+        }
+    }
+}
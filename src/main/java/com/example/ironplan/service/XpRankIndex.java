@@ -0,0 +1,166 @@
+package com.example.ironplan.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Ranking de XP en memoria para un ámbito (global, organización o grupo).
+ *
+ * - Árbol de Fenwick sobre cubos de XP (bucketWidth puntos por cubo): cuántos usuarios
+ *   hay por encima de un cubo en O(log n).
+ * - Cada cubo no vacío guarda sus miembros ordenados (más XP primero, luego userId),
+ *   así que el desempate dentro del cubo recorre pocos elementos.
+ * - No es thread-safe: LeaderboardService lo protege con su lock.
+ */
+final class XpRankIndex {
+
+    record Member(Long userId, int xp) {}
+
+    // Más XP primero; a igual XP, el id más bajo (orden estable)
+    private static final Comparator<Member> ORDER = Comparator
+            .comparingInt(Member::xp).reversed()
+            .thenComparing(Member::userId);
+
+    private final int bucketWidth;
+    private final TreeMap<Integer, TreeSet<Member>> buckets = new TreeMap<>();
+    // Fenwick 1-based: tree[i] cubre cubos; longitud siempre potencia de dos + 1
+    private long[] tree = new long[1025];
+    private int size;
+    private long xpSum;
+
+    XpRankIndex(int bucketWidth) {
+        this.bucketWidth = Math.max(1, bucketWidth);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long xpSum() {
+        return xpSum;
+    }
+
+    void add(Long userId, int xp) {
+        int bucket = bucket(xp);
+        ensureCapacity(bucket);
+        if (buckets.computeIfAbsent(bucket, b -> new TreeSet<>(ORDER)).add(new Member(userId, xp))) {
+            update(bucket, 1);
+            size++;
+            xpSum += xp;
+        }
+    }
+
+    void remove(Long userId, int xp) {
+        int bucket = bucket(xp);
+        TreeSet<Member> members = buckets.get(bucket);
+        if (members == null || !members.remove(new Member(userId, xp))) return;
+        if (members.isEmpty()) buckets.remove(bucket);
+        update(bucket, -1);
+        size--;
+        xpSum -= xp;
+    }
+
+    /**
+     * Rango "de competición": 1 + usuarios con más XP (los empates comparten puesto).
+     */
+    int rank(int xp) {
+        return 1 + countAbove(new Member(Long.MIN_VALUE, xp));
+    }
+
+    /**
+     * Posición en el orden total (1 = primero); distinta para cada miembro.
+     */
+    int position(Long userId, int xp) {
+        return 1 + countAbove(new Member(userId, xp));
+    }
+
+    /**
+     * Miembros en las posiciones [from, from + count) del ranking.
+     */
+    List<Member> slice(int from, int count) {
+        List<Member> out = new ArrayList<>(Math.max(0, Math.min(count, size)));
+        if (from < 1 || from > size || count <= 0) return out;
+
+        // Fenwick suma de abajo arriba: la posición from desde arriba es la (size - from + 1) desde abajo
+        long remaining = size - from + 1L;
+        int index = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next < tree.length && tree[next] < remaining) {
+                index = next;
+                remaining -= tree[next];
+            }
+        }
+
+        // index es el cubo (0-based) que contiene la posición; dentro, "remaining" contando desde abajo
+        Map.Entry<Integer, TreeSet<Member>> entry = buckets.floorEntry(index);
+        Iterator<Member> it = entry.getValue().iterator();
+        for (int skip = entry.getValue().size() - (int) remaining; skip > 0; skip--) {
+            it.next();
+        }
+
+        while (out.size() < count) {
+            if (!it.hasNext()) {
+                entry = buckets.lowerEntry(entry.getKey());
+                if (entry == null) break;
+                it = entry.getValue().iterator();
+                continue;
+            }
+            out.add(it.next());
+        }
+        return out;
+    }
+
+    // ============ HELPERS ============
+
+    /**
+     * Miembros que van antes que probe: cubos superiores por Fenwick + los del propio cubo.
+     */
+    private int countAbove(Member probe) {
+        int bucket = bucket(probe.xp());
+        int above = (int) (size - prefix(Math.min(bucket, tree.length - 2)));
+        TreeSet<Member> members = buckets.get(bucket);
+        if (members != null) {
+            above += members.headSet(probe, false).size();
+        }
+        return above;
+    }
+
+    private int bucket(int xp) {
+        return Math.max(0, xp) / bucketWidth;
+    }
+
+    // Suma de los cubos [0, bucket]
+    private long prefix(int bucket) {
+        long sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void update(int bucket, int delta) {
+        for (int i = bucket + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Crece duplicando y reconstruye desde los cubos (solo cuando alguien supera el máximo)
+    private void ensureCapacity(int bucket) {
+        if (bucket + 1 < tree.length) return;
+        int capacity = tree.length - 1;
+        while (capacity <= bucket + 1) capacity <<= 1;
+
+        tree = new long[capacity + 1];
+        for (Map.Entry<Integer, TreeSet<Member>> e : buckets.entrySet()) {
+            for (int i = e.getKey() + 1; i < tree.length; i += i & -i) {
+                tree[i] += e.getValue().size();
+            }
+        }
+    }
+}
@@ -1,21 +1,53 @@
 // src/main/java/com/example/ironplan/service/XpService.java
 package com.example.ironplan.service;
 
+import com.example.ironplan.event.XpChangedEvent;
 import com.example.ironplan.model.*;
 import com.example.ironplan.repository.UserRepository;
+import com.example.ironplan.repository.UserRepository.XpBalanceView;
 import com.example.ironplan.repository.UserXpEventRepository;
+import com.example.ironplan.repository.UserXpMonthlyRepository;
+import com.example.ironplan.rest.error.NotFoundException;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saldo y rango de XP.
+ *
+ * - El saldo se cambia con UPDATE atómicos (xp = xp + ?), nunca guardando el User recibido,
+ *   que puede ser el principal de la petición y venir desactualizado.
+ * - El historial (user_xp_events) se acumula durante la transacción y se inserta en un
+ *   solo batch justo antes del commit, junto con su suma en user_xp_monthly.
+ */
 @Service
 public class XpService {
 
     private final UserRepository userRepo;
     private final UserXpEventRepository xpEventRepo;
+    private final UserXpMonthlyRepository xpMonthlyRepo;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public XpService(UserRepository userRepo, UserXpEventRepository xpEventRepo) {
+    public XpService(
+            UserRepository userRepo,
+            UserXpEventRepository xpEventRepo,
+            UserXpMonthlyRepository xpMonthlyRepo,
+            EntityManager entityManager,
+            ApplicationEventPublisher eventPublisher
+    ) {
         this.userRepo = userRepo;
         this.xpEventRepo = xpEventRepo;
+        this.xpMonthlyRepo = xpMonthlyRepo;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
     }
 
     /** Gana XP (workout, logro, etc.) */
@@ -23,43 +55,94 @@ public class XpService {
     public void grantXp(User user, int amount, XpEventType type, String description) {
         if (amount <= 0) return;
 
-        // actualizar saldos
-        user.setXpPoints(user.getXpPoints() + amount);
-        user.setLifetimeXp(user.getLifetimeXp() + amount);
-
-        // recalcular rango
-        XpRank newRank = XpRank.fromLifetimeXp(user.getLifetimeXp());
-        user.setXpRank(newRank);
-
-        userRepo.save(user);
+        if (userRepo.addXp(user.getId(), amount) == 0) {
+            throw new NotFoundException("Usuario no encontrado");
+        }
+        XpBalanceView balance = syncBalance(user);
 
-        // registrar evento
-        var event = new UserXpEvent();
-        event.setUser(user);
-        event.setXpDelta(amount);
-        event.setType(type);
-        event.setDescription(description);
-        xpEventRepo.save(event);
+        appendLedger(event(user, amount, type, description, null));
+        eventPublisher.publishEvent(new XpChangedEvent(user.getId(), balance.getLifetimeXp()));
     }
 
     /** Gasta XP (ej: compra de rutina XP_UNLOCK) */
     @Transactional
     public void spendXp(User user, int amount, RoutineTemplate template, String description) {
         if (amount <= 0) return;
-        if (user.getXpPoints() < amount) {
+
+        // Descuento condicionado al saldo: dos compras a la vez no lo dejan en negativo
+        if (userRepo.spendXp(user.getId(), amount) == 0) {
             throw new IllegalArgumentException("XP insuficiente para realizar esta acción.");
         }
+        syncBalance(user);
+
+        appendLedger(event(user, -amount, XpEventType.ROUTINE_PURCHASE, description, template));
+    }
+
+    // ============ HELPERS ============
 
-        user.setXpPoints(user.getXpPoints() - amount);
-        // lifetimeXp NO se reduce, así el rango no baja
-        userRepo.save(user);
+    /**
+     * Recalcula el rango con el acumulado ya actualizado y deja el User recibido al día.
+     */
+    private XpBalanceView syncBalance(User user) {
+        XpBalanceView balance = userRepo.findXpBalance(user.getId());
+        XpRank rank = XpRank.fromLifetimeXp(balance.getLifetimeXp());
+        if (rank != balance.getXpRank()) {
+            userRepo.updateXpRank(user.getId(), rank);
+        }
+
+        if (entityManager.contains(user)) {
+            // Gestionado: refresh en vez de setters, para que el flush no vuelva a escribir la fila
+            entityManager.refresh(user);
+        } else {
+            user.setXpPoints(balance.getXpPoints());
+            user.setLifetimeXp(balance.getLifetimeXp());
+            user.setXpRank(rank);
+        }
+        return balance;
+    }
 
+    private static UserXpEvent event(User user, int delta, XpEventType type, String description, RoutineTemplate template) {
         var event = new UserXpEvent();
         event.setUser(user);
-        event.setXpDelta(-amount);
-        event.setType(XpEventType.ROUTINE_PURCHASE);
-        event.setRoutineTemplate(template);
+        event.setXpDelta(delta);
+        event.setType(type);
         event.setDescription(description);
-        xpEventRepo.save(event);
+        event.setRoutineTemplate(template);
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+
+    private void appendLedger(UserXpEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeLedger(List.of(event));
+            return;
+        }
+
+        // Un lote por transacción (las REQUIRES_NEW tienen sus propias sincronizaciones)
+        LedgerBatch batch = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(LedgerBatch.class::isInstance)
+                .map(LedgerBatch.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    LedgerBatch created = new LedgerBatch();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+        batch.events.add(event);
+    }
+
+    private final class LedgerBatch implements TransactionSynchronization {
+
+        private final List<UserXpEvent> events = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            writeLedger(events);
+        }
+    }
+
+    private void writeLedger(List<UserXpEvent> events) {
+        xpEventRepo.appendAll(events);
+        xpMonthlyRepo.addEvents(events);
     }
 }
@@ -0,0 +1,212 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.*;
+import com.example.ironplan.rest.dto.progress.ProgressSummaryDto;
+import com.example.ironplan.rest.dto.progress.WeeklyStatsDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El resumen de progreso y el historial semanal leen acumulados (diario, racha, récords):
+ * el número de consultas no depende de cuánto histórico tenga el usuario.
+ * Se genera un histórico de dos años (3 sesiones por semana) y se cuentan sentencias.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({
+        ProgressService.class,
+        TrainingRollupService.class,
+        TrainingStreakService.class,
+        PersonalRecordService.class
+})
+class ProgressServiceTest {
+
+    private static final int WEEKS = 104;
+    private static final int EXERCISES = 3;
+    private static final int SETS_PER_EXERCISE = 3;
+    private static final Set<DayOfWeek> TRAINING_DAYS =
+            Set.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY);
+
+    @Autowired
+    private ProgressService progressService;
+    @Autowired
+    private TrainingRollupService rollupService;
+    @Autowired
+    private TrainingStreakService streakService;
+    @Autowired
+    private PersonalRecordService recordService;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private User user;
+    private int sessions;
+
+    @BeforeEach
+    void setUp() {
+        user = em.persist(user());
+
+        RoutineTemplate template = new RoutineTemplate();
+        template.setName("Full body");
+        template.setDescription("Rutina de prueba");
+        template.setGoal(Goal.HIPERTROFIA);
+        template.setIsPublic(true);
+        template.setType(Type.ADMIN_ISOLATED);
+        template.setAccess(Access_Type.FREE);
+        template.setDays_per_week(3);
+        template.setSuggestedLevel(Level.NOVATO);
+        template.setCreatedAt(LocalDateTime.now());
+        em.persist(template);
+
+        RoutineBlock block = new RoutineBlock();
+        block.setRoutine(template);
+        block.setName("Bloque 1");
+        em.persist(block);
+
+        RoutineDetail detail = new RoutineDetail();
+        detail.setBlock(block);
+        detail.setTitle("Full body A");
+        em.persist(detail);
+
+        List<RoutineExercise> routineExercises = new ArrayList<>();
+        for (int order = 1; order <= EXERCISES; order++) {
+            RoutineExercise routineExercise = new RoutineExercise();
+            routineExercise.setSession(detail);
+            routineExercise.setExercise(em.persist(exercise("Ejercicio " + order)));
+            routineExercise.setExerciseOrder(order);
+            routineExercise.setSets(SETS_PER_EXERCISE);
+            routineExercise.setRepsMin(8);
+            routineExercise.setRepsMax(12);
+            routineExercises.add(em.persist(routineExercise));
+        }
+
+        // Dos años hacia atrás, lunes / miércoles / viernes, con carga que sube poco a poco
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = today.minusWeeks(WEEKS); day.isBefore(today); day = day.plusDays(1)) {
+            if (!TRAINING_DAYS.contains(day.getDayOfWeek())) continue;
+            persistSession(detail, routineExercises, day, 40.0 + sessions * 0.1);
+            sessions++;
+        }
+
+        em.flush();
+        em.clear();
+
+        // Acumulados derivados, como tras --rebuild
+        rollupService.rebuildUser(user.getId());
+        streakService.rebuildUser(user.getId());
+        recordService.rebuildUser(user.getId());
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void weeklyHistoryIsASingleRangeScan() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        List<WeeklyStatsDto> weeks = progressService.getWeeklyHistory(user, WEEKS);
+
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(weeks).hasSize(WEEKS);
+        // Todas las semanas completas del rango tienen sus tres sesiones
+        assertThat(weeks.get(1).workoutsCompleted()).isEqualTo(TRAINING_DAYS.size());
+        assertThat(weeks.get(1).totalSets()).isEqualTo(TRAINING_DAYS.size() * EXERCISES * SETS_PER_EXERCISE);
+    }
+
+    @Test
+    void progressSummaryQueryCountDoesNotGrowWithHistory() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        ProgressSummaryDto summary = progressService.getProgressSummary(user, WEEKS);
+
+        // Totales, acumulado diario, racha, top ejercicios, récords, historial semanal
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(6);
+        assertThat(summary.totalWorkouts()).isEqualTo(sessions);
+        assertThat(summary.totalSets()).isEqualTo(sessions * EXERCISES * SETS_PER_EXERCISE);
+        assertThat(summary.topExercises()).hasSize(EXERCISES);
+        assertThat(summary.topExercises()).allSatisfy(top -> assertThat(top.estimated1RM()).isNotNull());
+        assertThat(summary.weeklyHistory()).hasSize(WEEKS);
+    }
+
+    // ============ DATOS ============
+
+    private void persistSession(RoutineDetail detail, List<RoutineExercise> routineExercises, LocalDate day, double weightKg) {
+        WorkoutSession session = new WorkoutSession();
+        session.setUser(user);
+        session.setRoutineDetail(detail);
+        session.setStatus(WorkoutSessionStatus.COMPLETED);
+        session.setStartedAt(day.atTime(18, 0));
+        session.setCompletedAt(day.atTime(19, 0));
+        session.setTotalExercises(EXERCISES);
+        session.setCompletedExercises(EXERCISES);
+        session.setProgressPercentage(100.0);
+        em.persist(session);
+
+        for (RoutineExercise routineExercise : routineExercises) {
+            WorkoutExercise we = new WorkoutExercise();
+            we.setWorkoutSession(session);
+            we.setRoutineExercise(routineExercise);
+            we.setExerciseName(routineExercise.getExercise().getName());
+            we.setExerciseOrder(routineExercise.getExerciseOrder());
+            we.setPlannedSets(SETS_PER_EXERCISE);
+            we.setPlannedRepsMin(8);
+            we.setPlannedRepsMax(12);
+            we.setStatus(WorkoutExerciseStatus.COMPLETED);
+            we.setCompletedSets(SETS_PER_EXERCISE);
+            em.persist(we);
+
+            for (int n = 1; n <= SETS_PER_EXERCISE; n++) {
+                WorkoutSet set = new WorkoutSet();
+                set.setWorkoutExercise(we);
+                set.setSetNumber(n);
+                set.setReps(10);
+                set.setWeightKg(weightKg);
+                set.setCompleted(true);
+                em.persist(set);
+            }
+        }
+    }
+
+    private static User user() {
+        User u = new User();
+        u.setEmail("atleta@ironplan.test");
+        u.setUsername("atleta");
+        u.setPassword("x");
+        u.setBirthday(LocalDate.of(1995, 1, 1));
+        u.setLevel(Level.NOVATO);
+        u.setTrainDays(3);
+        u.setGender(Gender.MASCULINO);
+        return u;
+    }
+
+    private static Exercise exercise(String name) {
+        Exercise e = new Exercise();
+        e.setName(name);
+        e.setDescription(name);
+        e.setInstructions(name);
+        e.setPrimaryMuscle("pecho");
+        return e;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.*;
+import com.example.ironplan.rest.dto.WorkoutExerciseDetailResponse;
+import com.example.ironplan.rest.error.NotFoundException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * La pantalla de ejercicio debe salir en dos consultas (ejercicios con fetch join +
+ * serie anterior), sin lazy loads de sesión, rutina ni catálogo en el mapper.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({WorkoutExerciseService.class, LastPerformanceService.class})
+class WorkoutExerciseServiceTest {
+
+    @MockitoBean
+    private WorkoutProgressService progressService;
+
+    @Autowired
+    private WorkoutExerciseService workoutExerciseService;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private User user;
+    private WorkoutSession session;
+    private List<Exercise> catalog;
+
+    @BeforeEach
+    void setUp() {
+        user = em.persist(user());
+
+        RoutineTemplate template = new RoutineTemplate();
+        template.setName("Torso / Pierna");
+        template.setDescription("Rutina de prueba");
+        template.setGoal(Goal.HIPERTROFIA);
+        template.setIsPublic(true);
+        template.setType(Type.ADMIN_ISOLATED);
+        template.setAccess(Access_Type.FREE);
+        template.setDays_per_week(4);
+        template.setSuggestedLevel(Level.NOVATO);
+        template.setCreatedAt(LocalDateTime.now());
+        em.persist(template);
+
+        RoutineBlock block = new RoutineBlock();
+        block.setRoutine(template);
+        block.setName("Bloque 1");
+        em.persist(block);
+
+        RoutineDetail detail = new RoutineDetail();
+        detail.setBlock(block);
+        detail.setTitle("Torso A");
+        em.persist(detail);
+
+        session = new WorkoutSession();
+        session.setUser(user);
+        session.setRoutineDetail(detail);
+        session.setTotalExercises(3);
+        em.persist(session);
+
+        catalog = new ArrayList<>();
+        for (int order = 1; order <= 3; order++) {
+            Exercise exercise = em.persist(exercise("Ejercicio " + order));
+            catalog.add(exercise);
+
+            RoutineExercise routineExercise = new RoutineExercise();
+            routineExercise.setSession(detail);
+            routineExercise.setExercise(exercise);
+            routineExercise.setExerciseOrder(order);
+            routineExercise.setSets(3);
+            routineExercise.setRepsMin(8);
+            routineExercise.setRepsMax(12);
+            em.persist(routineExercise);
+
+            WorkoutExercise we = new WorkoutExercise();
+            we.setWorkoutSession(session);
+            we.setRoutineExercise(routineExercise);
+            we.setExerciseName(exercise.getName());
+            we.setExerciseOrder(order);
+            we.setPlannedSets(3);
+            we.setPlannedRepsMin(8);
+            we.setPlannedRepsMax(12);
+            em.persist(we);
+        }
+
+        UserExerciseLastPerformance previous = new UserExerciseLastPerformance();
+        previous.setUser(user);
+        previous.setExercise(catalog.get(1));
+        previous.setWorkoutExerciseId(0L);
+        previous.setSessionStartedAt(LocalDateTime.now().minusDays(3));
+        previous.setSetNumber(3);
+        previous.setReps(10);
+        previous.setWeightKg(60.0);
+        em.persist(previous);
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void exerciseScreenLoadsInTwoQueries() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        WorkoutExerciseDetailResponse response =
+                workoutExerciseService.getExerciseScreen(session.getId(), user.getId(), 2);
+
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(response.exerciseOrder()).isEqualTo(2);
+        assertThat(response.exerciseId()).isEqualTo(catalog.get(1).getId());
+        assertThat(response.previousSet()).isNotNull();
+        assertThat(response.previousSet().weightKg()).isEqualTo(60.0);
+        assertThat(response.nextExercises()).hasSize(1);
+        assertThat(response.nextExercises().get(0).exerciseId()).isEqualTo(catalog.get(2).getId());
+    }
+
+    @Test
+    void exerciseScreenOfAnotherUserIsNotFound() {
+        User other = em.persistAndFlush(user("otro"));
+
+        assertThatThrownBy(() -> workoutExerciseService.getExerciseScreen(session.getId(), other.getId(), 1))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    // ============ DATOS ============
+
+    private static User user() {
+        return user("atleta");
+    }
+
+    private static User user(String username) {
+        User u = new User();
+        u.setEmail(username + "@ironplan.test");
+        u.setUsername(username);
+        u.setPassword("x");
+        u.setBirthday(LocalDate.of(1995, 1, 1));
+        u.setLevel(Level.NOVATO);
+        u.setTrainDays(4);
+        u.setGender(Gender.MASCULINO);
+        return u;
+    }
+
+    private static Exercise exercise(String name) {
+        Exercise e = new Exercise();
+        e.setName(name);
+        e.setDescription(name);
+        e.setInstructions(name);
+        e.setPrimaryMuscle("pecho");
+        return e;
+    }
+}
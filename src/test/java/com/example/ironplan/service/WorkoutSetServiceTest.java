@@ -0,0 +1,178 @@
+package com.example.ironplan.service;
+
+import com.example.ironplan.model.*;
+import com.example.ironplan.repository.WorkoutSetRepository;
+import com.example.ironplan.rest.dto.SaveSetsResponse;
+import com.example.ironplan.rest.dto.WorkoutSetInput;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * completedSets de un ejercicio debe seguir a las series marcadas también después
+ * de pasar a COMPLETED (series extra por encima de las planeadas).
+ *
+ * Las series van por un upsert con sintaxis de MySQL que H2 no entiende: el repositorio
+ * de series se simula y el resto (ejercicio, sesión, UPDATE condicionales) va contra H2.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({WorkoutSetService.class, WorkoutProgressService.class})
+class WorkoutSetServiceTest {
+
+    private static final int PLANNED_SETS = 3;
+
+    @MockitoBean
+    private WorkoutSetRepository workoutSetRepo;
+    @MockitoBean
+    private OutboxService outbox;
+    @MockitoBean
+    private TrainingRollupService rollupService;
+    @MockitoBean
+    private PersonalRecordService recordService;
+    @MockitoBean
+    private MuscleVolumeService muscleVolumeService;
+    @MockitoBean
+    private LastPerformanceService lastPerformanceService;
+
+    @Autowired
+    private WorkoutSetService workoutSetService;
+
+    @Autowired
+    private TestEntityManager em;
+
+    private User user;
+    private WorkoutSession session;
+    private WorkoutExercise completedExercise;
+    private WorkoutExercise pendingExercise;
+
+    @BeforeEach
+    void setUp() {
+        user = em.persist(user());
+        Exercise catalogExercise = em.persist(exercise("Press banca"));
+
+        session = new WorkoutSession();
+        session.setUser(user);
+        session.setTotalExercises(2);
+        session.setCompletedExercises(1);
+        em.persist(session);
+
+        completedExercise = em.persist(workoutExercise(catalogExercise, 1));
+        completedExercise.setStatus(WorkoutExerciseStatus.COMPLETED);
+        completedExercise.setCompletedSets(PLANNED_SETS);
+
+        pendingExercise = em.persist(workoutExercise(catalogExercise, 2));
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void extraSetOnCompletedExerciseUpdatesCompletedSets() {
+        when(workoutSetRepo.findByWorkoutExercise_IdOrderBySetNumberAsc(anyLong()))
+                .thenReturn(completedSets(PLANNED_SETS));
+
+        SaveSetsResponse response = workoutSetService.saveSetsForExercise(
+                session.getId(),
+                completedExercise.getId(),
+                user.getId(),
+                List.of(new WorkoutSetInput(PLANNED_SETS + 1, 8, 60.0, true)),
+                null
+        );
+
+        assertThat(response.completedSets()).isEqualTo(PLANNED_SETS + 1);
+        assertThat(response.exerciseStatus()).isEqualTo(WorkoutExerciseStatus.COMPLETED);
+        // No es una transición nueva: la sesión no suma otro ejercicio
+        assertThat(response.sessionCompletedExercises()).isEqualTo(1);
+
+        em.clear();
+        WorkoutExercise stored = em.find(WorkoutExercise.class, completedExercise.getId());
+        assertThat(stored.getCompletedSets()).isEqualTo(PLANNED_SETS + 1);
+    }
+
+    @Test
+    void plannedPlusOneSetsCompleteExerciseWithFullCount() {
+        when(workoutSetRepo.findByWorkoutExercise_IdOrderBySetNumberAsc(anyLong()))
+                .thenReturn(List.of());
+
+        List<WorkoutSetInput> inputs = new ArrayList<>();
+        for (int n = 1; n <= PLANNED_SETS + 1; n++) {
+            inputs.add(new WorkoutSetInput(n, 8, 60.0, true));
+        }
+
+        SaveSetsResponse response = workoutSetService.saveSetsForExercise(
+                session.getId(), pendingExercise.getId(), user.getId(), inputs, null);
+
+        assertThat(response.completedSets()).isEqualTo(PLANNED_SETS + 1);
+        assertThat(response.exerciseStatus()).isEqualTo(WorkoutExerciseStatus.COMPLETED);
+        assertThat(response.sessionCompletedExercises()).isEqualTo(2);
+        assertThat(response.sessionStatus()).isEqualTo(WorkoutSessionStatus.COMPLETED);
+
+        em.clear();
+        WorkoutExercise stored = em.find(WorkoutExercise.class, pendingExercise.getId());
+        assertThat(stored.getCompletedSets()).isEqualTo(PLANNED_SETS + 1);
+    }
+
+    // ============ DATOS ============
+
+    private List<WorkoutSet> completedSets(int count) {
+        WorkoutExercise ref = em.find(WorkoutExercise.class, completedExercise.getId());
+        List<WorkoutSet> sets = new ArrayList<>();
+        for (int n = 1; n <= count; n++) {
+            WorkoutSet set = new WorkoutSet();
+            set.setWorkoutExercise(ref);
+            set.setSetNumber(n);
+            set.setReps(8);
+            set.setWeightKg(60.0);
+            set.setCompleted(true);
+            set.setCreatedAt(LocalDateTime.now());
+            sets.add(set);
+        }
+        return sets;
+    }
+
+    private WorkoutExercise workoutExercise(Exercise catalogExercise, int order) {
+        WorkoutExercise we = new WorkoutExercise();
+        we.setWorkoutSession(session);
+        we.setExercise(catalogExercise);
+        we.setExerciseName(catalogExercise.getName());
+        we.setExerciseOrder(order);
+        we.setPlannedSets(PLANNED_SETS);
+        we.setPlannedRepsMin(8);
+        we.setPlannedRepsMax(12);
+        return we;
+    }
+
+    private static User user() {
+        User u = new User();
+        u.setEmail("atleta@ironplan.test");
+        u.setUsername("atleta");
+        u.setPassword("x");
+        u.setBirthday(LocalDate.of(1995, 1, 1));
+        u.setLevel(Level.NOVATO);
+        u.setTrainDays(4);
+        u.setGender(Gender.MASCULINO);
+        return u;
+    }
+
+    private static Exercise exercise(String name) {
+        Exercise e = new Exercise();
+        e.setName(name);
+        e.setDescription(name);
+        e.setInstructions(name);
+        e.setPrimaryMuscle("pecho");
+        return e;
+    }
+}